@@ -0,0 +1,277 @@
+package com.mycompany.controller;
+
+import com.mycompany.model.AdaptiveConcurrencyLimit;
+import com.mycompany.model.ExpressionLimits;
+import com.mycompany.model.Metrics;
+import com.mycompany.model.TokenBucket;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.annotation.WebInitParam;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the calculation endpoints.
+ *
+ * Every client (its HTTP session when it has one, otherwise its remote address)
+ * has a {@link TokenBucket}. A request is charged its estimated cost, the number
+ * of circuit elements times the number of frequency points, so one large sweep uses up
+ * as much of the budget as many single-point calculations. A client whose bucket is
+ * empty gets 429 with a Retry-After header telling when the request would fit.
+ *
+ * Admitted requests additionally pass an {@link AdaptiveConcurrencyLimit} shared by
+ * all clients, which lowers the number of requests handled at once when response
+ * times show that requests are queueing and raises it while they do not. When it is
+ * reached the request gets 503 with Retry-After right away. Only cheap requests feed
+ * the latency signal; streamed sweeps and large calculations take long because of
+ * their size, not because of load. Rejections are counted in {@link Metrics}.
+ *
+ * The cost of a batch request is only known once its body has been read. The filter
+ * charges an estimate from the declared body size (a single unit when the body is
+ * chunked) and leaves the client's bucket in a request attribute; the batch handler
+ * charges the rest of the actual cost with {@link #chargeActualCost} after parsing.
+ *
+ * Init parameters: {@code rate} (cost units per second per client, default
+ * {@value #DEFAULT_RATE}), {@code burst} (bucket capacity, default
+ * {@value #DEFAULT_BURST}), {@code initialLimit}, {@code minLimit} and
+ * {@code maxLimit} (concurrent requests, defaults {@value #DEFAULT_INITIAL_LIMIT},
+ * {@value #DEFAULT_MIN_LIMIT} and {@value #DEFAULT_MAX_LIMIT}).
+ *
+ * @author Kamil Fulneczek
+ * @version 1.3
+ */
+@WebFilter(filterName = "AdmissionFilter", asyncSupported = true,
+        urlPatterns = {"/resistor", "/capacitor", "/inductor", "/circuit", "/sweep/stream", "/resources/impedance/*"},
+        initParams = {
+                @WebInitParam(name = "rate", value = "20000"),
+                @WebInitParam(name = "burst", value = "200000"),
+                @WebInitParam(name = "initialLimit", value = "32"),
+                @WebInitParam(name = "minLimit", value = "4"),
+                @WebInitParam(name = "maxLimit", value = "256")
+        })
+public class AdmissionFilter extends HttpFilter {
+
+    static final double DEFAULT_RATE = 20000;
+    static final double DEFAULT_BURST = 200000;
+    static final int DEFAULT_INITIAL_LIMIT = 32;
+    static final int DEFAULT_MIN_LIMIT = 4;
+    static final int DEFAULT_MAX_LIMIT = 256;
+
+    /**
+     * Latency above this multiple of the shortest recent latency lowers the concurrency limit.
+     */
+    static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * Requests up to this cost feed the latency signal of the concurrency limit.
+     */
+    static final double SAMPLED_COST = 1000;
+
+    /**
+     * Number of tracked clients above which idle buckets are dropped.
+     */
+    static final int MAX_CLIENTS = 10_000;
+
+    /**
+     * Points assumed when a request does not give them, matching the handlers' defaults.
+     */
+    static final int STREAM_DEFAULT_POINTS = 1000;
+    static final int RESOURCE_DEFAULT_POINTS = 50;
+
+    /**
+     * Request body bytes assumed per circuit node of a batch request.
+     */
+    static final int BATCH_BYTES_PER_NODE = 8;
+
+    /**
+     * Request attributes holding the client's bucket and the cost already charged.
+     */
+    static final String BUCKET_ATTRIBUTE = AdmissionFilter.class.getName() + ".bucket";
+    static final String CHARGED_ATTRIBUTE = AdmissionFilter.class.getName() + ".charged";
+
+    private static final Metrics.Counter RATE_REJECTIONS = Metrics.counter("impedance_admission_rejections_total",
+            "Requests rejected by admission control", "reason", "rate");
+    private static final Metrics.Counter CONCURRENCY_REJECTIONS = Metrics.counter("impedance_admission_rejections_total",
+            "Requests rejected by admission control", "reason", "concurrency");
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private double rate = DEFAULT_RATE;
+    private double burst = DEFAULT_BURST;
+    private AdaptiveConcurrencyLimit limit;
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        super.init(config);
+        rate = parsePositive(config.getInitParameter("rate"), DEFAULT_RATE);
+        burst = parsePositive(config.getInitParameter("burst"), DEFAULT_BURST);
+        int minLimit = (int) parsePositive(config.getInitParameter("minLimit"), DEFAULT_MIN_LIMIT);
+        int maxLimit = Math.max(minLimit, (int) parsePositive(config.getInitParameter("maxLimit"), DEFAULT_MAX_LIMIT));
+        int initialLimit = (int) parsePositive(config.getInitParameter("initialLimit"), DEFAULT_INITIAL_LIMIT);
+        limit = new AdaptiveConcurrencyLimit(initialLimit, Math.max(1, minLimit), maxLimit, LATENCY_TOLERANCE);
+    }
+
+    private static double parsePositive(String s, double fallback) {
+        if (s == null || s.isBlank()) return fallback;
+        try {
+            double v = Double.parseDouble(s.trim());
+            return v > 0 ? v : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+            throws IOException, ServletException {
+        long start = System.nanoTime();
+        double cost = estimateCost(req);
+        TokenBucket bucket = bucketFor(clientKey(req), start);
+        if (!bucket.tryAcquire(cost, start)) {
+            RATE_REJECTIONS.increment();
+            resp.setHeader("Retry-After", Long.toString(retryAfterSeconds(bucket, cost, start)));
+            resp.sendError(429, "Too many requests, please retry later");
+            return;
+        }
+        req.setAttribute(BUCKET_ATTRIBUTE, bucket);
+        req.setAttribute(CHARGED_ATTRIBUTE, cost);
+        if (!limit.tryAcquire()) {
+            CONCURRENCY_REJECTIONS.increment();
+            resp.setHeader("Retry-After", AsyncDispatch.RETRY_AFTER_SECONDS);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, please retry");
+            return;
+        }
+
+        boolean sample = cost <= SAMPLED_COST && !"/sweep/stream".equals(req.getServletPath());
+        AtomicBoolean released = new AtomicBoolean();
+        try {
+            chain.doFilter(req, resp);
+        } finally {
+            if (req.isAsyncStarted()) {
+                req.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release(released, start, sample);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release(released, start, false);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release(released, start, false);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                release(released, start, sample);
+            }
+        }
+    }
+
+    private static long retryAfterSeconds(TokenBucket bucket, double cost, long now) {
+        long wait = bucket.nanosUntilAvailable(cost, now);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1);
+    }
+
+    /**
+     * Charge an admitted request the part of its actual cost that its estimate did not
+     * cover, for requests whose cost is only known after the body has been read.
+     * Costs above the bucket capacity count as the capacity, as on admission.
+     *
+     * @param req request that passed this filter
+     * @param actualCost circuit nodes times frequency points of the request
+     * @return 0 when the cost has been charged (or the request did not pass this filter),
+     *         otherwise the number of seconds after which the client may retry
+     */
+    public static long chargeActualCost(HttpServletRequest req, double actualCost) {
+        if (!(req.getAttribute(BUCKET_ATTRIBUTE) instanceof TokenBucket bucket)) return 0;
+        double charged = req.getAttribute(CHARGED_ATTRIBUTE) instanceof Double d ? d : 0;
+        double extra = Math.min(actualCost, bucket.getCapacity()) - charged;
+        if (extra <= 0) return 0;
+        long now = System.nanoTime();
+        if (bucket.tryAcquire(extra, now)) {
+            req.setAttribute(CHARGED_ATTRIBUTE, charged + extra);
+            return 0;
+        }
+        RATE_REJECTIONS.increment();
+        return retryAfterSeconds(bucket, extra, now);
+    }
+
+    private void release(AtomicBoolean released, long start, boolean sample) {
+        if (released.compareAndSet(false, true)) {
+            limit.release(System.nanoTime() - start, sample);
+        }
+    }
+
+    private TokenBucket bucketFor(String client, long now) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) return bucket;
+        if (buckets.size() >= MAX_CLIENTS) {
+            // A full bucket is indistinguishable from a new one, so dropping it is free.
+            buckets.values().removeIf(b -> b.isFull(now));
+        }
+        return buckets.computeIfAbsent(client, k -> new TokenBucket(burst, rate, now));
+    }
+
+    /**
+     * @param req request
+     * @return session id when the client has a session, otherwise its remote address
+     */
+    static String clientKey(HttpServletRequest req) {
+        HttpSession session = req.getSession(false);
+        return session != null ? "s:" + session.getId() : "a:" + req.getRemoteAddr();
+    }
+
+    /**
+     * Estimate the cost of a request as circuit nodes times frequency points.
+     *
+     * @param req request
+     * @return estimated cost, at least 1
+     */
+    static double estimateCost(HttpServletRequest req) {
+        String path = req.getServletPath();
+        String info = req.getPathInfo();
+        if ("/sweep/stream".equals(path)) {
+            return ExpressionLimits.countNodes(req.getParameter("expression"))
+                    * parsePoints(req.getParameter("points"), STREAM_DEFAULT_POINTS);
+        }
+        if ("/resources".equals(path) && info != null) {
+            if (info.endsWith("/sweep")) {
+                return ExpressionLimits.countNodes(req.getParameter("expression"))
+                        * parsePoints(req.getParameter("points"), RESOURCE_DEFAULT_POINTS);
+            }
+            if (info.endsWith("/batch")) {
+                // The body is not read here; its size stands in for the number of nodes.
+                // A chunked body (-1) is charged one unit, the handler charges the rest.
+                long length = req.getContentLengthLong();
+                return length <= 0 ? 1 : Math.max(1, length / BATCH_BYTES_PER_NODE) * (double) RESOURCE_DEFAULT_POINTS;
+            }
+        }
+        return ExpressionLimits.countNodes(req.getParameter("expression"));
+    }
+
+    private static int parsePoints(String s, int fallback) {
+        if (s == null || s.isBlank()) return fallback;
+        try {
+            return Math.max(1, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -1,15 +1,32 @@
 package com.mycompany.controller;
 
+import com.mycompany.model.HeapHistoryStore;
+import com.mycompany.model.HistoryStore;
 import com.mycompany.model.ImpedanceModel;
+import com.mycompany.model.OffHeapHistoryStore;
 
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
 import jakarta.servlet.annotation.WebListener;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Application context listener that creates a single instance of ImpedanceModel
- * when the application starts and stores it in the ServletContext.
+ * (and the shared CalculationListingCache) when the application starts and stores
+ * it in the ServletContext.
  *
  * This ensures that all servlets share the same model instance throughout
  * the entire application lifecycle, without using static fields.
@@ -19,8 +36,27 @@ import jakarta.servlet.annotation.WebListener;
  *   ImpedanceModel model = (ImpedanceModel) getServletContext().getAttribute(AppContextListener.MODEL_ATTRIBUTE);
  * </pre>
  *
+ * The history backend is selected with the context parameter
+ * {@value #HISTORY_STORE_PARAM}: "heap" (default) or "offheap". The off-heap store
+ * keeps history records in direct memory and is released when the context is destroyed.
+ *
+ * CPU-bound batch evaluations run on a shared executor with one thread per
+ * available processor, stored under {@value #EVALUATION_EXECUTOR_ATTRIBUTE} and shut
+ * down with the context. Servlet requests handed off by {@link AsyncDispatch} run on
+ * a separate executor stored under {@value #REQUEST_EXECUTOR_ATTRIBUTE}. Both are
+ * bounded and reject work instead of queueing without limit.
+ *
+ * The thread mode {@value #THREAD_MODE_PARAM} ("platform" or "virtual") selects how
+ * that request executor runs work. It is read from the context parameter, the system
+ * property of the same name or {@code impedance.properties}, which the {@code java21}
+ * Maven profile sets to "virtual". In virtual mode, requests (including the blocking
+ * database work of {@link CalculationServlet}) run on one virtual thread each, with
+ * the container context of the request, and database access is limited by a
+ * semaphore sized to the JDBC connection pool ({@value #DATABASE_PERMITS} permits),
+ * stored under {@value #DATABASE_LIMITER_ATTRIBUTE}.
+ *
  * @author Kamil Fulneczek
- * @version 1.0
+ * @version 1.4
  */
 @WebListener
 public class AppContextListener implements ServletContextListener {
@@ -30,6 +66,65 @@ public class AppContextListener implements ServletContextListener {
      */
     public static final String MODEL_ATTRIBUTE = "impedanceModel";
 
+    /**
+     * Context parameter selecting the history backend ("heap" or "offheap").
+     */
+    public static final String HISTORY_STORE_PARAM = "impedance.history.store";
+
+    /**
+     * Attribute name used to store the CalculationListingCache in ServletContext.
+     */
+    public static final String LISTING_CACHE_ATTRIBUTE = "calculationListingCache";
+
+    /**
+     * Attribute name used to store the evaluation ExecutorService in ServletContext.
+     */
+    public static final String EVALUATION_EXECUTOR_ATTRIBUTE = "evaluationExecutor";
+
+    /**
+     * Attribute name used to store the request ExecutorService in ServletContext.
+     */
+    public static final String REQUEST_EXECUTOR_ATTRIBUTE = "requestExecutor";
+
+    /**
+     * Number of evaluation tasks that may wait for a thread before new ones are rejected.
+     */
+    static final int EVALUATION_QUEUE_CAPACITY = 256;
+
+    /**
+     * Number of requests that may wait for a request thread before new ones are rejected.
+     */
+    static final int REQUEST_QUEUE_CAPACITY = 64;
+
+    /**
+     * Context parameter, system property and impedance.properties key selecting the thread mode.
+     */
+    public static final String THREAD_MODE_PARAM = "impedance.threads";
+
+    /**
+     * Attribute name used to store the RequestExecutionStats in ServletContext.
+     */
+    public static final String EXECUTION_STATS_ATTRIBUTE = "requestExecutionStats";
+
+    /**
+     * Attribute name used to store the database Semaphore in ServletContext
+     * (only in virtual-thread mode).
+     */
+    public static final String DATABASE_LIMITER_ATTRIBUTE = "databaseLimiter";
+
+    /**
+     * Number of concurrent database requests; matches max-pool-size of the JDBC pool.
+     */
+    static final int DATABASE_PERMITS = 32;
+
+    /**
+     * Maximum number of requests queued or running on virtual threads.
+     */
+    static final int VIRTUAL_REQUEST_LIMIT = 1024;
+
+    @Resource
+    private ContextService contextService;
+
     /**
      * Called when the application context is initialized.
      * Creates a single ImpedanceModel instance and stores it in the context.
@@ -39,19 +134,135 @@ public class AppContextListener implements ServletContextListener {
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         ServletContext context = sce.getServletContext();
-        ImpedanceModel model = new ImpedanceModel();
+        ImpedanceModel model = new ImpedanceModel(createHistoryStore(context));
         context.setAttribute(MODEL_ATTRIBUTE, model);
+        context.setAttribute(LISTING_CACHE_ATTRIBUTE, new CalculationListingCache());
+        context.setAttribute(EVALUATION_EXECUTOR_ATTRIBUTE, createEvaluationExecutor());
+        String threadMode = threadMode(context);
+        if ("virtual".equals(threadMode)) {
+            context.setAttribute(REQUEST_EXECUTOR_ATTRIBUTE, new BoundedExecutor(
+                    VirtualThreads.newThreadPerTaskExecutor(), VIRTUAL_REQUEST_LIMIT, contextService));
+            context.setAttribute(DATABASE_LIMITER_ATTRIBUTE, new Semaphore(DATABASE_PERMITS, true));
+        } else {
+            context.setAttribute(REQUEST_EXECUTOR_ATTRIBUTE, createRequestExecutor());
+        }
+        context.setAttribute(EXECUTION_STATS_ATTRIBUTE, new RequestExecutionStats(threadMode));
+    }
+
+    /**
+     * Determine the thread mode. Virtual mode falls back to platform threads, with a
+     * log message, when the JVM does not support virtual threads.
+     *
+     * @param context servlet context holding the init parameters
+     * @return "virtual" or "platform"
+     */
+    private String threadMode(ServletContext context) {
+        String mode = context.getInitParameter(THREAD_MODE_PARAM);
+        if (mode == null || mode.isBlank()) mode = System.getProperty(THREAD_MODE_PARAM);
+        if (mode == null || mode.isBlank()) {
+            try (InputStream in = AppContextListener.class.getResourceAsStream("/impedance.properties")) {
+                if (in != null) {
+                    Properties props = new Properties();
+                    props.load(in);
+                    mode = props.getProperty(THREAD_MODE_PARAM);
+                }
+            } catch (IOException e) {
+                context.log("Could not read impedance.properties", e);
+            }
+        }
+        if (!"virtual".equalsIgnoreCase(mode == null ? "" : mode.trim())) return "platform";
+        if (!VirtualThreads.isSupported()) {
+            context.log("Virtual threads are not supported by this JVM, using platform threads");
+            return "platform";
+        }
+        return "virtual";
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Create the bounded executor for CPU-bound evaluations: one thread per processor
+     * and a queue of {@value #EVALUATION_QUEUE_CAPACITY} tasks; further tasks are
+     * rejected with {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @return executor service
+     */
+    private ExecutorService createEvaluationExecutor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(EVALUATION_QUEUE_CAPACITY), daemonThreads("impedance-eval-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Create the bounded executor for servlet requests: two threads per processor
+     * and a queue of {@value #REQUEST_QUEUE_CAPACITY} requests; further requests are
+     * rejected with {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @return executor service
+     */
+    private ExecutorService createRequestExecutor() {
+        int threads = 2 * Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(REQUEST_QUEUE_CAPACITY), daemonThreads("impedance-request-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Create the history backend configured by {@value #HISTORY_STORE_PARAM}.
+     *
+     * @param context servlet context holding the init parameters
+     * @return history store instance
+     */
+    private HistoryStore createHistoryStore(ServletContext context) {
+        String store = context.getInitParameter(HISTORY_STORE_PARAM);
+        if ("offheap".equalsIgnoreCase(store)) {
+            return new OffHeapHistoryStore();
+        }
+        return new HeapHistoryStore();
     }
 
     /**
      * Called when the application context is destroyed.
-     * Removes the ImpedanceModel from the context.
+     * Removes the ImpedanceModel from the context, releases its history storage and
+     * stops the executors.
      *
      * @param sce the ServletContextEvent containing the ServletContext
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
         ServletContext context = sce.getServletContext();
+        Object model = context.getAttribute(MODEL_ATTRIBUTE);
+        Object evaluationExecutor = context.getAttribute(EVALUATION_EXECUTOR_ATTRIBUTE);
+        Object requestExecutor = context.getAttribute(REQUEST_EXECUTOR_ATTRIBUTE);
         context.removeAttribute(MODEL_ATTRIBUTE);
+        context.removeAttribute(LISTING_CACHE_ATTRIBUTE);
+        context.removeAttribute(EVALUATION_EXECUTOR_ATTRIBUTE);
+        context.removeAttribute(REQUEST_EXECUTOR_ATTRIBUTE);
+        context.removeAttribute(EXECUTION_STATS_ATTRIBUTE);
+        context.removeAttribute(DATABASE_LIMITER_ATTRIBUTE);
+        shutdown(requestExecutor);
+        shutdown(evaluationExecutor);
+        if (model instanceof ImpedanceModel impedanceModel) {
+            impedanceModel.close();
+        }
+    }
+
+    private static void shutdown(Object executor) {
+        if (!(executor instanceof ExecutorService executorService)) return;
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) executorService.shutdownNow();
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,659 @@
+package com.mycompany.controller;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs servlet request handling on the bounded request executor instead of the
+ * container's HTTP thread.
+ *
+ * The request is put into asynchronous mode and the handler runs on the executor
+ * stored under {@link AppContextListener#REQUEST_EXECUTOR_ATTRIBUTE}. The handler
+ * writes into a buffered response (through its writer or its output stream); the
+ * buffered status, headers, cookies and page, or a buffered error or redirect, are
+ * copied to the real response only when the handler finishes within
+ * {@value #TIMEOUT_MILLIS} ms. Otherwise the client gets 503 and the late result is
+ * discarded. When the executor's queue is full the request is rejected with 503
+ * and a Retry-After header right away instead of waiting in a queue.
+ *
+ * A handler that times out cannot be stopped (evaluation does not check for
+ * interruption), so it only ever sees a guarded request and the buffered response:
+ * every call that reaches the container's request or response checks, under the
+ * lock that completes the exchange, that the exchange is still open, and fails with
+ * {@link IllegalStateException} once the container has completed it and may have
+ * recycled the objects.
+ *
+ * When no executor is available, or the request does not support asynchronous
+ * processing, the handler runs synchronously as before.
+ *
+ * {@link #dispatchBlocking} is the variant for handlers that block on the database.
+ * It is only used in the virtual-thread mode (see {@link AppContextListener}): the
+ * handler writes to the response directly, and a permit of the database limiter is
+ * acquired before it runs so that no more requests wait on JDBC than the pool has
+ * connections. In platform mode such handlers keep running on the container thread.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.3
+ */
+final class AsyncDispatch {
+
+    /**
+     * Maximum time a request may spend queued and running on the executor.
+     */
+    static final long TIMEOUT_MILLIS = 10_000L;
+
+    /**
+     * Value of the Retry-After header sent with 503 responses, in seconds.
+     */
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * Maximum time a blocking request waits for a database permit.
+     */
+    static final long DATABASE_WAIT_MILLIS = 30_000L;
+
+    /**
+     * Request handling code, usually a servlet's processRequest method.
+     */
+    @FunctionalInterface
+    interface Handler {
+        void handle(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException;
+    }
+
+    private AsyncDispatch() {
+    }
+
+    /**
+     * Handle the request on the request executor.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response
+     * @param handler request handling code
+     * @throws ServletException when the handler fails in synchronous mode
+     * @throws IOException on I/O errors
+     */
+    static void dispatch(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+            throws ServletException, IOException {
+        ExecutorService executor = (ExecutorService) req.getServletContext()
+                .getAttribute(AppContextListener.REQUEST_EXECUTOR_ATTRIBUTE);
+        if (executor == null || !req.isAsyncSupported()) {
+            handler.handle(req, resp);
+            return;
+        }
+
+        RequestExecutionStats stats = stats(req);
+        AsyncContext async = req.startAsync();
+        async.setTimeout(TIMEOUT_MILLIS);
+        Exchange exchange = new Exchange(async, req.getServletContext(), resp, stats);
+        async.addListener(exchange);
+        try {
+            exchange.future = executor.submit(() -> exchange.run(req, handler));
+            if (stats != null) stats.recordDispatched();
+        } catch (RejectedExecutionException e) {
+            if (stats != null) stats.recordRejected();
+            exchange.fail(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, please retry");
+        }
+    }
+
+    /**
+     * Handle a request that blocks on the database. In virtual-thread mode the
+     * handler runs on its own virtual thread after acquiring a database permit;
+     * otherwise it runs synchronously on the calling thread.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response
+     * @param handler request handling code
+     * @throws ServletException when the handler fails in synchronous mode
+     * @throws IOException on I/O errors
+     */
+    static void dispatchBlocking(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+            throws ServletException, IOException {
+        ExecutorService executor = (ExecutorService) req.getServletContext()
+                .getAttribute(AppContextListener.REQUEST_EXECUTOR_ATTRIBUTE);
+        Semaphore limiter = (Semaphore) req.getServletContext()
+                .getAttribute(AppContextListener.DATABASE_LIMITER_ATTRIBUTE);
+        if (executor == null || limiter == null || !req.isAsyncSupported()) {
+            handler.handle(req, resp);
+            return;
+        }
+
+        RequestExecutionStats stats = stats(req);
+        AsyncContext async = req.startAsync();
+        async.setTimeout(0);
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (!limiter.tryAcquire(DATABASE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (stats != null) stats.recordRejected();
+                        resp.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+                        resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Database is busy, please retry");
+                        return;
+                    }
+                    if (stats != null) stats.recordDatabaseWait(System.nanoTime() - start);
+                    try {
+                        handler.handle(req, resp);
+                    } finally {
+                        limiter.release();
+                    }
+                    if (stats != null) stats.recordCompleted(System.nanoTime() - start);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    req.getServletContext().log("Request handling failed", e);
+                    try {
+                        if (!resp.isCommitted()) resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+                    } catch (IOException | IllegalStateException ex) {
+                        req.getServletContext().log("Could not send the error response", ex);
+                    }
+                } finally {
+                    async.complete();
+                }
+            });
+            if (stats != null) stats.recordDispatched();
+        } catch (RejectedExecutionException e) {
+            if (stats != null) stats.recordRejected();
+            resp.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, please retry");
+            async.complete();
+        }
+    }
+
+    private static RequestExecutionStats stats(HttpServletRequest req) {
+        return (RequestExecutionStats) req.getServletContext()
+                .getAttribute(AppContextListener.EXECUTION_STATS_ATTRIBUTE);
+    }
+
+    /**
+     * State of one dispatched request. The first of completion, failure and
+     * timeout wins; the others are ignored. The exchange is also the lock under
+     * which the handler's calls reach the container's request and response.
+     */
+    private static final class Exchange implements AsyncListener {
+        private final AsyncContext async;
+        private final ServletContext context;
+        private final HttpServletResponse resp;
+        private final BufferedResponse buffered;
+        private final RequestExecutionStats stats;
+        private final long start = System.nanoTime();
+        private volatile Future<?> future;
+        private boolean done;
+
+        Exchange(AsyncContext async, ServletContext context, HttpServletResponse resp, RequestExecutionStats stats) {
+            this.async = async;
+            this.context = context;
+            this.resp = resp;
+            this.buffered = new BufferedResponse(this, resp);
+            this.stats = stats;
+        }
+
+        void run(HttpServletRequest req, Handler handler) {
+            try {
+                handler.handle(guard(req), buffered);
+                commit();
+            } catch (Exception e) {
+                if (isDone()) {
+                    context.log("Request handling failed after the request was completed: " + e);
+                } else {
+                    context.log("Request handling failed", e);
+                    fail(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+                }
+            }
+        }
+
+        private synchronized boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Fail unless the exchange is still open; called with the exchange lock held.
+         */
+        private void checkOpen() {
+            if (done) throw new IllegalStateException("The request has already been completed");
+        }
+
+        /**
+         * Wrap the request so that every call is made only while the exchange is open.
+         */
+        private HttpServletRequest guard(HttpServletRequest req) {
+            return (HttpServletRequest) Proxy.newProxyInstance(AsyncDispatch.class.getClassLoader(),
+                    new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                        if (method.getDeclaringClass() == Object.class) {
+                            switch (method.getName()) {
+                                case "equals":
+                                    return proxy == args[0];
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                default:
+                                    return "Guarded request of " + this;
+                            }
+                        }
+                        synchronized (this) {
+                            checkOpen();
+                            try {
+                                return method.invoke(req, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+
+        private synchronized void commit() throws IOException {
+            if (done) return;
+            done = true;
+            try {
+                buffered.copyTo(resp);
+                if (stats != null) stats.recordCompleted(System.nanoTime() - start);
+            } finally {
+                async.complete();
+            }
+        }
+
+        synchronized void fail(int status, String message) {
+            if (done) return;
+            done = true;
+            try {
+                if (!resp.isCommitted()) {
+                    resp.setHeader("ETag", null);
+                    resp.setHeader("Cache-Control", "no-store");
+                    if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                        resp.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+                    }
+                    resp.sendError(status, message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                context.log("Could not send the " + status + " response", e);
+            } finally {
+                async.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            Future<?> f = future;
+            if (f != null) f.cancel(true);
+            if (stats != null) stats.recordTimedOut();
+            fail(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Request timed out");
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            Future<?> f = future;
+            if (f != null) f.cancel(true);
+            synchronized (this) {
+                done = true;
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            synchronized (this) {
+                done = true;
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    /**
+     * One buffered header: its name as first given, its values, and whether it
+     * replaces the values already on the real response.
+     */
+    private static final class Header {
+        final String name;
+        final List<String> values = new ArrayList<>(1);
+        boolean replace;
+
+        Header(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Response that keeps status, headers, cookies, content type, error, redirect and
+     * page in memory until they are copied to the real response. Pages written as
+     * bytes are sent with a Content-Length. The few calls that need the real response
+     * (URL encoding, defaults of unset values) go through the exchange guard.
+     */
+    private static final class BufferedResponse implements HttpServletResponse {
+        private static final DateTimeFormatter HTTP_DATE =
+                DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+        private final Exchange exchange;
+        private final HttpServletResponse response;
+        private final CharArrayWriter body = new CharArrayWriter(4096);
+        private final PrintWriter writer = new PrintWriter(body);
+        private final List<Cookie> cookies = new ArrayList<>();
+        private final Map<String, Header> headers = new LinkedHashMap<>();
+        private ByteArrayOutputStream bytes;
+        private String contentType;
+        private String characterEncoding;
+        private Locale locale;
+        private int status = SC_OK;
+        private int errorStatus;
+        private String errorMessage;
+        private String redirect;
+
+        BufferedResponse(Exchange exchange, HttpServletResponse response) {
+            this.exchange = exchange;
+            this.response = response;
+        }
+
+        private HttpServletResponse real() {
+            exchange.checkOpen();
+            return response;
+        }
+
+        private boolean isFinal() {
+            return errorStatus != 0 || redirect != null;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return writer;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (bytes == null) bytes = new ByteArrayOutputStream(4096);
+            ByteArrayOutputStream target = bytes;
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    target.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    target.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    throw new IllegalStateException("Non-blocking I/O is not supported on a buffered response");
+                }
+            };
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+
+        @Override
+        public void setContentType(String type) {
+            if (!isFinal()) contentType = type;
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            if (!isFinal()) characterEncoding = charset;
+        }
+
+        @Override
+        public String getCharacterEncoding() {
+            if (characterEncoding != null) return characterEncoding;
+            if (contentType != null) {
+                int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+                if (i >= 0) return contentType.substring(i + 8).trim();
+            }
+            return "ISO-8859-1";
+        }
+
+        @Override
+        public void setLocale(Locale loc) {
+            if (!isFinal()) locale = loc;
+        }
+
+        @Override
+        public Locale getLocale() {
+            if (locale != null) return locale;
+            synchronized (exchange) {
+                return real().getLocale();
+            }
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            if (!isFinal()) cookies.add(cookie);
+        }
+
+        @Override
+        public boolean containsHeader(String name) {
+            return getHeader(name) != null;
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            synchronized (exchange) {
+                return real().encodeURL(url);
+            }
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            synchronized (exchange) {
+                return real().encodeRedirectURL(url);
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) {
+            if (isFinal()) throw new IllegalStateException("Response already committed");
+            errorStatus = sc;
+            errorMessage = msg;
+        }
+
+        @Override
+        public void sendError(int sc) {
+            sendError(sc, null);
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+            if (isFinal()) throw new IllegalStateException("Response already committed");
+            redirect = location;
+        }
+
+        private void putHeader(String name, String value, boolean replace) {
+            if (name == null || isFinal()) return;
+            Header h = headers.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new Header(name));
+            if (replace) {
+                h.values.clear();
+                h.replace = true;
+            }
+            if (value != null) h.values.add(value);
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            putHeader(name, value, true);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            putHeader(name, value, false);
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            putHeader(name, HTTP_DATE.format(Instant.ofEpochMilli(date)), true);
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            putHeader(name, HTTP_DATE.format(Instant.ofEpochMilli(date)), false);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            putHeader(name, Integer.toString(value), true);
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            putHeader(name, Integer.toString(value), false);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            Collection<String> values = getHeaders(name);
+            return values.isEmpty() ? null : values.iterator().next();
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            Header h = name == null ? null : headers.get(name.toLowerCase(Locale.ROOT));
+            List<String> values = new ArrayList<>();
+            if (h == null || !h.replace) {
+                synchronized (exchange) {
+                    values.addAll(real().getHeaders(name));
+                }
+            }
+            if (h != null) values.addAll(h.values);
+            return values;
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            synchronized (exchange) {
+                for (String n : real().getHeaderNames()) {
+                    if (!headers.containsKey(n.toLowerCase(Locale.ROOT))) names.add(n);
+                }
+            }
+            for (Header h : headers.values()) {
+                if (!h.values.isEmpty()) names.add(h.name);
+            }
+            return names;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            if (!isFinal()) status = sc;
+        }
+
+        @Override
+        public int getStatus() {
+            return errorStatus != 0 ? errorStatus : status;
+        }
+
+        @Override
+        public void setBufferSize(int size) {
+        }
+
+        @Override
+        public int getBufferSize() {
+            return Math.max(body.size(), bytes == null ? 0 : bytes.size());
+        }
+
+        @Override
+        public void flushBuffer() {
+            writer.flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (isFinal()) throw new IllegalStateException("Response already committed");
+            writer.flush();
+            body.reset();
+            if (bytes != null) bytes.reset();
+        }
+
+        @Override
+        public void reset() {
+            resetBuffer();
+            headers.clear();
+            cookies.clear();
+            status = SC_OK;
+            contentType = null;
+            characterEncoding = null;
+            locale = null;
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return isFinal();
+        }
+
+        /**
+         * Copy everything buffered to the real response; called once, with the
+         * exchange lock held.
+         */
+        void copyTo(HttpServletResponse target) throws IOException {
+            writer.flush();
+            for (Header h : headers.values()) {
+                if (h.replace) target.setHeader(h.name, h.values.isEmpty() ? null : h.values.get(0));
+                for (int i = h.replace ? 1 : 0; i < h.values.size(); i++) target.addHeader(h.name, h.values.get(i));
+            }
+            for (Cookie c : cookies) target.addCookie(c);
+            if (redirect != null) {
+                target.sendRedirect(redirect);
+                return;
+            }
+            if (errorStatus != 0) {
+                target.sendError(errorStatus, errorMessage);
+                return;
+            }
+            if (locale != null) target.setLocale(locale);
+            if (contentType != null) target.setContentType(contentType);
+            if (characterEncoding != null) target.setCharacterEncoding(characterEncoding);
+            if (status != SC_OK) target.setStatus(status);
+            if (bytes != null) {
+                target.setContentLength(bytes.size());
+                ServletOutputStream out = target.getOutputStream();
+                bytes.writeTo(out);
+                out.close();
+                return;
+            }
+            PrintWriter out = target.getWriter();
+            body.writeTo(out);
+            out.close();
+        }
+    }
+}
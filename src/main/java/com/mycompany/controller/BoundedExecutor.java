@@ -0,0 +1,85 @@
+package com.mycompany.controller;
+
+import jakarta.enterprise.concurrent.ContextService;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that limits the number of tasks in flight and optionally runs them
+ * with the container context of the submitting thread.
+ *
+ * Used in front of a virtual-thread-per-task executor, which has no limit of its
+ * own: a task submitted while {@code maxConcurrent} tasks are queued or running is
+ * rejected with {@link RejectedExecutionException}, like the bounded platform pool.
+ * With a {@link ContextService}, each task is wrapped at submission so that it sees
+ * the naming context of the submitting component (needed for injected
+ * {@code EntityManager} and {@code UserTransaction} references).
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+final class BoundedExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final ContextService contextService;
+
+    /**
+     * @param delegate executor running the tasks
+     * @param maxConcurrent maximum number of queued and running tasks
+     * @param contextService context service used to capture the submitter's context, may be null
+     */
+    BoundedExecutor(ExecutorService delegate, int maxConcurrent, ContextService contextService) {
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent);
+        this.contextService = contextService;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!permits.tryAcquire()) throw new RejectedExecutionException("Too many concurrent tasks");
+        Runnable task = contextService == null ? command : contextService.contextualRunnable(command);
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
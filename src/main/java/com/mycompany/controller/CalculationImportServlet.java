@@ -0,0 +1,258 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
+import com.mycompany.entities.Component;
+import jakarta.annotation.Resource;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonParser;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.UserTransaction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk import of stored calculations.
+ *
+ * Accepts a stream of calculations in one POST request, either as a JSON array
+ * ({@code application/json}) or as newline-delimited JSON objects
+ * ({@code application/x-ndjson}):
+ * <pre>
+ *   {"name": "filter", "frequency": 1000, "components": [{"type": "R", "value": 100}]}
+ * </pre>
+ * The input is read incrementally and persisted in chunks of {@code chunk} calculations
+ * (default {@value #DEFAULT_CHUNK_SIZE}), each in its own short transaction. The entities
+ * use pooled sequence ids, so EclipseLink can group the INSERTs of a chunk into JDBC
+ * batches instead of doing one IDENTITY round trip per row.
+ *
+ * Circuits are deduplicated by content hash, so a sweep of the same circuit at many
+ * frequencies stores its components only once. A chunk that fails is retried once,
+ * which covers a concurrent import storing one of its circuits first. Both formats
+ * are read as UTF-8. The response reports the number of
+ * imported rows (calculations and newly stored components) and the throughput. When a chunk
+ * fails, the chunks committed before it stay imported and the error is reported.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+@WebServlet(name = "CalculationImportServlet", urlPatterns = {"/CalculationService/import"})
+public class CalculationImportServlet extends HttpServlet {
+
+    static final int DEFAULT_CHUNK_SIZE = 500;
+    static final int MAX_CHUNK_SIZE = 5000;
+
+    @PersistenceContext(unitName = "my_persistence_unit")
+    private EntityManager em;
+
+    @Resource
+    private UserTransaction userTransaction;
+
+    /**
+     * Running totals of one import request.
+     */
+    private static final class ImportStats {
+        long calculations;
+        long components;
+        int chunks;
+    }
+
+    private int parseChunkSize(String s) {
+        if (s == null || s.isBlank()) return DEFAULT_CHUNK_SIZE;
+        try {
+            return Math.max(1, Math.min(MAX_CHUNK_SIZE, Integer.parseInt(s.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * Convert one JSON object into a Calculation entity with its components.
+     *
+     * @param json calculation object
+     * @return new, unmanaged Calculation
+     */
+    private Calculation toCalculation(JsonObject json) {
+        Calculation calc = new Calculation();
+        calc.setName(json.getString("name", null));
+        calc.setFrequency(toDouble(json.get("frequency")));
+        Circuit circuit = new Circuit();
+        JsonValue comps = json.get("components");
+        if (comps != null && comps.getValueType() == JsonValue.ValueType.ARRAY) {
+            for (JsonValue v : (JsonArray) comps) {
+                if (v.getValueType() != JsonValue.ValueType.OBJECT) continue;
+                JsonObject o = v.asJsonObject();
+                String type = o.getString("type", null);
+                if (type == null || type.isBlank()) continue;
+                Component c = new Component();
+                c.setType(type);
+                c.setValue(toDouble(o.get("value")));
+                circuit.addComponent(c);
+            }
+        }
+        calc.setCircuit(circuit);
+        StoredCircuits.evaluate(calc);
+        return calc;
+    }
+
+    private static Double toDouble(JsonValue v) {
+        if (v instanceof JsonNumber n) return n.doubleValue();
+        return null;
+    }
+
+    /**
+     * Persist one chunk in its own transaction and detach it afterwards so the
+     * persistence context does not grow with the size of the import. Circuits
+     * already stored, or repeated within the chunk, are referenced instead of
+     * being inserted again.
+     */
+    private void persistChunk(List<Calculation> chunk, ImportStats stats) throws Exception {
+        if (chunk.isEmpty()) return;
+        long newComponents;
+        // a second attempt covers a concurrent import storing one of the circuits first
+        try {
+            newComponents = persistChunkOnce(chunk);
+        } catch (Exception e) {
+            newComponents = persistChunkOnce(chunk);
+        }
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (Calculation c : chunk) {
+            if (c.getId() == null) continue;
+            minId = Math.min(minId, c.getId());
+            maxId = Math.max(maxId, c.getId());
+        }
+        CalculationListingCache cache = (CalculationListingCache) getServletContext()
+                .getAttribute(AppContextListener.LISTING_CACHE_ATTRIBUTE);
+        if (cache != null && minId <= maxId) cache.invalidateRange(minId, maxId);
+
+        stats.chunks++;
+        stats.calculations += chunk.size();
+        stats.components += newComponents;
+        chunk.clear();
+    }
+
+    /**
+     * @return number of components stored with new circuits
+     */
+    private long persistChunkOnce(List<Calculation> chunk) throws Exception {
+        long newComponents = 0;
+        userTransaction.begin();
+        try {
+            Map<String, Circuit> pending = new HashMap<>();
+            for (Calculation c : chunk) {
+                Circuit draft = c.getCircuit();
+                Circuit stored = StoredCircuits.resolve(em, draft, pending);
+                if (stored == draft) newComponents += draft.getComponents().size();
+                c.setCircuit(stored);
+                em.persist(c);
+            }
+            em.flush();
+            em.clear();
+            userTransaction.commit();
+        } catch (Exception e) {
+            try { userTransaction.rollback(); } catch (Exception ex) { }
+            throw e;
+        }
+        return newComponents;
+    }
+
+    private void importArray(HttpServletRequest req, int chunkSize, ImportStats stats) throws Exception {
+        List<Calculation> chunk = new ArrayList<>(chunkSize);
+        try (JsonParser parser = Json.createParser(req.getInputStream())) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of calculations");
+            }
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+                if (event == JsonParser.Event.END_ARRAY) break;
+                if (event != JsonParser.Event.START_OBJECT) {
+                    throw new IllegalArgumentException("Expected a calculation object, got " + event);
+                }
+                chunk.add(toCalculation(parser.getObject()));
+                if (chunk.size() >= chunkSize) persistChunk(chunk, stats);
+            }
+        }
+        persistChunk(chunk, stats);
+    }
+
+    private void importNdjson(HttpServletRequest req, int chunkSize, ImportStats stats) throws Exception {
+        List<Calculation> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            try (var jsonReader = Json.createReader(new StringReader(line))) {
+                chunk.add(toCalculation(jsonReader.readObject()));
+            }
+            if (chunk.size() >= chunkSize) persistChunk(chunk, stats);
+        }
+        persistChunk(chunk, stats);
+    }
+
+    /**
+     * Import the calculations contained in the request body.
+     *
+     * @param req HTTP request with a JSON array or NDJSON body
+     * @param resp HTTP response receiving the JSON import report
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        int chunkSize = parseChunkSize(req.getParameter("chunk"));
+        String contentType = req.getContentType();
+        boolean ndjson = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("ndjson");
+
+        ImportStats stats = new ImportStats();
+        String error = null;
+        int status = HttpServletResponse.SC_OK;
+        long start = System.nanoTime();
+        try {
+            if (ndjson) importNdjson(req, chunkSize, stats);
+            else importArray(req, chunkSize, stats);
+        } catch (IllegalArgumentException | JsonException e) {
+            status = HttpServletResponse.SC_BAD_REQUEST;
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (Exception e) {
+            status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        long elapsedNanos = Math.max(1L, System.nanoTime() - start);
+
+        resp.setStatus(status);
+        resp.setContentType("application/json;charset=UTF-8");
+        try (JsonGenerator gen = Json.createGenerator(resp.getOutputStream())) {
+            gen.writeStartObject();
+            gen.write("calculations", stats.calculations);
+            gen.write("components", stats.components);
+            gen.write("chunks", stats.chunks);
+            gen.write("chunkSize", chunkSize);
+            gen.write("elapsedMillis", elapsedNanos / 1_000_000L);
+            gen.write("rowsPerSecond", (stats.calculations + stats.components) * 1e9 / elapsedNanos);
+            if (error != null) gen.write("error", error);
+            gen.writeEnd();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.mycompany.controller;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Query-result cache for the keyset-paginated "Existing Calculations" listing.
+ *
+ * Each entry maps a page key (the {@code after} id and the page size) to the ids
+ * on that page. The calculations themselves are then read through the JPA
+ * second-level cache, so a repeated page load does not touch the database.
+ *
+ * Writes invalidate precisely: a change to calculation {@code id} only drops the
+ * pages whose id range can contain it, that is pages starting before {@code id}
+ * that either end at or after it or are the last page. All other pages stay valid.
+ *
+ * A page read from the database is only stored when no write happened while it
+ * was being read (see {@link #getGeneration()}), so a concurrent insert cannot
+ * leave a stale page behind.
+ *
+ * The cache is bounded and evicts the least recently used page. A single instance
+ * is shared by all servlets through the servlet context.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class CalculationListingCache {
+
+    /**
+     * Default maximum number of cached pages.
+     */
+    public static final int DEFAULT_MAX_PAGES = 1024;
+
+    /**
+     * Cached page of ids.
+     *
+     * @param ids calculation ids on the page, ascending
+     * @param hasNext whether more calculations follow the page
+     */
+    public record Page(List<Long> ids, boolean hasNext) {
+    }
+
+    private record Key(long after, int size) {
+    }
+
+    private final Map<Key, Page> pages;
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder entityHits = new LongAdder();
+    private final LongAdder entityMisses = new LongAdder();
+
+    /**
+     * Create a cache holding at most {@link #DEFAULT_MAX_PAGES} pages.
+     */
+    public CalculationListingCache() {
+        this(DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Create a cache holding at most maxPages pages.
+     *
+     * @param maxPages maximum number of cached pages; must be positive
+     */
+    public CalculationListingCache(int maxPages) {
+        if (maxPages <= 0) throw new IllegalArgumentException("maxPages must be > 0");
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Page> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    /**
+     * Look up a cached page, counting a hit or a miss.
+     *
+     * @param after keyset start (exclusive)
+     * @param size page size
+     * @return cached page or null
+     */
+    public Page get(long after, int size) {
+        Page page;
+        synchronized (pages) {
+            page = pages.get(new Key(after, size));
+        }
+        if (page == null) misses.increment();
+        else hits.increment();
+        return page;
+    }
+
+    /**
+     * Return the current write generation. Take it before reading a page from
+     * the database and pass it to {@link #put}.
+     *
+     * @return generation counter, incremented by every invalidation
+     */
+    public long getGeneration() {
+        synchronized (pages) {
+            return generation;
+        }
+    }
+
+    /**
+     * Store a page loaded from the database, unless a write happened since
+     * the given generation was observed.
+     *
+     * @param after keyset start (exclusive)
+     * @param size page size
+     * @param ids ids on the page, ascending
+     * @param hasNext whether more calculations follow
+     * @param observedGeneration value of {@link #getGeneration()} before the page was read
+     */
+    public void put(long after, int size, List<Long> ids, boolean hasNext, long observedGeneration) {
+        Page page = new Page(List.copyOf(ids), hasNext);
+        synchronized (pages) {
+            if (generation != observedGeneration) return;
+            pages.put(new Key(after, size), page);
+        }
+    }
+
+    /**
+     * Drop all pages that may contain a calculation with the given id.
+     * Used after a calculation is inserted, updated or deleted.
+     *
+     * @param id calculation id
+     */
+    public void invalidate(long id) {
+        invalidateRange(id, id);
+    }
+
+    /**
+     * Drop all pages that may contain a calculation with an id in [minId, maxId].
+     *
+     * @param minId lowest changed id
+     * @param maxId highest changed id
+     */
+    public void invalidateRange(long minId, long maxId) {
+        synchronized (pages) {
+            generation++;
+            pages.entrySet().removeIf(e -> {
+                Page p = e.getValue();
+                if (e.getKey().after() >= maxId) return false;
+                boolean affected = !p.hasNext() || p.ids().isEmpty() || minId <= p.ids().get(p.ids().size() - 1);
+                if (affected) invalidations.increment();
+                return affected;
+            });
+        }
+    }
+
+    /**
+     * Drop every cached page.
+     */
+    public void clear() {
+        synchronized (pages) {
+            generation++;
+            pages.clear();
+        }
+    }
+
+    /**
+     * Return the number of page lookups answered from the cache.
+     *
+     * @return hit count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Return the number of page lookups that had to query the database.
+     *
+     * @return miss count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Return the number of pages dropped because of writes.
+     *
+     * @return invalidation count
+     */
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /**
+     * Record whether a calculation read for a cached page was present in the
+     * JPA second-level cache.
+     *
+     * @param cached true when the entity was found in the shared cache
+     */
+    public void recordEntityLookup(boolean cached) {
+        if (cached) entityHits.increment();
+        else entityMisses.increment();
+    }
+
+    /**
+     * Return the number of calculations read from the second-level cache.
+     *
+     * @return entity cache hit count
+     */
+    public long getEntityHits() {
+        return entityHits.sum();
+    }
+
+    /**
+     * Return the number of calculations that were not in the second-level cache.
+     *
+     * @return entity cache miss count
+     */
+    public long getEntityMisses() {
+        return entityMisses.sum();
+    }
+
+    /**
+     * Return the number of cached pages.
+     *
+     * @return cached page count
+     */
+    public int size() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Range queries over the numeric results of stored calculations.
+ *
+ * Example: {@code /CalculationService/query?magMin=10&magMax=100&freqMin=50&freqMax=60}
+ * returns all calculations with |Z| in [10, 100] Ohms at frequencies in [50, 60] Hz.
+ * Omitted bounds are unbounded. The query runs against the indexed MAGNITUDE and
+ * FREQUENCY columns and is keyset-paginated by id ({@code after}, {@code limit}).
+ *
+ * With {@code circuit=<hash>} the endpoint instead returns all results stored for
+ * that circuit, using the index on CIRCUIT_HASH.
+ *
+ * The response is a JSON object with the matching calculations and, when more
+ * results exist, the {@code next} keyset value.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@WebServlet(name = "CalculationQueryServlet", urlPatterns = {"/CalculationService/query"})
+public class CalculationQueryServlet extends HttpServlet {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    @PersistenceContext(unitName = "my_persistence_unit")
+    private EntityManager em;
+
+    private double parseBound(HttpServletRequest req, String name, double fallback) {
+        String s = req.getParameter(name);
+        if (s == null || s.isBlank()) return fallback;
+        double v = Double.parseDouble(s.trim());
+        if (Double.isNaN(v)) throw new NumberFormatException(name + " must be a number");
+        return v;
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Double value) {
+        if (value == null || value.isNaN() || value.isInfinite()) gen.writeNull(name);
+        else gen.write(name, value);
+    }
+
+    /**
+     * Run the range query described by the request parameters.
+     *
+     * @param req HTTP request with optional magMin, magMax, freqMin, freqMax, circuit, after and limit
+     * @param resp HTTP response receiving JSON
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        double magMin;
+        double magMax;
+        double freqMin;
+        double freqMax;
+        long after;
+        int limit;
+        try {
+            magMin = parseBound(req, "magMin", -Double.MAX_VALUE);
+            magMax = parseBound(req, "magMax", Double.MAX_VALUE);
+            freqMin = parseBound(req, "freqMin", -Double.MAX_VALUE);
+            freqMax = parseBound(req, "freqMax", Double.MAX_VALUE);
+            String afterStr = req.getParameter("after");
+            after = afterStr == null || afterStr.isBlank() ? 0L : Long.parseLong(afterStr.trim());
+            String limitStr = req.getParameter("limit");
+            limit = limitStr == null || limitStr.isBlank() ? DEFAULT_LIMIT
+                    : Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limitStr.trim())));
+        } catch (NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid number: " + e.getMessage());
+            return;
+        }
+
+        String circuitHash = req.getParameter("circuit");
+        TypedQuery<Calculation> query;
+        if (circuitHash != null && !circuitHash.isBlank()) {
+            query = em.createNamedQuery(Calculation.FIND_BY_CIRCUIT, Calculation.class)
+                    .setParameter("hash", circuitHash.trim());
+        } else {
+            query = em.createNamedQuery(Calculation.FIND_BY_MAGNITUDE_AND_FREQUENCY, Calculation.class)
+                    .setParameter("magMin", magMin)
+                    .setParameter("magMax", magMax)
+                    .setParameter("freqMin", freqMin)
+                    .setParameter("freqMax", freqMax);
+        }
+        List<Calculation> rows = query
+                .setParameter("after", after)
+                .setMaxResults(limit + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > limit;
+        if (hasNext) rows = rows.subList(0, limit);
+
+        resp.setContentType("application/json;charset=UTF-8");
+        try (JsonGenerator gen = Json.createGenerator(resp.getOutputStream())) {
+            gen.writeStartObject();
+            gen.writeStartArray("calculations");
+            for (Calculation c : rows) {
+                gen.writeStartObject();
+                gen.write("id", c.getId());
+                if (c.getName() != null) gen.write("name", c.getName());
+                else gen.writeNull("name");
+                writeNumber(gen, "frequency", c.getFrequency());
+                writeNumber(gen, "re", c.getResultRe());
+                writeNumber(gen, "im", c.getResultIm());
+                writeNumber(gen, "magnitude", c.getMagnitude());
+                writeNumber(gen, "phase", c.getPhase());
+                gen.writeEnd();
+            }
+            gen.writeEnd();
+            if (hasNext) gen.write("next", rows.get(rows.size() - 1).getId());
+            gen.writeEnd();
+        }
+    }
+}
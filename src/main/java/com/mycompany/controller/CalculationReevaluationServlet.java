@@ -0,0 +1,208 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.JobCheckpoint;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.UserTransaction;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Starts, stops and reports the bulk re-evaluation of stored calculations.
+ *
+ * <ul>
+ *   <li>{@code GET /CalculationService/reevaluate} returns the job checkpoint as JSON.</li>
+ *   <li>{@code POST /CalculationService/reevaluate} starts the job in the background
+ *       and returns 202. An unfinished run (stopped, failed or interrupted by a
+ *       restart of the server) is resumed after its last committed page; with
+ *       {@code restart=true}, or after a completed run, the job starts from the
+ *       first calculation. {@code frequency} evaluates all calculations at the given
+ *       frequency and stores the results as new calculations, leaving the existing
+ *       ones unchanged (only for new runs, resumed runs keep their frequency), and
+ *       {@code pageSize} sets the number of calculations per transaction. A run only
+ *       covers the calculations that existed when it started.</li>
+ *   <li>{@code POST ...?action=stop} stops the running job after its current page.</li>
+ * </ul>
+ * Only one run is active at a time; starting a second one returns 409.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+@WebServlet(name = "CalculationReevaluationServlet", urlPatterns = {"/CalculationService/reevaluate"})
+public class CalculationReevaluationServlet extends HttpServlet {
+
+    static final int DEFAULT_PAGE_SIZE = 200;
+    static final int MAX_PAGE_SIZE = 2000;
+
+    @PersistenceContext(unitName = "my_persistence_unit")
+    private EntityManager em;
+
+    @Resource
+    private UserTransaction userTransaction;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final AtomicReference<ReevaluationJob> running = new AtomicReference<>();
+
+    private int parsePageSize(String s) {
+        if (s == null || s.isBlank()) return DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(s.trim())));
+    }
+
+    private Double parseFrequency(String s) {
+        if (s == null || s.isBlank()) return null;
+        double f = Double.parseDouble(s.trim());
+        if (!(f > 0) || Double.isInfinite(f)) throw new NumberFormatException("frequency must be positive");
+        return f;
+    }
+
+    /**
+     * Create or reset the checkpoint for a new run, or mark an unfinished run as running again.
+     */
+    private void prepareCheckpoint(boolean restart, Double frequency) throws Exception {
+        userTransaction.begin();
+        try {
+            JobCheckpoint checkpoint = em.find(JobCheckpoint.class, ReevaluationJob.JOB_NAME);
+            if (checkpoint == null) {
+                checkpoint = new JobCheckpoint(ReevaluationJob.JOB_NAME);
+                em.persist(checkpoint);
+                restart = true;
+            }
+            if (restart || JobCheckpoint.STATUS_DONE.equals(checkpoint.getStatus())) {
+                checkpoint.setLastId(0L);
+                checkpoint.setProcessed(0L);
+                checkpoint.setFailed(0L);
+                checkpoint.setFrequency(frequency);
+                List<Long> newest = em.createNamedQuery(Calculation.IDS_DESCENDING, Long.class)
+                        .setMaxResults(1)
+                        .getResultList();
+                checkpoint.setUpToId(newest.isEmpty() ? 0L : newest.get(0));
+                checkpoint.setStartedAt(LocalDateTime.now());
+            }
+            checkpoint.setStatus(JobCheckpoint.STATUS_RUNNING);
+            checkpoint.setMessage(null);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            userTransaction.commit();
+        } catch (Exception e) {
+            try { userTransaction.rollback(); } catch (Exception ex) { }
+            throw e;
+        }
+    }
+
+    private void writeStatus(HttpServletResponse resp, int status) throws IOException {
+        JobCheckpoint checkpoint = em.find(JobCheckpoint.class, ReevaluationJob.JOB_NAME);
+        resp.setStatus(status);
+        resp.setContentType("application/json;charset=UTF-8");
+        try (JsonGenerator gen = Json.createGenerator(resp.getOutputStream())) {
+            gen.writeStartObject();
+            gen.write("running", running.get() != null);
+            if (checkpoint != null) {
+                gen.write("status", checkpoint.getStatus() == null ? "" : checkpoint.getStatus());
+                gen.write("lastId", checkpoint.getLastId());
+                if (checkpoint.getUpToId() != null) gen.write("upToId", checkpoint.getUpToId());
+                gen.write("processed", checkpoint.getProcessed());
+                gen.write("failed", checkpoint.getFailed());
+                if (checkpoint.getFrequency() != null) gen.write("frequency", checkpoint.getFrequency());
+                if (checkpoint.getMessage() != null) gen.write("message", checkpoint.getMessage());
+                if (checkpoint.getStartedAt() != null) gen.write("startedAt", checkpoint.getStartedAt().toString());
+                if (checkpoint.getUpdatedAt() != null) gen.write("updatedAt", checkpoint.getUpdatedAt().toString());
+            }
+            gen.writeEnd();
+        }
+    }
+
+    /**
+     * Report the state of the re-evaluation job.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response receiving JSON
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        writeStatus(resp, HttpServletResponse.SC_OK);
+    }
+
+    /**
+     * Start (or resume) the re-evaluation job, or stop it with {@code action=stop}.
+     *
+     * @param req HTTP request with optional action, restart, frequency and pageSize
+     * @param resp HTTP response receiving JSON
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        if ("stop".equals(req.getParameter("action"))) {
+            ReevaluationJob job = running.get();
+            if (job != null) job.requestStop();
+            writeStatus(resp, HttpServletResponse.SC_OK);
+            return;
+        }
+
+        int pageSize;
+        Double frequency;
+        try {
+            pageSize = parsePageSize(req.getParameter("pageSize"));
+            frequency = parseFrequency(req.getParameter("frequency"));
+        } catch (NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid number: " + e.getMessage());
+            return;
+        }
+        boolean restart = Boolean.parseBoolean(req.getParameter("restart"));
+
+        CalculationListingCache cache = (CalculationListingCache) getServletContext()
+                .getAttribute(AppContextListener.LISTING_CACHE_ATTRIBUTE);
+        ReevaluationJob job = new ReevaluationJob(em, userTransaction, cache, executor, pageSize);
+        if (!running.compareAndSet(null, job)) {
+            writeStatus(resp, HttpServletResponse.SC_CONFLICT);
+            return;
+        }
+        try {
+            prepareCheckpoint(restart, frequency);
+            executor.submit(() -> {
+                try {
+                    job.run();
+                } finally {
+                    running.compareAndSet(job, null);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.compareAndSet(job, null);
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Job could not be scheduled");
+            return;
+        } catch (Exception e) {
+            running.compareAndSet(job, null);
+            throw new ServletException("Could not start the re-evaluation job", e);
+        }
+        writeStatus(resp, HttpServletResponse.SC_ACCEPTED);
+    }
+
+    /**
+     * Stop a running job when the application is undeployed; it resumes on the next start.
+     */
+    @Override
+    public void destroy() {
+        ReevaluationJob job = running.get();
+        if (job != null) job.requestStop();
+        super.destroy();
+    }
+}
@@ -0,0 +1,165 @@
+package com.mycompany.controller;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.transaction.UserTransaction;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Schedules the retention job for stored calculations and reports its last run.
+ *
+ * The servlet is loaded at startup and, when a {@link RetentionPolicy} limit is
+ * configured, runs the {@link RetentionJob} every {@code intervalMinutes} on the
+ * container's managed scheduled executor.
+ *
+ * <ul>
+ *   <li>{@code GET /CalculationService/retention} returns the policy and the last report as JSON.</li>
+ *   <li>{@code POST /CalculationService/retention} runs the job now in the background (202),
+ *       or returns 409 when a run is in progress.</li>
+ * </ul>
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+@WebServlet(name = "CalculationRetentionServlet", urlPatterns = {"/CalculationService/retention"}, loadOnStartup = 1)
+public class CalculationRetentionServlet extends HttpServlet {
+
+    @PersistenceContext(unitName = "my_persistence_unit")
+    private EntityManager em;
+
+    @Resource
+    private UserTransaction userTransaction;
+
+    @Resource
+    private ManagedScheduledExecutorService scheduler;
+
+    private RetentionPolicy policy;
+    private ScheduledFuture<?> schedule;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<RetentionJob.Report> lastReport = new AtomicReference<>();
+
+    /**
+     * Read the policy and schedule the periodic run.
+     *
+     * @throws ServletException on servlet errors
+     */
+    @Override
+    public void init() throws ServletException {
+        policy = RetentionPolicy.fromContext(getServletContext());
+        if (policy.isEnabled() && policy.intervalMinutes() > 0) {
+            schedule = scheduler.scheduleWithFixedDelay(this::runOnce,
+                    policy.intervalMinutes(), policy.intervalMinutes(), TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Run the job unless a run is already in progress.
+     */
+    private void runOnce() {
+        if (!policy.isEnabled() || !running.compareAndSet(false, true)) return;
+        try {
+            CalculationListingCache cache = (CalculationListingCache) getServletContext()
+                    .getAttribute(AppContextListener.LISTING_CACHE_ATTRIBUTE);
+            lastReport.set(new RetentionJob(em, userTransaction, cache, policy).run());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void writeStatus(HttpServletResponse resp, int status) throws IOException {
+        resp.setStatus(status);
+        resp.setContentType("application/json;charset=UTF-8");
+        try (JsonGenerator gen = Json.createGenerator(resp.getOutputStream())) {
+            gen.writeStartObject();
+            gen.write("enabled", policy.isEnabled());
+            gen.write("running", running.get());
+            gen.writeStartObject("policy");
+            if (policy.maxAge() != null) gen.write("maxAgeDays", policy.maxAge().toDays());
+            if (policy.maxRows() > 0) gen.write("maxRows", policy.maxRows());
+            if (policy.maxPerName() > 0) gen.write("maxPerName", policy.maxPerName());
+            gen.write("batchSize", policy.batchSize());
+            gen.write("pauseMillis", policy.pauseMillis());
+            gen.write("intervalMinutes", policy.intervalMinutes());
+            gen.writeEnd();
+            RetentionJob.Report report = lastReport.get();
+            if (report != null) {
+                gen.writeStartObject("lastRun");
+                gen.write("archived", report.archived());
+                gen.write("circuitsRemoved", report.circuitsRemoved());
+                gen.write("backfilled", report.backfilled());
+                gen.write("batches", report.batches());
+                gen.write("elapsedMillis", report.elapsedMillis());
+                gen.write("finishedAt", report.finishedAt().toString());
+                if (report.error() != null) gen.write("error", report.error());
+                gen.writeEnd();
+            }
+            gen.writeEnd();
+        }
+    }
+
+    /**
+     * Report the retention policy and the last run.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response receiving JSON
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        writeStatus(resp, HttpServletResponse.SC_OK);
+    }
+
+    /**
+     * Start a retention run in the background.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response receiving JSON
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        if (!policy.isEnabled()) {
+            resp.sendError(HttpServletResponse.SC_CONFLICT, "No retention limit is configured");
+            return;
+        }
+        if (running.get()) {
+            writeStatus(resp, HttpServletResponse.SC_CONFLICT);
+            return;
+        }
+        try {
+            scheduler.execute(this::runOnce);
+        } catch (RejectedExecutionException e) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Retention run could not be scheduled");
+            return;
+        }
+        writeStatus(resp, HttpServletResponse.SC_ACCEPTED);
+    }
+
+    /**
+     * Cancel the periodic run; a run in progress is not interrupted.
+     */
+    @Override
+    public void destroy() {
+        if (schedule != null) schedule.cancel(false);
+        super.destroy();
+    }
+}
@@ -1,32 +1,63 @@
 package com.mycompany.controller;
 
 import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
 import com.mycompany.entities.Component;
+import com.mycompany.model.Metrics;
 import jakarta.annotation.Resource;
+import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.Query;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 import jakarta.transaction.UserTransaction;
 
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
-@WebServlet(name = "CalculationServlet", urlPatterns = {"/CalculationService", "/sekret/*"})
+@WebServlet(name = "CalculationServlet", urlPatterns = {"/CalculationService", "/sekret/*"}, asyncSupported = true)
 public class CalculationServlet extends HttpServlet {
 
     private static final String SECRET_TOKEN = "costam";
 
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int VIEWER_ROW_LIMIT = 200;
+
+    private static final String DATABASE_METRIC = "impedance_database_seconds";
+    private static final String DATABASE_HELP = "Time spent in database transactions of the calculation service";
+    private static final Metrics.Timer PAGE_QUERY_TIMER = Metrics.timer(DATABASE_METRIC, DATABASE_HELP, "operation", "page");
+    private static final Metrics.Timer TABLE_QUERY_TIMER = Metrics.timer(DATABASE_METRIC, DATABASE_HELP, "operation", "table");
+    private static final Metrics.Timer PERSIST_TIMER = Metrics.timer(DATABASE_METRIC, DATABASE_HELP,
+            "operation", "persist", "outcome", "committed");
+    private static final Metrics.Timer PERSIST_FAILED_TIMER = Metrics.timer(DATABASE_METRIC, DATABASE_HELP,
+            "operation", "persist", "outcome", "rolled_back");
+    private static final Metrics.Timer EXPORT_TIMER = Metrics.timer(DATABASE_METRIC, DATABASE_HELP, "operation", "export");
+    private static final Metrics.Timer RENDER_TIMER = Metrics.timer("impedance_render_seconds",
+            "Time spent rendering and writing HTML pages", "page", "calculations");
+
     @PersistenceContext(unitName = "my_persistence_unit")
     private EntityManager em;
 
     @Resource
     private UserTransaction userTransaction;
 
+    @Resource(lookup = "java:app/DataBase")
+    private DataSource dataSource;
+
     private String stackTraceToHtml(Throwable t) {
         if (t == null) return "";
         StringWriter sw = new StringWriter();
@@ -42,40 +73,189 @@ public class CalculationServlet extends HttpServlet {
         return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
     }
 
-    String computeResultPlaceholder(Calculation calc) {
-        double sum = 0.0;
-        if (calc.getComponents() != null) {
-            for (Component c : calc.getComponents()) {
-                if (c.getValue() != null) sum += c.getValue();
-            }
+    /**
+     * One keyset page of calculations.
+     *
+     * @param items calculations on this page, ascending by id, with components loaded
+     * @param hasNext whether calculations with higher ids exist
+     */
+    record CalculationPage(List<Calculation> items, boolean hasNext) {
+    }
+
+    private long parseAfter(String s) {
+        if (s == null || s.isBlank()) return 0L;
+        try {
+            return Math.max(0L, Long.parseLong(s.trim()));
+        } catch (NumberFormatException e) {
+            return 0L;
         }
-        return "Sum of component values = " + sum;
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Calculation> findCalculationsTransactional() throws Exception {
+    private int parsePageSize(String s) {
+        if (s == null || s.isBlank()) return DEFAULT_PAGE_SIZE;
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(s.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    private CalculationListingCache listingCache() {
+        return (CalculationListingCache) getServletContext()
+                .getAttribute(AppContextListener.LISTING_CACHE_ATTRIBUTE);
+    }
+
+    /**
+     * Load the page of calculations with ids greater than {@code after}.
+     *
+     * The ids of a page come from the listing cache when present. Otherwise the
+     * first query reads at most {@code size + 1} ids from the primary key index and
+     * the second loads those calculations together with their circuits and components
+     * using an entity graph, so rendering does not trigger one query per calculation.
+     */
+    private CalculationPage findCalculationsTransactional(long after, int size) throws Exception {
+        CalculationListingCache cache = listingCache();
+        CalculationListingCache.Page cached = cache == null ? null : cache.get(after, size);
+        long generation = cache == null ? 0L : cache.getGeneration();
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        long start = PAGE_QUERY_TIMER.start();
+        boolean success = false;
         userTransaction.begin();
         try {
-            Query q = em.createQuery("SELECT c FROM Calculation c");
-            List<Calculation> list = q.getResultList();
+            CalculationPage page = cached == null ? null : loadCachedPage(cached, cache);
+            if (page == null) {
+                List<Long> ids = em.createNamedQuery(Calculation.PAGE_IDS, Long.class)
+                        .setParameter("after", after)
+                        .setMaxResults(size + 1)
+                        .getResultList();
+                boolean hasNext = ids.size() > size;
+                if (hasNext) ids = ids.subList(0, size);
+                List<Calculation> list = ids.isEmpty() ? List.of()
+                        : em.createNamedQuery(Calculation.FETCH_BY_IDS, Calculation.class)
+                                .setParameter("ids", ids)
+                                .setHint("jakarta.persistence.fetchgraph", em.getEntityGraph(Calculation.WITH_COMPONENTS))
+                                .getResultList();
+                if (cache != null) cache.put(after, size, ids, hasNext, generation);
+                page = new CalculationPage(list, hasNext);
+            }
             userTransaction.commit();
-            return list;
+            success = true;
+            return page;
         } catch (Exception e) {
             try { userTransaction.rollback(); } catch (Exception ex) { }
             throw e;
+        } finally {
+            PAGE_QUERY_TIMER.stop(start);
+            event.finish("page", success);
         }
     }
 
+    /**
+     * Resolve a cached page through the second-level cache. Calculations missing from
+     * it are loaded together in one query with the same fetch graph as an uncached page.
+     *
+     * @return the page, or null when one of its calculations no longer exists
+     */
+    private CalculationPage loadCachedPage(CalculationListingCache.Page cached, CalculationListingCache cache) {
+        Cache sharedCache = em.getEntityManagerFactory().getCache();
+        Map<Long, Calculation> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : cached.ids()) {
+            boolean hit = sharedCache.contains(Calculation.class, id);
+            cache.recordEntityLookup(hit);
+            if (hit) {
+                Calculation c = em.find(Calculation.class, id);
+                if (c != null) found.put(id, c);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Calculation c : em.createNamedQuery(Calculation.FETCH_BY_IDS, Calculation.class)
+                    .setParameter("ids", missing)
+                    .setHint("jakarta.persistence.fetchgraph", em.getEntityGraph(Calculation.WITH_COMPONENTS))
+                    .getResultList()) {
+                found.put(c.getId(), c);
+            }
+        }
+        List<Calculation> list = new ArrayList<>(cached.ids().size());
+        for (Long id : cached.ids()) {
+            Calculation c = found.get(id);
+            if (c == null) return null;
+            list.add(c);
+        }
+        return new CalculationPage(list, cached.hasNext());
+    }
+
     @SuppressWarnings("unchecked")
     private List<Object[]> queryTableTransactional(String tableName) throws Exception {
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        long start = TABLE_QUERY_TIMER.start();
+        boolean success = false;
         userTransaction.begin();
         try {
-            List<Object[]> rows = em.createNativeQuery("SELECT * FROM " + tableName).getResultList();
+            List<Object[]> rows = em.createNativeQuery("SELECT * FROM " + tableName)
+                    .setMaxResults(VIEWER_ROW_LIMIT)
+                    .getResultList();
             userTransaction.commit();
+            success = true;
             return rows;
         } catch (Exception e) {
             try { userTransaction.rollback(); } catch (Exception ex) { }
             throw e;
+        } finally {
+            TABLE_QUERY_TIMER.stop(start);
+            event.finish("table", success);
+        }
+    }
+
+    /**
+     * Return the path segment after the secret token, e.g. "export" for /sekret/token/export.
+     */
+    private String getSubPath(HttpServletRequest request) {
+        String pi = request.getPathInfo();
+        if (pi == null) return null;
+        int slash = pi.indexOf('/', 1);
+        return slash < 0 ? null : pi.substring(slash + 1);
+    }
+
+    /**
+     * Stream a whole table as CSV or NDJSON with constant memory use.
+     */
+    private void exportTable(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String table;
+        TableExporter.Format format;
+        try {
+            table = TableExporter.checkTable(request.getParameter("table"));
+            format = TableExporter.Format.parse(request.getParameter("format"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        response.setContentType(format.getContentType() + ";charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + table.toLowerCase(Locale.ROOT)
+                + (format == TableExporter.Format.CSV ? ".csv" : ".ndjson") + "\"");
+        Writer out = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), 16 * 1024);
+        TransactionEvent event = new TransactionEvent();
+        event.begin();
+        long start = EXPORT_TIMER.start();
+        boolean success = false;
+        try {
+            new TableExporter(dataSource).export(table, format, out);
+            out.close();
+            success = true;
+        } catch (SQLException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+                return;
+            }
+            throw new IOException("Export of " + table + " failed", e);
+        } finally {
+            EXPORT_TIMER.stop(start);
+            event.finish("export", success);
         }
     }
 
@@ -101,17 +281,21 @@ public class CalculationServlet extends HttpServlet {
                 return;
             }
 
-            List<Object[]> calcRows = null;
-            List<Object[]> compRows = null;
-            try {
-                calcRows = queryTableTransactional("CALCULATION");
-            } catch (Throwable t) {
-                errorHtml = stackTraceToHtml(t);
+            if ("export".equals(getSubPath(request))) {
+                exportTable(request, response);
+                return;
             }
-            try {
-                compRows = queryTableTransactional("COMPONENT");
-            } catch (Throwable t) {
-                errorHtml = (errorHtml == null) ? stackTraceToHtml(t) : errorHtml + stackTraceToHtml(t);
+
+            List<String> tables = List.of("CALCULATION", "COMPONENT", "CIRCUIT");
+            List<List<Object[]>> tableRows = new ArrayList<>();
+            for (String table : tables) {
+                List<Object[]> rows = null;
+                try {
+                    rows = queryTableTransactional(table);
+                } catch (Throwable t) {
+                    errorHtml = (errorHtml == null) ? stackTraceToHtml(t) : errorHtml + stackTraceToHtml(t);
+                }
+                tableRows.add(rows);
             }
 
             response.setContentType("text/html;charset=UTF-8");
@@ -126,36 +310,29 @@ public class CalculationServlet extends HttpServlet {
                     out.println(errorHtml);
                 }
 
-                out.println("<h3>Table: CALCULATION</h3>");
-                if (calcRows == null || calcRows.isEmpty()) {
-                    out.println("<p>No rows or table missing.</p>");
-                } else {
-                    out.println("<table><thead><tr>");
-                    int cols = calcRows.get(0).length;
-                    for (int i = 0; i < cols; i++) out.println("<th>col" + i + "</th>");
-                    out.println("</tr></thead><tbody>");
-                    for (Object[] row : calcRows) {
-                        out.println("<tr>");
-                        for (Object v : row) out.println("<td>" + (v == null ? "" : escapeHtml(v.toString())) + "</td>");
-                        out.println("</tr>");
+                for (int t = 0; t < tables.size(); t++) {
+                    String table = tables.get(t);
+                    List<Object[]> rows = tableRows.get(t);
+                    out.println("<h3>Table: " + table + "</h3>");
+                    out.println("<p>Export: <a href='" + SECRET_TOKEN + "/export?table=" + table + "&amp;format=csv'>CSV</a> | "
+                            + "<a href='" + SECRET_TOKEN + "/export?table=" + table + "&amp;format=ndjson'>NDJSON</a></p>");
+                    if (rows == null || rows.isEmpty()) {
+                        out.println("<p>No rows or table missing.</p>");
+                        continue;
                     }
-                    out.println("</tbody></table>");
-                }
-
-                out.println("<h3>Table: COMPONENT</h3>");
-                if (compRows == null || compRows.isEmpty()) {
-                    out.println("<p>No rows or table missing.</p>");
-                } else {
                     out.println("<table><thead><tr>");
-                    int cols = compRows.get(0).length;
+                    int cols = rows.get(0).length;
                     for (int i = 0; i < cols; i++) out.println("<th>col" + i + "</th>");
                     out.println("</tr></thead><tbody>");
-                    for (Object[] row : compRows) {
+                    for (Object[] row : rows) {
                         out.println("<tr>");
                         for (Object v : row) out.println("<td>" + (v == null ? "" : escapeHtml(v.toString())) + "</td>");
                         out.println("</tr>");
                     }
                     out.println("</tbody></table>");
+                    if (rows.size() >= VIEWER_ROW_LIMIT) {
+                        out.println("<p><em>Showing the first " + VIEWER_ROW_LIMIT + " rows; use the export for the full table.</em></p>");
+                    }
                 }
 
                 out.println("</body></html>");
@@ -178,6 +355,7 @@ public class CalculationServlet extends HttpServlet {
                 calc.setFrequency(null);
             }
 
+            Circuit circuit = new Circuit();
             if (compTypes != null && compValues != null) {
                 int n = Math.min(compTypes.length, compValues.length);
                 for (int i = 0; i < n; i++) {
@@ -193,31 +371,55 @@ public class CalculationServlet extends HttpServlet {
                         Component c = new Component();
                         c.setType(t);
                         c.setValue(v);
-                        calc.addComponent(c);
+                        circuit.addComponent(c);
                     }
                 }
             }
-
-            calc.setResult(computeResultPlaceholder(calc));
-
-            try {
-                userTransaction.begin();
-                em.persist(calc);
-                userTransaction.commit();
-            } catch (Throwable t) {
-                try { userTransaction.rollback(); } catch (Exception ex) { }
-                errorHtml = stackTraceToHtml(t);
+            calc.setCircuit(circuit);
+
+            StoredCircuits.evaluate(calc);
+
+            // a second attempt covers a concurrent request storing the same circuit first
+            for (int attempt = 1; attempt <= 2; attempt++) {
+                TransactionEvent event = new TransactionEvent();
+                event.begin();
+                long start = PERSIST_TIMER.start();
+                boolean committed = false;
+                try {
+                    userTransaction.begin();
+                    calc.setCircuit(StoredCircuits.resolve(em, circuit, null));
+                    em.persist(calc);
+                    userTransaction.commit();
+                    committed = true;
+                } catch (Throwable t) {
+                    try { userTransaction.rollback(); } catch (Exception ex) { }
+                    if (attempt == 2) errorHtml = stackTraceToHtml(t);
+                } finally {
+                    (committed ? PERSIST_TIMER : PERSIST_FAILED_TIMER).stop(start);
+                    event.finish("persist", committed);
+                }
+                if (committed) {
+                    CalculationListingCache cache = listingCache();
+                    if (cache != null && calc.getId() != null) cache.invalidate(calc.getId());
+                    response.sendRedirect(request.getContextPath() + "/CalculationService");
+                    return;
+                }
             }
         }
 
-        List<Calculation> list = null;
+        long after = parseAfter(request.getParameter("after"));
+        int size = parsePageSize(request.getParameter("size"));
+        CalculationPage page = null;
         try {
-            list = findCalculationsTransactional();
+            page = findCalculationsTransactional(after, size);
         } catch (Throwable t) {
             errorHtml = (errorHtml == null) ? stackTraceToHtml(t) : errorHtml + stackTraceToHtml(t);
         }
 
         response.setContentType("text/html;charset=UTF-8");
+        RenderEvent renderEvent = new RenderEvent();
+        renderEvent.begin();
+        long renderStart = RENDER_TIMER.start();
         try (PrintWriter out = response.getWriter()) {
             out.println("<!DOCTYPE html><html><head><title>Calculation Service</title></head><body>");
             out.println("<h2>Create Calculation</h2>");
@@ -238,7 +440,8 @@ public class CalculationServlet extends HttpServlet {
             out.println("<p><a href='sekret/" + SECRET_TOKEN + "'>Prywatny DB Viewer</a></p>");
 
             out.println("<h2>Existing Calculations</h2>");
-            if (list == null || list.isEmpty()) {
+            List<Calculation> list = page == null ? List.of() : page.items();
+            if (list.isEmpty()) {
                 out.println("<p>No calculations found.</p>");
             } else {
                 int calcIndex = 1;
@@ -248,6 +451,9 @@ public class CalculationServlet extends HttpServlet {
                     out.println("DB id: " + (c.getId() == null ? "<em>n/a</em>" : escapeHtml(c.getId().toString())) + "<br/>");
                     out.println("Frequency: " + (c.getFrequency() == null ? "<em>n/a</em>" : c.getFrequency()) + " Hz<br/>");
                     out.println("Result: " + escapeHtml(c.getResult()) + "<br/>");
+                    if (c.getCircuit() != null) {
+                        out.println("Circuit: <code>" + escapeHtml(c.getCircuit().getHash().substring(0, 12)) + "</code><br/>");
+                    }
                     out.println("Components:<ul>");
                     if (c.getComponents() != null && !c.getComponents().isEmpty()) {
                         int compIndex = 1;
@@ -265,19 +471,40 @@ public class CalculationServlet extends HttpServlet {
                 }
             }
 
+            if (after > 0) {
+                out.println("<a href='CalculationService?size=" + size + "'>First page</a> ");
+            }
+            if (page != null && page.hasNext()) {
+                Long lastId = list.get(list.size() - 1).getId();
+                out.println("<a href='CalculationService?after=" + lastId + "&amp;size=" + size + "'>Next page</a>");
+            }
+
+            CalculationListingCache cache = listingCache();
+            if (cache != null) {
+                out.println("<p style='font-size:small;color:gray;'>Listing cache: " + cache.getHits() + " hits, "
+                        + cache.getMisses() + " misses, " + cache.getInvalidations() + " invalidated pages; "
+                        + "entity cache: " + cache.getEntityHits() + " hits, " + cache.getEntityMisses() + " misses</p>");
+            }
+
             out.println("</body></html>");
+        } finally {
+            RENDER_TIMER.stop(renderStart);
+            if (renderEvent.shouldCommit()) {
+                renderEvent.page = "calculations";
+                renderEvent.commit();
+            }
         }
     }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        processRequest(request, response);
+        AsyncDispatch.dispatchBlocking(request, response, this::processRequest);
     }
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        processRequest(request, response);
+        AsyncDispatch.dispatchBlocking(request, response, this::processRequest);
     }
 }
\ No newline at end of file
@@ -3,8 +3,12 @@ package com.mycompany.controller;
 import com.mycompany.model.ImpedanceModel;
 import com.mycompany.model.CircuitElement;
 import com.mycompany.model.Complex;
+import com.mycompany.model.ExpressionLimitException;
+import com.mycompany.model.ExpressionLimits;
 import com.mycompany.model.ExpressionParser;
 import com.mycompany.model.InvalidCircuitException;
+import com.mycompany.model.NumberFormatter;
+import com.mycompany.model.Metrics;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -13,7 +17,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -29,12 +32,98 @@ import jakarta.servlet.http.Cookie;
  * Cookies are used similarly as in other component servlets; additionally the
  * entire expression is stored in lastValue (encoded).
  *
+ * Expressions are checked against the "circuit" {@link ExpressionLimits} before they
+ * are parsed; one that exceeds them is answered with 400 and an error page.
+ *
+ * The ETag of a result page requested by GET is computed on the request executor,
+ * from the circuit parsed for the calculation; a matching {@code If-None-Match} is
+ * answered with 304 before the circuit is evaluated. Nothing is parsed on the
+ * container thread.
+ *
  * @author Kamil Fulneczek
- * @version 1.2
+ * @version 1.6
  */
-@WebServlet(name = "CircuitServlet", urlPatterns = {"/circuit"})
+@WebServlet(name = "CircuitServlet", urlPatterns = {"/circuit"}, asyncSupported = true)
 public class CircuitServlet extends HttpServlet {
 
+    private static final String PAGE = "circuit";
+    private static final Metrics.Timer RENDER_TIMER = Metrics.timer("impedance_render_seconds",
+            "Time spent rendering and writing HTML pages", "page", PAGE);
+
+    private static final HtmlTemplate FORM_HEAD = HtmlTemplate.compile("""
+            <! DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Circuit Expression Calculator</title>
+            </head>
+            <body>
+                <h1>Circuit Expression Calculator</h1>
+                <p>Enter a circuit expression using the following format:</p>
+                <ul>
+                    <li>Single component: "R: 100", "C:1e-6", "L:0.01"</li>
+                    <li>Series connection: series(component1, component2, ...)</li>
+                    <li>Parallel connection: parallel(component1, component2, ...)</li>
+                </ul>
+                <p>Example: series(R:100, parallel(C:1e-6, L: 0.01), R:50)</p>
+            """);
+
+    private static final HtmlTemplate LAST_USED = HtmlTemplate.compile("""
+                <p style="font-size:small;color:gray;">{{info}}</p>
+            """);
+
+    private static final HtmlTemplate FORM = HtmlTemplate.compile("""
+                <form action="{{ctx}}/circuit" method="post">
+                    <label for="expression">Circuit Expression:</label><br>
+                    <input type="text" name="expression" id="expression" size="60" required><br><br>
+                    <label for="frequency">Frequency (Hz):</label>
+                    <input type="text" name="frequency" id="frequency" required><br><br>
+                    <button type="submit">Calculate</button>
+                </form>
+                <br><a href="{{ctx}}/">Back to Home</a>
+            </body>
+            </html>
+            """);
+
+    private static final HtmlTemplate RESULT_HEAD = HtmlTemplate.compile("""
+            <! DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Circuit Impedance Result</title>
+            </head>
+            <body>
+            """);
+
+    private static final HtmlTemplate RESULT = HtmlTemplate.compile("""
+                <h1>Circuit Impedance Result</h1>
+                <p>Expression: {{expression}}</p>
+                <p>Parsed circuit:  {{description}}</p>
+                <p>Frequency: {{frequency}} Hz</p>
+                <p>Impedance:  {{impedance}}</p>
+                <p>Magnitude:  {{magnitude}} Ω</p>
+            """);
+
+    private static final HtmlTemplate ERROR = HtmlTemplate.compile("""
+                <h1>Error</h1>
+                <p style="color: red;">{{message}}</p>
+            """);
+
+    private static final HtmlTemplate FOOTER = HtmlTemplate.compile("""
+                <br><a href="{{ctx}}/circuit">Calculate Another</a>
+                <br><a href="{{ctx}}/history">View History</a>
+                <br><a href="{{ctx}}/">Back to Home</a>
+            </body>
+            </html>
+            """);
+
+    private ExpressionLimits limits = ExpressionLimits.INTERACTIVE;
+
+    @Override
+    public void init() throws ServletException {
+        limits = ExpressionLimits.resolve("circuit", ExpressionLimits.INTERACTIVE, getServletContext()::getInitParameter);
+    }
+
     /**
      * Return application context path.
      *
@@ -81,8 +170,6 @@ public class CircuitServlet extends HttpServlet {
      * @throws IOException if writing response fails
      */
     private void displayForm(HttpServletRequest req, HttpServletResponse resp, String ctx) throws IOException {
-        PrintWriter out = resp.getWriter();
-
         String lastFreq = null;
         String lastComp = null;
         String lastVal = null;
@@ -105,56 +192,35 @@ public class CircuitServlet extends HttpServlet {
             }
         }
 
-        out.println("<! DOCTYPE html>");
-        out.println("<html lang=\"en\">");
-        out.println("<head>");
-        out.println("    <meta charset=\"UTF-8\">");
-        out.println("    <title>Circuit Expression Calculator</title>");
-        out.println("</head>");
-        out.println("<body>");
-        out.println("    <h1>Circuit Expression Calculator</h1>");
-        out.println("    <p>Enter a circuit expression using the following format:</p>");
-        out.println("    <ul>");
-        out.println("        <li>Single component: \"R: 100\", \"C:1e-6\", \"L:0.01\"</li>");
-        out.println("        <li>Series connection: series(component1, component2, ...)</li>");
-        out.println("        <li>Parallel connection: parallel(component1, component2, ...)</li>");
-        out.println("    </ul>");
-        out.println("    <p>Example: series(R:100, parallel(C:1e-6, L: 0.01), R:50)</p>");
-
-        if (lastComp != null || lastVal != null || lastFreq != null) {
-            StringBuilder info = new StringBuilder("Last used:");
-            boolean added = false;
-            if (lastComp != null) {
-                info.append(" ").append(lastComp);
-                if (lastVal != null) {
-                    info.append(": ").append(lastVal);
+        try (PageBuffer page = PageBuffer.acquire(RENDER_TIMER, PAGE)) {
+            FORM_HEAD.render(page);
+            if (lastComp != null || lastVal != null || lastFreq != null) {
+                StringBuilder info = new StringBuilder("Last used:");
+                boolean added = false;
+                if (lastComp != null) {
+                    info.append(" ").append(lastComp);
+                    if (lastVal != null) {
+                        info.append(": ").append(lastVal);
+                    }
+                    added = true;
+                } else if (lastVal != null) {
+                    info.append(" ").append(lastVal);
+                    added = true;
                 }
-                added = true;
-            } else if (lastVal != null) {
-                info.append(" ").append(lastVal);
-                added = true;
-            }
-            if (lastFreq != null) {
-                if (added) info.append(" |");
-                info.append(" frequency: ").append(lastFreq).append(" Hz");
+                if (lastFreq != null) {
+                    if (added) info.append(" |");
+                    info.append(" frequency: ").append(lastFreq).append(" Hz");
+                }
+                LAST_USED.render(page, info);
             }
-            out.println("    <p style=\"font-size:small;color:gray;\">" + info.toString() + "</p>");
+            FORM.render(page, ctx);
+            page.writeTo(resp);
         }
-
-        out.println("    <form action=\"" + ctx + "/circuit\" method=\"post\">");
-        out.println("        <label for=\"expression\">Circuit Expression:</label><br>");
-        out.println("        <input type=\"text\" name=\"expression\" id=\"expression\" size=\"60\" required><br><br>");
-        out.println("        <label for=\"frequency\">Frequency (Hz):</label>");
-        out.println("        <input type=\"text\" name=\"frequency\" id=\"frequency\" required><br><br>");
-        out.println("        <button type=\"submit\">Calculate</button>");
-        out.println("    </form>");
-        out.println("    <br><a href=\"" + ctx + "/\">Back to Home</a>");
-        out.println("</body>");
-        out.println("</html>");
     }
 
     /**
-     * Parse expression, compute impedance and set cookies with used parameters.
+     * Parse expression, answer a conditional GET whose ETag matches with 304,
+     * otherwise compute impedance and set cookies with used parameters.
      *
      * @param req HTTP request
      * @param resp HTTP response
@@ -174,71 +240,63 @@ public class CircuitServlet extends HttpServlet {
             throw new ServletException("ImpedanceModel not found in ServletContext");
         }
 
-        PrintWriter out = resp.getWriter();
-
-        out.println("<! DOCTYPE html>");
-        out.println("<html lang=\"en\">");
-        out.println("<head>");
-        out.println("    <meta charset=\"UTF-8\">");
-        out.println("    <title>Circuit Impedance Result</title>");
-        out.println("</head>");
-        out.println("<body>");
-
-        try {
-            double frequency = Double.parseDouble(frequencyStr);
-            CircuitElement element = ExpressionParser.parse(expression);
-            Complex impedance = model.calculateImpedance(element, frequency);
-
-            out.println("    <h1>Circuit Impedance Result</h1>");
-            out.println("    <p>Expression: " + expression + "</p>");
-            out.println("    <p>Parsed circuit:  " + element.description() + "</p>");
-            out.println("    <p>Frequency: " + frequency + " Hz</p>");
-            out.println("    <p>Impedance:  " + impedance.toString() + "</p>");
-            out.println("    <p>Magnitude:  " + String.format("%.6g", impedance.magnitude()) + " Ω</p>");
-
-            Cookie lastFreq = new Cookie("lastFrequency", URLEncoder.encode(String.valueOf(frequency), StandardCharsets.UTF_8));
-            lastFreq.setMaxAge(60 * 60 * 24 * 30);
-            String path = req.getContextPath();
-            lastFreq.setPath(path == null || path.isEmpty() ? "/" : path);
-            resp.addCookie(lastFreq);
-
-            Cookie lastComp = new Cookie("lastComponent", URLEncoder.encode("EXPR", StandardCharsets.UTF_8));
-            lastComp.setMaxAge(60 * 60 * 24 * 30);
-            lastComp.setPath(path == null || path.isEmpty() ? "/" : path);
-            resp.addCookie(lastComp);
-
-            Cookie lastVal = new Cookie("lastValue", URLEncoder.encode(expression, StandardCharsets.UTF_8));
-            lastVal.setMaxAge(60 * 60 * 24 * 30);
-            lastVal.setPath(path == null || path.isEmpty() ? "/" : path);
-            resp.addCookie(lastVal);
-
-        } catch (NumberFormatException e) {
-            out.println("    <h1>Error</h1>");
-            out.println("    <p style=\"color: red;\">Invalid frequency format: " + e.getMessage() + "</p>");
-        } catch (IllegalArgumentException e) {
-            out.println("    <h1>Error</h1>");
-            out.println("    <p style=\"color: red;\">Invalid expression:  " + e.getMessage() + "</p>");
-        } catch (InvalidCircuitException e) {
-            out.println("    <h1>Error</h1>");
-            out.println("    <p style=\"color: red;\">Calculation error: " + e.getMessage() + "</p>");
-        }
+        try (PageBuffer page = PageBuffer.acquire(RENDER_TIMER, PAGE)) {
+            RESULT_HEAD.render(page);
+            try {
+                double frequency = Double.parseDouble(frequencyStr);
+                CircuitElement element = ExpressionParser.parse(expression, limits);
+                if ("GET".equals(req.getMethod()) && ConditionalGet.isNotModified(req, resp,
+                        ConditionalGet.etag("circuit", element, frequency, expression))) {
+                    return;
+                }
+                Complex impedance = model.calculateImpedance(element, frequency);
+                page.beginRender();
+
+                RESULT.render(page, expression, element, frequency, impedance,
+                        NumberFormatter.format(impedance.magnitude()));
 
-        out.println("    <br><a href=\"" + ctx + "/circuit\">Calculate Another</a>");
-        out.println("    <br><a href=\"" + ctx + "/history\">View History</a>");
-        out.println("    <br><a href=\"" + ctx + "/\">Back to Home</a>");
-        out.println("</body>");
-        out.println("</html>");
+                if (ConditionalGet.mayStoreCookies(req)) {
+                    Cookie lastFreq = new Cookie("lastFrequency", URLEncoder.encode(String.valueOf(frequency), StandardCharsets.UTF_8));
+                    lastFreq.setMaxAge(60 * 60 * 24 * 30);
+                    String path = req.getContextPath();
+                    lastFreq.setPath(path == null || path.isEmpty() ? "/" : path);
+                    resp.addCookie(lastFreq);
+
+                    Cookie lastComp = new Cookie("lastComponent", URLEncoder.encode("EXPR", StandardCharsets.UTF_8));
+                    lastComp.setMaxAge(60 * 60 * 24 * 30);
+                    lastComp.setPath(path == null || path.isEmpty() ? "/" : path);
+                    resp.addCookie(lastComp);
+
+                    Cookie lastVal = new Cookie("lastValue", URLEncoder.encode(expression, StandardCharsets.UTF_8));
+                    lastVal.setMaxAge(60 * 60 * 24 * 30);
+                    lastVal.setPath(path == null || path.isEmpty() ? "/" : path);
+                    resp.addCookie(lastVal);
+                }
+
+            } catch (NumberFormatException e) {
+                ERROR.render(page, "Invalid frequency format: " + e.getMessage());
+            } catch (ExpressionLimitException e) {
+                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                ERROR.render(page, "Expression too complex: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                ERROR.render(page, "Invalid expression:  " + e.getMessage());
+            } catch (InvalidCircuitException e) {
+                ERROR.render(page, "Calculation error: " + e.getMessage());
+            }
+            FOOTER.render(page, ctx);
+            page.writeTo(resp);
+        }
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        processRequest(req, resp);
+        AsyncDispatch.dispatch(req, resp, this::processRequest);
     }
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        processRequest(req, resp);
+        AsyncDispatch.dispatch(req, resp, this::processRequest);
     }
 }
\ No newline at end of file
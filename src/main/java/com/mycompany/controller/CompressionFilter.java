@@ -0,0 +1,382 @@
+package com.mycompany.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.annotation.WebInitParam;
+import jakarta.servlet.http.HttpFilter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses text responses with gzip or deflate when the client accepts it.
+ *
+ * The encoding is negotiated from {@code Accept-Encoding} (gzip preferred, q-values
+ * honoured). The first {@code threshold} bytes of a response are held back; only
+ * when a response grows beyond them is compression switched on, so small pages are
+ * sent unchanged with their exact length. From then on the data is compressed as it
+ * is written, with a fixed-size deflater buffer, so large exports and sweeps are
+ * never held in memory as a whole. Only text, JSON, NDJSON, CSV and XML content is
+ * compressed, and never a response that already has a {@code Content-Encoding}.
+ *
+ * Responses written with non-blocking I/O ({@link ServletOutputStream#setWriteListener})
+ * bypass compression. The compressed stream is finished when the output is closed,
+ * when the filter chain returns for synchronous requests, or when an asynchronous
+ * request completes.
+ *
+ * Init parameters: {@code threshold} (bytes, default {@value #DEFAULT_THRESHOLD}) and
+ * {@code level} (1-9, default {@value #DEFAULT_LEVEL}).
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@WebFilter(filterName = "CompressionFilter", urlPatterns = {"/*"}, asyncSupported = true,
+        initParams = {
+                @WebInitParam(name = "threshold", value = "8192"),
+                @WebInitParam(name = "level", value = "6")
+        })
+public class CompressionFilter extends HttpFilter {
+
+    static final int DEFAULT_THRESHOLD = 8192;
+    static final int DEFAULT_LEVEL = 6;
+    static final int DEFLATER_BUFFER_SIZE = 8192;
+
+    private int threshold = DEFAULT_THRESHOLD;
+    private int level = DEFAULT_LEVEL;
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        super.init(config);
+        threshold = Math.max(0, parseInt(config.getInitParameter("threshold"), DEFAULT_THRESHOLD));
+        level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION,
+                parseInt(config.getInitParameter("level"), DEFAULT_LEVEL)));
+    }
+
+    private static int parseInt(String s, int fallback) {
+        if (s == null || s.isBlank()) return fallback;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+            throws IOException, ServletException {
+        String encoding = negotiate(req.getHeader("Accept-Encoding"));
+        resp.addHeader("Vary", "Accept-Encoding");
+        if (encoding == null || "HEAD".equals(req.getMethod())) {
+            chain.doFilter(req, resp);
+            return;
+        }
+        CompressionResponse wrapped = new CompressionResponse(resp, encoding, threshold, level);
+        try {
+            chain.doFilter(req, wrapped);
+        } finally {
+            if (req.isAsyncStarted()) {
+                req.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        wrapped.finish();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                wrapped.finish();
+            }
+        }
+    }
+
+    /**
+     * Choose the response encoding from an Accept-Encoding header.
+     *
+     * @param acceptEncoding header value, may be null
+     * @return "gzip", "deflate" or null for no compression
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return null;
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String t = tokens[i].trim();
+                if (t.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(t.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) gzip = Math.max(gzip, q);
+            else if (coding.equals("deflate")) deflate = Math.max(deflate, q);
+            else if (coding.equals("*")) any = q;
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip > 0 && gzip >= deflate) return "gzip";
+        if (deflate > 0) return "deflate";
+        return null;
+    }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) return false;
+        String t = contentType.toLowerCase(Locale.ROOT);
+        return t.startsWith("text/") || t.startsWith("application/json") || t.startsWith("application/x-ndjson")
+                || t.startsWith("application/xml") || t.startsWith("application/javascript") || t.contains("+json")
+                || t.contains("+xml");
+    }
+
+    /**
+     * Response wrapper routing the body through a {@link CompressingStream}.
+     */
+    private static final class CompressionResponse extends HttpServletResponseWrapper {
+        private final CompressingStream stream;
+        private PrintWriter writer;
+        private boolean streamUsed;
+
+        CompressionResponse(HttpServletResponse response, String encoding, int threshold, int level) {
+            super(response);
+            this.stream = new CompressingStream(response, encoding, threshold, level);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) throw new IllegalStateException("getWriter() has already been called");
+            streamUsed = true;
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (streamUsed) throw new IllegalStateException("getOutputStream() has already been called");
+                try {
+                    writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+                } catch (UnsupportedEncodingException e) {
+                    throw new IOException(e);
+                }
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            stream.declaredLength = len;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) writer.flush();
+            stream.flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            stream.resetBuffer();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            stream.resetBuffer();
+            super.reset();
+        }
+
+        void finish() throws IOException {
+            if (writer != null) writer.flush();
+            if (writer != null || streamUsed) stream.close();
+        }
+    }
+
+    /**
+     * Output stream that buffers up to the threshold, then either compresses or
+     * passes the data through unchanged.
+     */
+    private static final class CompressingStream extends ServletOutputStream {
+        private static final int BUFFERING = 0;
+        private static final int COMPRESSING = 1;
+        private static final int PASSTHROUGH = 2;
+        private static final int CLOSED = 3;
+
+        private final HttpServletResponse response;
+        private final String encoding;
+        private final int level;
+        private final byte[] buffer;
+        private int count;
+        private int state = BUFFERING;
+        private long declaredLength = -1;
+        private ServletOutputStream target;
+        private DeflaterOutputStream compressor;
+        private Deflater deflater;
+
+        CompressingStream(HttpServletResponse response, String encoding, int threshold, int level) {
+            this.response = response;
+            this.encoding = encoding;
+            this.level = level;
+            this.buffer = new byte[threshold];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            switch (state) {
+                case BUFFERING:
+                    if (count + len <= buffer.length) {
+                        System.arraycopy(b, off, buffer, count, len);
+                        count += len;
+                        return;
+                    }
+                    start();
+                    write(b, off, len);
+                    return;
+                case COMPRESSING:
+                    compressor.write(b, off, len);
+                    return;
+                case PASSTHROUGH:
+                    target.write(b, off, len);
+                    return;
+                default:
+                    throw new IOException("Stream closed");
+            }
+        }
+
+        /**
+         * Decide how to send the response once the threshold is exceeded and write
+         * out the buffered bytes.
+         */
+        private void start() throws IOException {
+            target = response.getOutputStream();
+            boolean compress = !response.isCommitted()
+                    && response.getHeader("Content-Encoding") == null
+                    && (declaredLength < 0 || declaredLength > buffer.length)
+                    && isCompressible(response.getContentType());
+            if (compress) {
+                response.setHeader("Content-Encoding", encoding);
+                response.setHeader("Content-Length", null);
+                response.setHeader("ETag", weaken(response.getHeader("ETag")));
+                if ("gzip".equals(encoding)) {
+                    compressor = new GZIPOutputStream(target, DEFLATER_BUFFER_SIZE, true) {
+                        {
+                            def.setLevel(level);
+                        }
+                    };
+                } else {
+                    deflater = new Deflater(level);
+                    compressor = new DeflaterOutputStream(target, deflater, DEFLATER_BUFFER_SIZE, true);
+                }
+                state = COMPRESSING;
+                if (count > 0) compressor.write(buffer, 0, count);
+            } else {
+                if (declaredLength >= 0) response.setContentLengthLong(declaredLength);
+                state = PASSTHROUGH;
+                if (count > 0) target.write(buffer, 0, count);
+            }
+            count = 0;
+        }
+
+        /**
+         * A compressed representation must not share a strong validator with the
+         * uncompressed one.
+         */
+        private static String weaken(String etag) {
+            if (etag == null || etag.startsWith("W/")) return etag;
+            return "W/" + etag;
+        }
+
+        void resetBuffer() {
+            if (state == BUFFERING) count = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (state == COMPRESSING) compressor.flush();
+            else if (state == PASSTHROUGH) target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            switch (state) {
+                case BUFFERING:
+                    target = response.getOutputStream();
+                    state = PASSTHROUGH;
+                    if (!response.isCommitted()) response.setContentLength(count);
+                    if (count > 0) target.write(buffer, 0, count);
+                    target.close();
+                    break;
+                case COMPRESSING:
+                    try {
+                        compressor.close();
+                    } finally {
+                        if (deflater != null) deflater.end();
+                    }
+                    break;
+                case PASSTHROUGH:
+                    target.close();
+                    break;
+                default:
+                    return;
+            }
+            state = CLOSED;
+        }
+
+        @Override
+        public boolean isReady() {
+            return state != PASSTHROUGH || target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            if (state == BUFFERING && count == 0) {
+                try {
+                    target = response.getOutputStream();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                state = PASSTHROUGH;
+            }
+            if (state != PASSTHROUGH) throw new IllegalStateException("Non-blocking I/O on a compressed response");
+            target.setWriteListener(listener);
+        }
+    }
+}
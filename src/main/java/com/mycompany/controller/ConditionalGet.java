@@ -0,0 +1,99 @@
+package com.mycompany.controller;
+
+import com.mycompany.model.CircuitElement;
+import com.mycompany.model.CircuitHash;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Validators and conditional GET handling for calculation result pages.
+ *
+ * A result page is a pure function of the circuit and the frequency (and, for
+ * {@link CircuitServlet}, the expression text echoed on the page), so a strong
+ * ETag can be computed from the canonical circuit hash and the frequency without
+ * evaluating the circuit. {@link #isNotModified} sets the validator and the
+ * {@code Cache-Control} header and answers {@code If-None-Match} with 304.
+ *
+ * Cacheable GET responses do not set the "last used" cookies: a response that
+ * sets cookies must not be stored by shared caches. Form submissions use POST,
+ * which is neither cached nor validated and still stores the cookies. The echoed
+ * request parameters are HTML-escaped by {@link HtmlTemplate}, so a shared cache
+ * never stores markup taken from a request.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+final class ConditionalGet {
+
+    /**
+     * Cache-Control value for result pages; results never change for the same input.
+     */
+    static final String CACHE_CONTROL = "public, max-age=86400";
+
+    /**
+     * Changes whenever the markup of the result pages changes, so that pages
+     * cached before a deployment are not reused after it.
+     */
+    static final String PAGE_VERSION = "2";
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Compute a strong ETag for a result page.
+     *
+     * @param page page kind, e.g. "resistor"
+     * @param element calculated circuit
+     * @param frequency frequency in Hertz
+     * @param text additional text shown on the page, or null
+     * @return quoted ETag value
+     * @throws IllegalArgumentException when the circuit cannot be hashed
+     */
+    static String etag(String page, CircuitElement element, double frequency, String text) {
+        StringBuilder sb = new StringBuilder(96).append('"').append(page).append('-').append(PAGE_VERSION).append('-');
+        sb.append(CircuitHash.of(element), 0, 32).append('-');
+        sb.append(Long.toHexString(Double.doubleToLongBits(frequency)));
+        if (text != null) sb.append('-').append(CircuitHash.sha256Hex(text), 0, 16);
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Set the validators of a cacheable response and check {@code If-None-Match}.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response
+     * @param etag ETag of the current representation
+     * @return true when a 304 response has been sent and nothing else must be written
+     */
+    static boolean isNotModified(HttpServletRequest req, HttpServletResponse resp, String etag) {
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", CACHE_CONTROL);
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch == null || !matches(ifNoneMatch, etag)) return false;
+        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+    }
+
+    /**
+     * Compare an If-None-Match header with an ETag using weak comparison (RFC 9110, 13.1.2).
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param req HTTP request
+     * @return true when the response may set cookies, i.e. it answers a form submission
+     */
+    static boolean mayStoreCookies(HttpServletRequest req) {
+        return "POST".equals(req.getMethod());
+    }
+}
@@ -1,8 +1,10 @@
 package com.mycompany.controller;
 
 import com.mycompany.model.ImpedanceModel;
-import com.mycompany.model.CircuitElement;
 import com.mycompany.model.Complex;
+import com.mycompany.model.HistoryPage;
+import com.mycompany.model.NumberFormatter;
+import com.mycompany.model.Metrics;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -11,25 +13,97 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.List;
 
 /**
  * Servlet providing access to the calculation history stored in the model.
  *
- * This servlet displays all past impedance calculations performed during
- * the application lifecycle. It also provides functionality to clear the history.
+ * This servlet displays the past impedance calculations performed during
+ * the application lifecycle, one page at a time: {@code offset} is the index of the
+ * first entry shown and {@code size} the number of entries per page (default
+ * {@value #DEFAULT_PAGE_SIZE}, at most {@value #MAX_PAGE_SIZE}). Only the requested
+ * page is read from the history, so the page does not grow with the history.
+ * It also provides functionality to clear the history.
  * Both GET and POST requests are handled uniformly.
  *
  * History data is obtained from the shared {@link ImpedanceModel} instance
  * stored in the servlet context by {@link AppContextListener}.
  *
  * @author Kamil Fulneczek
- * @version 1.0
+ * @version 1.4
  */
 @WebServlet(name = "HistoryServlet", urlPatterns = {"/history"})
 public class HistoryServlet extends HttpServlet {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String PAGE = "history";
+    private static final Metrics.Timer RENDER_TIMER = Metrics.timer("impedance_render_seconds",
+            "Time spent rendering and writing HTML pages", "page", PAGE);
+
+    private static final HtmlTemplate HEAD = HtmlTemplate.compile("""
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Calculation History</title>
+            </head>
+            <body>
+                <h1>Calculation History</h1>
+            """);
+
+    private static final HtmlTemplate EMPTY = HtmlTemplate.compile("""
+                <p>No calculations performed yet.</p>
+            """);
+
+    private static final HtmlTemplate SUMMARY = HtmlTemplate.compile("""
+                <p>Entries {{from}}–{{to}} of {{total}}</p>
+            """);
+
+    private static final HtmlTemplate TABLE_HEAD = HtmlTemplate.compile("""
+                <table border="1">
+                    <tr>
+                        <th>No.</th>
+                        <th>Circuit</th>
+                        <th>Frequency [Hz]</th>
+                        <th>Impedance</th>
+                        <th>Magnitude [Ω]</th>
+                    </tr>
+            """);
+
+    private static final HtmlTemplate ROW = HtmlTemplate.compile("""
+                    <tr>
+                        <td>{{no}}</td>
+                        <td>{{circuit}}</td>
+                        <td>{{frequency}}</td>
+                        <td>{{impedance}}</td>
+                        <td>{{magnitude}}</td>
+                    </tr>
+            """);
+
+    private static final HtmlTemplate TABLE_END = HtmlTemplate.compile("""
+                </table>
+                <p>
+            """);
+
+    private static final HtmlTemplate PAGE_LINK = HtmlTemplate.compile("""
+                    <a href="{{ctx}}/history?offset={{offset}}&amp;size={{size}}">{{label}}</a>
+            """);
+
+    private static final HtmlTemplate TABLE_FOOT = HtmlTemplate.compile("""
+                </p>
+                <form action="{{ctx}}/history" method="post">
+                    <input type="hidden" name="action" value="clear">
+                    <button type="submit">Clear History</button>
+                </form>
+            """);
+
+    private static final HtmlTemplate FOOTER = HtmlTemplate.compile("""
+                <br><a href="{{ctx}}/">Back to Home</a>
+            </body>
+            </html>
+            """);
+
     /**
      * Get the context path for building URLs.
      *
@@ -40,6 +114,24 @@ public class HistoryServlet extends HttpServlet {
         return req.getContextPath();
     }
 
+    private static int parsePageSize(String s) {
+        if (s == null || s.isBlank()) return DEFAULT_PAGE_SIZE;
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(s.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    private static int parseOffset(String s) {
+        if (s == null || s.isBlank()) return 0;
+        try {
+            return Math.max(0, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * Process the request for both GET and POST methods.
      * If the "action=clear" parameter is present the model history is cleared.
@@ -67,54 +159,44 @@ public class HistoryServlet extends HttpServlet {
         String ctx = getContextPath(req);
 
         resp.setContentType("text/html;charset=UTF-8");
-        PrintWriter out = resp.getWriter();
-
-        out.println("<!DOCTYPE html>");
-        out.println("<html lang=\"en\">");
-        out.println("<head>");
-        out.println("    <meta charset=\"UTF-8\">");
-        out.println("    <title>Calculation History</title>");
-        out.println("</head>");
-        out.println("<body>");
-        out.println("    <h1>Calculation History</h1>");
-
-        List<CircuitElement> elements = model.getHistoryElements();
-        List<Double> frequencies = model.getHistoryFrequencies();
-        List<Complex> results = model.getHistoryResults();
-
-        if (elements.isEmpty()) {
-            out.println("    <p>No calculations performed yet.</p>");
-        } else {
-            out.println("    <table border=\"1\">");
-            out.println("        <tr>");
-            out.println("            <th>No.</th>");
-            out.println("            <th>Circuit</th>");
-            out.println("            <th>Frequency [Hz]</th>");
-            out.println("            <th>Impedance</th>");
-            out.println("            <th>Magnitude [Ω]</th>");
-            out.println("        </tr>");
-
-            for (int i = 0; i < elements.size(); i++) {
-                out.println("        <tr>");
-                out.println("            <td>" + (i + 1) + "</td>");
-                out.println("            <td>" + elements.get(i).description() + "</td>");
-                out.println("            <td>" + frequencies.get(i) + "</td>");
-                out.println("            <td>" + results.get(i).toString() + "</td>");
-                out.println("            <td>" + String.format("%.6g", results.get(i).magnitude()) + "</td>");
-                out.println("        </tr>");
-            }
 
-            out.println("    </table>");
-            out.println("    <br>");
-            out.println("    <form action=\"" + ctx + "/history\" method=\"post\">");
-            out.println("        <input type=\"hidden\" name=\"action\" value=\"clear\">");
-            out.println("        <button type=\"submit\">Clear History</button>");
-            out.println("    </form>");
+        int size = parsePageSize(req.getParameter("size"));
+        int offset = parseOffset(req.getParameter("offset"));
+        HistoryPage history = model.getHistoryPage(offset, size);
+
+        try (PageBuffer page = PageBuffer.acquire(RENDER_TIMER, PAGE)) {
+            HEAD.render(page);
+            if (history.total() == 0) {
+                EMPTY.render(page);
+            } else {
+                SUMMARY.render(page, history.offset() + (history.entries().isEmpty() ? 0 : 1),
+                        history.offset() + history.entries().size(), history.total());
+                TABLE_HEAD.render(page);
+                StringBuilder impedance = new StringBuilder(48);
+                StringBuilder magnitude = new StringBuilder(16);
+                int no = history.offset() + 1;
+                for (HistoryPage.Entry entry : history.entries()) {
+                    Complex z = entry.result();
+                    impedance.setLength(0);
+                    magnitude.setLength(0);
+                    ROW.render(page, no++, entry.element(), entry.frequencyHz(),
+                            NumberFormatter.appendComplex(impedance, z),
+                            NumberFormatter.appendSignificant(magnitude, z.magnitude(), NumberFormatter.DEFAULT_DIGITS));
+                }
+                TABLE_END.render(page);
+                if (history.offset() > 0) {
+                    PAGE_LINK.render(page, ctx, 0, size, "First page");
+                    PAGE_LINK.render(page, ctx, Math.max(0, history.offset() - size), size, "Previous page");
+                }
+                int next = history.offset() + history.entries().size();
+                if (next < history.total()) {
+                    PAGE_LINK.render(page, ctx, next, size, "Next page");
+                }
+                TABLE_FOOT.render(page, ctx);
+            }
+            FOOTER.render(page, ctx);
+            page.writeTo(resp);
         }
-
-        out.println("    <br><a href=\"" + ctx + "/\">Back to Home</a>");
-        out.println("</body>");
-        out.println("</html>");
     }
 
     /**
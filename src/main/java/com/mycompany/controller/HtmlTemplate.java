@@ -0,0 +1,88 @@
+package com.mycompany.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page fragment with the static markup encoded to UTF-8 once, when the template
+ * is compiled.
+ *
+ * The source text marks dynamic parts with {@code {{name}}}. Rendering writes the
+ * pre-encoded markup and the values for the slots into a {@link PageBuffer}; only
+ * the values are encoded per request. Values are given in the order in which the
+ * slot names first appear, and a name used more than once takes the same value.
+ * Values are HTML-escaped ({@link PageBuffer#html}), so slots may hold request
+ * parameters and cookie values, in text as well as in quoted attribute values.
+ *
+ * <pre>
+ *   static final HtmlTemplate LINK = HtmlTemplate.compile("&lt;a href=\"{{ctx}}/\"&gt;{{text}}&lt;/a&gt;\n");
+ *   LINK.render(page, ctx, "Back to Home");
+ * </pre>
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+final class HtmlTemplate {
+
+    private final byte[][] fragments;
+    private final int[] slots;
+    private final int valueCount;
+
+    private HtmlTemplate(byte[][] fragments, int[] slots, int valueCount) {
+        this.fragments = fragments;
+        this.slots = slots;
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * Compile a template.
+     *
+     * @param source markup with {@code {{name}}} slots
+     * @return compiled template
+     * @throws IllegalArgumentException when a slot is not closed or has no name
+     */
+    static HtmlTemplate compile(String source) {
+        List<byte[]> fragments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) break;
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) throw new IllegalArgumentException("Unclosed slot at " + open);
+            String name = source.substring(open + 2, close).trim();
+            if (name.isEmpty()) throw new IllegalArgumentException("Empty slot at " + open);
+            fragments.add(source.substring(pos, open).getBytes(StandardCharsets.UTF_8));
+            int index = names.indexOf(name);
+            if (index < 0) {
+                index = names.size();
+                names.add(name);
+            }
+            slots.add(index);
+            pos = close + 2;
+        }
+        fragments.add(source.substring(pos).getBytes(StandardCharsets.UTF_8));
+        return new HtmlTemplate(fragments.toArray(new byte[0][]),
+                slots.stream().mapToInt(Integer::intValue).toArray(), names.size());
+    }
+
+    /**
+     * Render the template into a page.
+     *
+     * @param page destination buffer
+     * @param values one value per distinct slot name; null is written as "null"
+     * @throws IllegalArgumentException when the number of values does not match
+     */
+    void render(PageBuffer page, Object... values) {
+        if (values.length != valueCount) {
+            throw new IllegalArgumentException("Expected " + valueCount + " values, got " + values.length);
+        }
+        page.write(fragments[0]);
+        for (int i = 0; i < slots.length; i++) {
+            page.html(values[slots[i]]);
+            page.write(fragments[i + 1]);
+        }
+    }
+}
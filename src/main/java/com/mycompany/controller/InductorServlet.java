@@ -4,6 +4,8 @@ import com.mycompany.model.ImpedanceModel;
 import com.mycompany.model.Inductor;
 import com.mycompany.model.Complex;
 import com.mycompany.model.InvalidCircuitException;
+import com.mycompany.model.NumberFormatter;
+import com.mycompany.model.Metrics;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -12,7 +14,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -26,11 +27,74 @@ import jakarta.servlet.http.Cookie;
  * as for other component servlets (lastFrequency, lastComponent, lastValue).
  *
  * @author Kamil Fulneczek
- * @version 1.2
+ * @version 1.4
  */
-@WebServlet(name = "InductorServlet", urlPatterns = {"/inductor"})
+@WebServlet(name = "InductorServlet", urlPatterns = {"/inductor"}, asyncSupported = true)
 public class InductorServlet extends HttpServlet {
 
+    private static final String PAGE = "inductor";
+    private static final Metrics.Timer RENDER_TIMER = Metrics.timer("impedance_render_seconds",
+            "Time spent rendering and writing HTML pages", "page", PAGE);
+
+    private static final HtmlTemplate FORM_HEAD = HtmlTemplate.compile("""
+            <! DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Inductor Impedance Calculator</title>
+            </head>
+            <body>
+                <h1>Inductor Impedance Calculator</h1>
+            """);
+
+    private static final HtmlTemplate LAST_USED = HtmlTemplate.compile("""
+                <p style="font-size:small;color:gray;">{{info}}</p>
+            """);
+
+    private static final HtmlTemplate FORM = HtmlTemplate.compile("""
+                <form action="{{ctx}}/inductor" method="post">
+                    <label for="inductance">Inductance (Henrys):</label>
+                    <input type="text" name="inductance" id="inductance" required><br><br>
+                    <label for="frequency">Frequency (Hz):</label>
+                    <input type="text" name="frequency" id="frequency" required><br><br>
+                    <button type="submit">Calculate</button>
+                </form>
+                <br><a href="{{ctx}}/">Back to Home</a>
+            </body>
+            </html>
+            """);
+
+    private static final HtmlTemplate RESULT_HEAD = HtmlTemplate.compile("""
+            <! DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <title>Inductor Impedance Result</title>
+            </head>
+            <body>
+            """);
+
+    private static final HtmlTemplate RESULT = HtmlTemplate.compile("""
+                <h1>Inductor Impedance Result</h1>
+                <p>Inductance:  {{inductance}} H</p>
+                <p>Frequency: {{frequency}} Hz</p>
+                <p>Impedance:  {{impedance}}</p>
+                <p>Magnitude: {{magnitude}} Ω</p>
+            """);
+
+    private static final HtmlTemplate ERROR = HtmlTemplate.compile("""
+                <h1>Error</h1>
+                <p style="color: red;">{{message}}</p>
+            """);
+
+    private static final HtmlTemplate FOOTER = HtmlTemplate.compile("""
+                <br><a href="{{ctx}}/inductor">Calculate Another</a>
+                <br><a href="{{ctx}}/history">View History</a>
+                <br><a href="{{ctx}}/">Back to Home</a>
+            </body>
+            </html>
+            """);
+
     /**
      * Return application context path.
      *
@@ -76,8 +140,6 @@ public class InductorServlet extends HttpServlet {
      * @throws IOException when writing fails
      */
     private void displayForm(HttpServletRequest req, HttpServletResponse resp, String ctx) throws IOException {
-        PrintWriter out = resp.getWriter();
-
         String lastFreq = null;
         String lastComp = null;
         String lastVal = null;
@@ -100,45 +162,30 @@ public class InductorServlet extends HttpServlet {
             }
         }
 
-        out.println("<! DOCTYPE html>");
-        out.println("<html lang=\"en\">");
-        out.println("<head>");
-        out.println("    <meta charset=\"UTF-8\">");
-        out.println("    <title>Inductor Impedance Calculator</title>");
-        out.println("</head>");
-        out.println("<body>");
-        out.println("    <h1>Inductor Impedance Calculator</h1>");
-
-        if (lastComp != null || lastVal != null || lastFreq != null) {
-            StringBuilder info = new StringBuilder("Last used:");
-            boolean added = false;
-            if (lastComp != null) {
-                info.append(" ").append(lastComp);
-                if (lastVal != null) {
-                    info.append(": ").append(lastVal);
+        try (PageBuffer page = PageBuffer.acquire(RENDER_TIMER, PAGE)) {
+            FORM_HEAD.render(page);
+            if (lastComp != null || lastVal != null || lastFreq != null) {
+                StringBuilder info = new StringBuilder("Last used:");
+                boolean added = false;
+                if (lastComp != null) {
+                    info.append(" ").append(lastComp);
+                    if (lastVal != null) {
+                        info.append(": ").append(lastVal);
+                    }
+                    added = true;
+                } else if (lastVal != null) {
+                    info.append(" ").append(lastVal);
+                    added = true;
                 }
-                added = true;
-            } else if (lastVal != null) {
-                info.append(" ").append(lastVal);
-                added = true;
-            }
-            if (lastFreq != null) {
-                if (added) info.append(" |");
-                info.append(" frequency: ").append(lastFreq).append(" Hz");
+                if (lastFreq != null) {
+                    if (added) info.append(" |");
+                    info.append(" frequency: ").append(lastFreq).append(" Hz");
+                }
+                LAST_USED.render(page, info);
             }
-            out.println("    <p style=\"font-size:small;color:gray;\">" + info.toString() + "</p>");
+            FORM.render(page, ctx);
+            page.writeTo(resp);
         }
-
-        out.println("    <form action=\"" + ctx + "/inductor\" method=\"post\">");
-        out.println("        <label for=\"inductance\">Inductance (Henrys):</label>");
-        out.println("        <input type=\"text\" name=\"inductance\" id=\"inductance\" required><br><br>");
-        out.println("        <label for=\"frequency\">Frequency (Hz):</label>");
-        out.println("        <input type=\"text\" name=\"frequency\" id=\"frequency\" required><br><br>");
-        out.println("        <button type=\"submit\">Calculate</button>");
-        out.println("    </form>");
-        out.println("    <br><a href=\"" + ctx + "/\">Back to Home</a>");
-        out.println("</body>");
-        out.println("</html>");
     }
 
     /**
@@ -162,69 +209,74 @@ public class InductorServlet extends HttpServlet {
             throw new ServletException("ImpedanceModel not found in ServletContext");
         }
 
-        PrintWriter out = resp.getWriter();
+        try (PageBuffer page = PageBuffer.acquire(RENDER_TIMER, PAGE)) {
+            RESULT_HEAD.render(page);
+            try {
+                double inductance = Double.parseDouble(inductanceStr);
+                double frequency = Double.parseDouble(frequencyStr);
 
-        out.println("<! DOCTYPE html>");
-        out.println("<html lang=\"en\">");
-        out.println("<head>");
-        out.println("    <meta charset=\"UTF-8\">");
-        out.println("    <title>Inductor Impedance Result</title>");
-        out.println("</head>");
-        out.println("<body>");
+                Inductor inductor = new Inductor(inductance);
+                Complex impedance = model.calculateImpedance(inductor, frequency);
+                page.beginRender();
 
-        try {
-            double inductance = Double.parseDouble(inductanceStr);
-            double frequency = Double.parseDouble(frequencyStr);
-
-            Inductor inductor = new Inductor(inductance);
-            Complex impedance = model.calculateImpedance(inductor, frequency);
-
-            out.println("    <h1>Inductor Impedance Result</h1>");
-            out.println("    <p>Inductance:  " + inductance + " H</p>");
-            out.println("    <p>Frequency: " + frequency + " Hz</p>");
-            out.println("    <p>Impedance:  " + impedance.toString() + "</p>");
-            out.println("    <p>Magnitude: " + String.format("%.6g", impedance.magnitude()) + " Ω</p>");
-
-            Cookie lastFreq = new Cookie("lastFrequency", URLEncoder.encode(String.valueOf(frequency), StandardCharsets.UTF_8));
-            lastFreq.setMaxAge(60 * 60 * 24 * 30);
-            String path = req.getContextPath();
-            lastFreq.setPath(path == null || path.isEmpty() ? "/" : path);
-            resp.addCookie(lastFreq);
-
-            Cookie lastComp = new Cookie("lastComponent", URLEncoder.encode("L", StandardCharsets.UTF_8));
-            lastComp.setMaxAge(60 * 60 * 24 * 30);
-            lastComp.setPath(path == null || path.isEmpty() ? "/" : path);
-            resp.addCookie(lastComp);
-
-            Cookie lastVal = new Cookie("lastValue", URLEncoder.encode(String.valueOf(inductance), StandardCharsets.UTF_8));
-            lastVal.setMaxAge(60 * 60 * 24 * 30);
-            lastVal.setPath(path == null || path.isEmpty() ? "/" : path);
-            resp.addCookie(lastVal);
-
-        } catch (NumberFormatException e) {
-            out.println("    <h1>Error</h1>");
-            out.println("    <p style=\"color: red;\">Invalid number format:  " + e.getMessage() + "</p>");
-        } catch (InvalidCircuitException e) {
-            out.println("    <h1>Error</h1>");
-            out.println("    <p style=\"color: red;\">Calculation error: " + e.getMessage() + "</p>");
+                RESULT.render(page, inductance, frequency, impedance, NumberFormatter.format(impedance.magnitude()));
+
+                if (ConditionalGet.mayStoreCookies(req)) {
+                    Cookie lastFreq = new Cookie("lastFrequency", URLEncoder.encode(String.valueOf(frequency), StandardCharsets.UTF_8));
+                    lastFreq.setMaxAge(60 * 60 * 24 * 30);
+                    String path = req.getContextPath();
+                    lastFreq.setPath(path == null || path.isEmpty() ? "/" : path);
+                    resp.addCookie(lastFreq);
+
+                    Cookie lastComp = new Cookie("lastComponent", URLEncoder.encode("L", StandardCharsets.UTF_8));
+                    lastComp.setMaxAge(60 * 60 * 24 * 30);
+                    lastComp.setPath(path == null || path.isEmpty() ? "/" : path);
+                    resp.addCookie(lastComp);
+
+                    Cookie lastVal = new Cookie("lastValue", URLEncoder.encode(String.valueOf(inductance), StandardCharsets.UTF_8));
+                    lastVal.setMaxAge(60 * 60 * 24 * 30);
+                    lastVal.setPath(path == null || path.isEmpty() ? "/" : path);
+                    resp.addCookie(lastVal);
+                }
+
+            } catch (NumberFormatException e) {
+                ERROR.render(page, "Invalid number format:  " + e.getMessage());
+            } catch (InvalidCircuitException e) {
+                ERROR.render(page, "Calculation error: " + e.getMessage());
+            }
+            FOOTER.render(page, ctx);
+            page.writeTo(resp);
         }
+    }
 
-        out.println("    <br><a href=\"" + ctx + "/inductor\">Calculate Another</a>");
-        out.println("    <br><a href=\"" + ctx + "/history\">View History</a>");
-        out.println("    <br><a href=\"" + ctx + "/\">Back to Home</a>");
-        out.println("</body>");
-        out.println("</html>");
+    /**
+     * Compute the ETag of the result page requested by a GET, without evaluating the circuit.
+     *
+     * @param req HTTP request
+     * @return ETag, or null when the request does not show a valid result page
+     */
+    private String resultEtag(HttpServletRequest req) {
+        String valueStr = req.getParameter("inductance");
+        String frequencyStr = req.getParameter("frequency");
+        if (valueStr == null || frequencyStr == null || valueStr.isEmpty() || frequencyStr.isEmpty()) return null;
+        try {
+            return ConditionalGet.etag("inductor", new Inductor(Double.parseDouble(valueStr)), Double.parseDouble(frequencyStr), null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        processRequest(req, resp);
+        String etag = resultEtag(req);
+        if (etag != null && ConditionalGet.isNotModified(req, resp, etag)) return;
+        AsyncDispatch.dispatch(req, resp, this::processRequest);
     }
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        processRequest(req, resp);
+        AsyncDispatch.dispatch(req, resp, this::processRequest);
     }
 }
\ No newline at end of file
@@ -0,0 +1,283 @@
+package com.mycompany.controller;
+
+import com.mycompany.model.CircuitElement;
+import com.mycompany.model.Metrics;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Growable byte buffer a page is rendered into before it is sent.
+ *
+ * Buffers are pooled: {@link #acquire(Metrics.Timer, String)} takes one from a shared pool of
+ * {@value #POOL_SIZE} buffers and {@link #close()} returns it, unless it grew
+ * beyond {@value #MAX_POOLED_CAPACITY} bytes. The pool is shared rather than kept
+ * per thread, so it also works when requests run on virtual threads. Because the
+ * whole page is known before it is written, {@link #writeTo} can set the
+ * {@code Content-Length} header.
+ *
+ * The buffer is an {@link Appendable}, so circuits are written into it with
+ * {@link CircuitElement#describeTo} instead of being turned into a String first.
+ * {@link #html} writes values escaped for use in HTML text and attribute values.
+ *
+ * The time from {@link #acquire(Metrics.Timer, String)} (or from {@link #beginRender()},
+ * which servlets call once their calculation is done) until the page has been
+ * written is recorded as the render time of the page, in {@link Metrics} and as a
+ * Flight Recorder {@link RenderEvent}. A page abandoned by an exception is still
+ * timed, until the buffer is closed.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.5
+ */
+final class PageBuffer implements AutoCloseable, Appendable {
+
+    static final int INITIAL_CAPACITY = 4096;
+    static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    static final int POOL_SIZE = 64;
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private static final ArrayBlockingQueue<PageBuffer> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final byte[] AMP = "&amp;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LT = "&lt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GT = "&gt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUOT = "&quot;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] APOS = "&#39;".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int count;
+    private Metrics.Timer renderTimer;
+    private long renderStart;
+    private boolean rendered;
+    private String pageName;
+    private RenderEvent event;
+
+    private PageBuffer() {
+    }
+
+    /**
+     * @param renderTimer timer recording the render time of the page
+     * @param pageName name of the page reported in render events
+     * @return an empty buffer, from the pool when one is available
+     */
+    static PageBuffer acquire(Metrics.Timer renderTimer, String pageName) {
+        PageBuffer page = POOL.poll();
+        if (page == null) page = new PageBuffer();
+        page.renderTimer = renderTimer;
+        page.pageName = pageName;
+        page.beginRender();
+        return page;
+    }
+
+    /**
+     * Restart the render time measurement, leaving out the work done so far.
+     */
+    void beginRender() {
+        event = new RenderEvent();
+        event.begin();
+        renderStart = renderTimer.start();
+        rendered = false;
+    }
+
+    /**
+     * Append pre-encoded bytes.
+     *
+     * @param b bytes to append
+     * @return this buffer
+     */
+    PageBuffer write(byte[] b) {
+        ensureCapacity(count + b.length);
+        System.arraycopy(b, 0, bytes, count, b.length);
+        count += b.length;
+        return this;
+    }
+
+    /**
+     * Append a value encoded as UTF-8. Strings are encoded directly into the
+     * buffer, circuits are written with {@link CircuitElement#describeTo} (the same
+     * text as their toString()); other values are converted with
+     * {@link String#valueOf(Object)}.
+     * Unpaired surrogates are written as '?', as {@link String#getBytes} does.
+     *
+     * @param value value to append
+     * @return this buffer
+     */
+    PageBuffer text(Object value) {
+        if (value instanceof CircuitElement element) {
+            try {
+                element.describeTo(this);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        CharSequence s = value instanceof CharSequence cs ? cs : String.valueOf(value);
+        int len = s.length();
+        ensureCapacity(count + 3L * len);
+        byte[] b = bytes;
+        int n = count;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[n++] = (byte) c;
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xc0 | (c >> 6));
+                b[n++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[n++] = (byte) (0xf0 | (cp >> 18));
+                b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                b[n++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                b[n++] = '?';
+            } else {
+                b[n++] = (byte) (0xe0 | (c >> 12));
+                b[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[n++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        count = n;
+        return this;
+    }
+
+    /**
+     * Append a value like {@link #text}, with {@code & < > " '} replaced by character
+     * references, so that request parameters and other untrusted text can be written
+     * into HTML text and quoted attribute values.
+     *
+     * @param value value to append
+     * @return this buffer
+     */
+    PageBuffer html(Object value) {
+        if (value instanceof CircuitElement element) {
+            try {
+                element.describeTo(new Escaping());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+        CharSequence s = value instanceof CharSequence cs ? cs : String.valueOf(value);
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            byte[] reference = reference(s.charAt(i));
+            if (reference != null) {
+                if (i > start) text(s.subSequence(start, i));
+                write(reference);
+                start = i + 1;
+            }
+        }
+        return start == 0 ? text(s) : text(s.subSequence(start, s.length()));
+    }
+
+    private static byte[] reference(char c) {
+        return switch (c) {
+            case '&' -> AMP;
+            case '<' -> LT;
+            case '>' -> GT;
+            case '"' -> QUOT;
+            case '\'' -> APOS;
+            default -> null;
+        };
+    }
+
+    /**
+     * View of the buffer that escapes what is appended, for {@link CircuitElement#describeTo}.
+     */
+    private final class Escaping implements Appendable {
+        @Override
+        public Appendable append(CharSequence csq) {
+            html(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            html(String.valueOf(csq).subSequence(start, end));
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            byte[] reference = reference(c);
+            if (reference != null) write(reference);
+            else PageBuffer.this.append(c);
+            return this;
+        }
+    }
+
+    @Override
+    public PageBuffer append(CharSequence csq) {
+        return text(csq);
+    }
+
+    @Override
+    public PageBuffer append(CharSequence csq, int start, int end) {
+        return text(String.valueOf(csq).subSequence(start, end));
+    }
+
+    @Override
+    public PageBuffer append(char c) {
+        if (c < 0x80) {
+            ensureCapacity(count + 1);
+            bytes[count++] = (byte) c;
+            return this;
+        }
+        return text(String.valueOf(c));
+    }
+
+    private void ensureCapacity(long capacity) {
+        if (capacity > bytes.length) {
+            if (capacity > MAX_CAPACITY) throw new OutOfMemoryError("Page larger than " + MAX_CAPACITY + " bytes");
+            bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_CAPACITY, Math.max(capacity, 2L * bytes.length)));
+        }
+    }
+
+    /**
+     * @return number of bytes rendered so far
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Send the page: set {@code Content-Length} and write the bytes to the
+     * response output stream. The content type must already be set.
+     *
+     * @param resp HTTP response
+     * @throws IOException on I/O errors
+     */
+    void writeTo(HttpServletResponse resp) throws IOException {
+        resp.setContentLength(count);
+        OutputStream out = resp.getOutputStream();
+        out.write(bytes, 0, count);
+        out.flush();
+        renderTimer.stop(renderStart);
+        rendered = true;
+        if (event.shouldCommit()) {
+            event.page = pageName;
+            event.bytes = count;
+            event.commit();
+        }
+    }
+
+    /**
+     * Clear the buffer and return it to the pool.
+     */
+    @Override
+    public void close() {
+        if (renderTimer != null && !rendered) renderTimer.stop(renderStart);
+        count = 0;
+        renderTimer = null;
+        pageName = null;
+        event = null;
+        if (bytes.length <= MAX_POOLED_CAPACITY) POOL.offer(this);
+    }
+}
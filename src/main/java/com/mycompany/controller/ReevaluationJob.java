@@ -0,0 +1,276 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
+import com.mycompany.entities.JobCheckpoint;
+import com.mycompany.model.CircuitElement;
+import com.mycompany.model.Complex;
+import com.mycompany.model.InvalidCircuitException;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.UserTransaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Recomputes the impedance of every stored calculation.
+ *
+ * The job walks the CALCULATION table in keyset pages of ascending id. Each page is
+ * processed in one transaction: the calculations are loaded together with their
+ * circuits, each distinct circuit is rebuilt once from its components, the
+ * impedances are evaluated in parallel, and the results are written back. The
+ * {@link JobCheckpoint} row is updated in the same transaction, so after a crash or
+ * a stop request the job resumes exactly after the last committed page. The run
+ * stops at the highest id that existed when it started.
+ *
+ * The evaluation of a page is split into pieces handed to the given executor (the
+ * container's managed executor, not the common fork-join pool). The job's own
+ * thread then runs every piece that no executor thread has started yet, so a
+ * saturated executor slows the job down instead of blocking it.
+ *
+ * With a frequency override the stored calculations are left unchanged: each one
+ * is evaluated at the new frequency into a new calculation with the same name and
+ * circuit, inserted in the same transaction.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+final class ReevaluationJob implements Runnable {
+
+    /**
+     * Name of the checkpoint row of this job.
+     */
+    static final String JOB_NAME = "reevaluate";
+
+    /**
+     * Minimum number of calculations evaluated by one piece of a page.
+     */
+    static final int MIN_PIECE_SIZE = 32;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private final EntityManager em;
+    private final UserTransaction userTransaction;
+    private final CalculationListingCache cache;
+    private final Executor executor;
+    private final int pageSize;
+    private volatile boolean stopRequested;
+
+    /**
+     * Create a job; the checkpoint row must already exist.
+     *
+     * @param em container-managed entity manager
+     * @param userTransaction transaction used for each page
+     * @param cache listing cache to invalidate after each page, may be null
+     * @param executor executor sharing the evaluation of a page, or null to evaluate on the job's thread
+     * @param pageSize number of calculations per page and transaction
+     */
+    ReevaluationJob(EntityManager em, UserTransaction userTransaction, CalculationListingCache cache,
+                    Executor executor, int pageSize) {
+        this.em = em;
+        this.userTransaction = userTransaction;
+        this.cache = cache;
+        this.executor = executor;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Ask the job to stop after the page it is currently processing.
+     */
+    void requestStop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public void run() {
+        try {
+            boolean more = true;
+            while (more) {
+                if (stopRequested) {
+                    finish(JobCheckpoint.STATUS_STOPPED, "Stopped on request");
+                    return;
+                }
+                more = processPage();
+            }
+        } catch (Exception e) {
+            try {
+                finish(JobCheckpoint.STATUS_FAILED, e.getClass().getSimpleName() + ": " + e.getMessage());
+            } catch (Exception ex) {
+            }
+        }
+    }
+
+    /**
+     * Process the next page after the checkpoint.
+     *
+     * @return true when there may be more calculations to process
+     */
+    private boolean processPage() throws Exception {
+        long firstId;
+        long lastId;
+        List<Calculation> created = List.of();
+        userTransaction.begin();
+        try {
+            JobCheckpoint checkpoint = em.find(JobCheckpoint.class, JOB_NAME);
+            TypedQuery<Long> page = checkpoint.getUpToId() == null
+                    ? em.createNamedQuery(Calculation.PAGE_IDS, Long.class)
+                    : em.createNamedQuery(Calculation.PAGE_IDS_UP_TO, Long.class).setParameter("upTo", checkpoint.getUpToId());
+            List<Long> ids = page
+                    .setParameter("after", checkpoint.getLastId())
+                    .setMaxResults(pageSize)
+                    .getResultList();
+            if (ids.isEmpty()) {
+                checkpoint.setStatus(JobCheckpoint.STATUS_DONE);
+                checkpoint.setMessage(null);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                userTransaction.commit();
+                return false;
+            }
+            List<Calculation> calcs = em.createNamedQuery(Calculation.FETCH_BY_IDS, Calculation.class)
+                    .setParameter("ids", ids)
+                    .setHint("jakarta.persistence.fetchgraph", em.getEntityGraph(Calculation.WITH_COMPONENTS))
+                    .getResultList();
+
+            List<Calculation> targets = calcs;
+            if (checkpoint.getFrequency() != null) {
+                created = new ArrayList<>(calcs.size());
+                for (Calculation calc : calcs) created.add(copyAt(calc, checkpoint.getFrequency()));
+                targets = created;
+            }
+            long failed = evaluate(targets);
+            for (Calculation calc : created) em.persist(calc);
+
+            firstId = ids.get(0);
+            lastId = ids.get(ids.size() - 1);
+            checkpoint.setLastId(lastId);
+            checkpoint.setProcessed(checkpoint.getProcessed() + calcs.size());
+            checkpoint.setFailed(checkpoint.getFailed() + failed);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            em.flush();
+            em.clear();
+            userTransaction.commit();
+        } catch (Exception e) {
+            try { userTransaction.rollback(); } catch (Exception ex) { }
+            throw e;
+        }
+        if (cache != null) {
+            cache.invalidateRange(firstId, lastId);
+            for (Calculation calc : created) {
+                if (calc.getId() != null) cache.invalidate(calc.getId());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * New calculation of the same circuit and name at another frequency.
+     */
+    private static Calculation copyAt(Calculation calc, double frequency) {
+        Calculation copy = new Calculation();
+        copy.setName(calc.getName());
+        copy.setCircuit(calc.getCircuit());
+        copy.setFrequency(frequency);
+        return copy;
+    }
+
+    /**
+     * Evaluate a page of calculations and store the results in them.
+     * Circuits are rebuilt once per page and evaluated in parallel; the model
+     * elements are only read during evaluation, so sharing them is safe.
+     *
+     * @param calcs calculations with circuits loaded
+     * @return number of calculations that could not be evaluated
+     */
+    private long evaluate(List<Calculation> calcs) throws Exception {
+        Map<String, Object> circuits = new HashMap<>();
+        CircuitElement[] elements = new CircuitElement[calcs.size()];
+        double[] frequencies = new double[calcs.size()];
+        String[] errors = new String[calcs.size()];
+        for (int i = 0; i < calcs.size(); i++) {
+            Calculation calc = calcs.get(i);
+            Circuit circuit = calc.getCircuit();
+            Object built = circuit == null ? "Calculation has no components"
+                    : circuits.computeIfAbsent(circuit.getHash(), h -> build(circuit));
+            if (built instanceof CircuitElement element) elements[i] = element;
+            else errors[i] = (String) built;
+            if (errors[i] == null && calc.getFrequency() == null) errors[i] = "Calculation has no frequency";
+            if (errors[i] == null) frequencies[i] = calc.getFrequency();
+        }
+
+        Complex[] results = new Complex[calcs.size()];
+        int n = calcs.size();
+        int pieces = executor == null ? 1 : Math.max(1, Math.min(PARALLELISM, n / MIN_PIECE_SIZE));
+        List<FutureTask<Void>> tasks = new ArrayList<>(pieces);
+        for (int p = 0; p < pieces; p++) {
+            int from = (int) ((long) n * p / pieces);
+            int to = (int) ((long) n * (p + 1) / pieces);
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                for (int i = from; i < to; i++) {
+                    if (errors[i] != null) continue;
+                    try {
+                        results[i] = elements[i].getImpedance(frequencies[i]);
+                    } catch (InvalidCircuitException e) {
+                        errors[i] = e.getMessage();
+                    }
+                }
+                return null;
+            });
+            tasks.add(task);
+            if (p == 0) continue;
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Run below on this thread.
+            }
+        }
+        for (FutureTask<Void> task : tasks) {
+            // No-op when an executor thread has already started the piece.
+            task.run();
+            task.get();
+        }
+
+        long failed = 0;
+        for (int i = 0; i < calcs.size(); i++) {
+            if (results[i] != null) {
+                StoredCircuits.applyResult(calcs.get(i), results[i]);
+            } else {
+                StoredCircuits.clearResult(calcs.get(i), errors[i]);
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Rebuild a circuit, returning either the model element or the error message.
+     */
+    private static Object build(Circuit circuit) {
+        try {
+            return StoredCircuits.toCircuit(circuit.getComponents());
+        } catch (InvalidCircuitException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void finish(String status, String message) throws Exception {
+        userTransaction.begin();
+        try {
+            JobCheckpoint checkpoint = em.find(JobCheckpoint.class, JOB_NAME);
+            checkpoint.setStatus(status);
+            checkpoint.setMessage(message);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            userTransaction.commit();
+        } catch (Exception e) {
+            try { userTransaction.rollback(); } catch (Exception ex) { }
+            throw e;
+        }
+    }
+}
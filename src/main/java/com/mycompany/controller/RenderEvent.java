@@ -0,0 +1,30 @@
+package com.mycompany.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for rendering and writing an HTML page.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@Name("com.mycompany.impedance.Render")
+@Label("Page Render")
+@Category({"Impedance Calculator", "Web"})
+@Description("Rendering of an HTML page and writing it to the response")
+@StackTrace(false)
+final class RenderEvent extends jdk.jfr.Event {
+
+    @Label("Page")
+    String page;
+
+    @Label("Size")
+    @Description("Size of the page, 0 when it is streamed")
+    @DataAmount
+    long bytes;
+}
@@ -0,0 +1,93 @@
+package com.mycompany.controller;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of requests handed off by {@link AsyncDispatch}, used to compare the
+ * throughput of the platform-thread and virtual-thread execution modes.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public final class RequestExecutionStats {
+
+    private final String threadMode;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder handlingNanos = new LongAdder();
+    private final LongAdder databaseWaitNanos = new LongAdder();
+
+    /**
+     * @param threadMode "platform" or "virtual"
+     */
+    public RequestExecutionStats(String threadMode) {
+        this.threadMode = threadMode;
+    }
+
+    void recordDispatched() {
+        dispatched.increment();
+    }
+
+    void recordCompleted(long nanos) {
+        completed.increment();
+        handlingNanos.add(nanos);
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordTimedOut() {
+        timedOut.increment();
+    }
+
+    void recordDatabaseWait(long nanos) {
+        databaseWaitNanos.add(nanos);
+    }
+
+    public String getThreadMode() {
+        return threadMode;
+    }
+
+    public long getDispatched() {
+        return dispatched.sum();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return mean time from hand-off to completion in milliseconds, 0 when nothing completed
+     */
+    public double getMeanHandlingMillis() {
+        long n = completed.sum();
+        return n == 0 ? 0.0 : handlingNanos.sum() / 1e6 / n;
+    }
+
+    /**
+     * @return total time spent waiting for a database permit in milliseconds
+     */
+    public double getDatabaseWaitMillis() {
+        return databaseWaitNanos.sum() / 1e6;
+    }
+
+    /**
+     * @return completed requests per second since the application started
+     */
+    public double getThroughputPerSecond() {
+        long elapsed = Math.max(1L, System.currentTimeMillis() - startedAtMillis);
+        return completed.sum() * 1000.0 / elapsed;
+    }
+}
@@ -0,0 +1,247 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.ArchivedCalculation;
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.UserTransaction;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Applies a {@link RetentionPolicy}: moves calculations beyond the limits into
+ * ARCHIVED_CALCULATION and deletes them from CALCULATION, together with the
+ * circuits (and their components) that no remaining calculation refers to. The
+ * archive keeps the circuit's hash and definition.
+ *
+ * The work is split into batches of at most {@link RetentionPolicy#batchSize()}
+ * calculations, each archived and deleted in its own short transaction, with a
+ * pause between batches, so that the job never holds many row locks for long while
+ * the application keeps serving requests. A circuit that a concurrent request
+ * reuses while its last calculation is archived makes one of the two transactions
+ * fail on the foreign key; the job stops and the next run retries.
+ *
+ * Calculations stored before CREATED_AT existed have no creation time. Before the
+ * age limit is applied they are given the time of the run, in the same kind of
+ * batches, so that they age out {@code maxAge} after the first run instead of never
+ * (or all at once).
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+final class RetentionJob {
+
+    /**
+     * Outcome of one run.
+     *
+     * @param archived number of archived calculations
+     * @param circuitsRemoved number of deleted circuits no calculation referred to any more
+     * @param backfilled number of calculations given a creation time
+     * @param batches number of committed batches
+     * @param elapsedMillis duration of the run
+     * @param finishedAt end time of the run
+     * @param error error that ended the run early, or null
+     */
+    record Report(long archived, long circuitsRemoved, long backfilled, int batches, long elapsedMillis,
+                  LocalDateTime finishedAt, String error) {
+    }
+
+    /**
+     * Work done on one batch of ids in its own transaction.
+     */
+    @FunctionalInterface
+    private interface Batch {
+        void apply(List<Long> ids) throws Exception;
+    }
+
+    private final EntityManager em;
+    private final UserTransaction userTransaction;
+    private final CalculationListingCache cache;
+    private final RetentionPolicy policy;
+
+    private long archived;
+    private long circuitsRemoved;
+    private long backfilled;
+    private int batches;
+
+    RetentionJob(EntityManager em, UserTransaction userTransaction, CalculationListingCache cache, RetentionPolicy policy) {
+        this.em = em;
+        this.userTransaction = userTransaction;
+        this.cache = cache;
+        this.policy = policy;
+    }
+
+    /**
+     * Apply the age, count and per-name limits, in that order, after giving
+     * calculations without a creation time the current time.
+     *
+     * @return report of the run
+     */
+    Report run() {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            if (policy.maxAge() != null) {
+                forEachBatch(after -> em.createNamedQuery(Calculation.PAGE_IDS_CREATED_UNKNOWN, Long.class)
+                        .setParameter("after", after), this::backfillBatch);
+                LocalDateTime cutoff = LocalDateTime.now().minus(policy.maxAge());
+                archiveAll(after -> em.createNamedQuery(Calculation.PAGE_IDS_CREATED_BEFORE, Long.class)
+                        .setParameter("cutoff", cutoff)
+                        .setParameter("after", after));
+            }
+            if (policy.maxRows() > 0) {
+                Long upTo = newestBeyond(em.createNamedQuery(Calculation.IDS_DESCENDING, Long.class), policy.maxRows());
+                if (upTo != null) {
+                    archiveAll(after -> em.createNamedQuery(Calculation.PAGE_IDS_UP_TO, Long.class)
+                            .setParameter("after", after)
+                            .setParameter("upTo", upTo));
+                }
+            }
+            if (policy.maxPerName() > 0) {
+                List<String> names = em.createNamedQuery(Calculation.NAMES_OVER_LIMIT, String.class)
+                        .setParameter("max", (long) policy.maxPerName())
+                        .getResultList();
+                for (String name : names) {
+                    Long upTo = newestBeyond(em.createNamedQuery(Calculation.IDS_BY_NAME_DESCENDING, Long.class)
+                            .setParameter("name", name), policy.maxPerName());
+                    if (upTo == null) continue;
+                    archiveAll(after -> em.createNamedQuery(Calculation.PAGE_IDS_BY_NAME_UP_TO, Long.class)
+                            .setParameter("name", name)
+                            .setParameter("after", after)
+                            .setParameter("upTo", upTo));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted";
+        } catch (Exception e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+        return new Report(archived, circuitsRemoved, backfilled, batches, (System.nanoTime() - start) / 1_000_000L,
+                LocalDateTime.now(), error);
+    }
+
+    /**
+     * Return the newest id that is beyond the first {@code keep} ids of a
+     * newest-first query, or null when the query has no more than {@code keep} rows.
+     */
+    private static Long newestBeyond(TypedQuery<Long> newestFirst, long keep) {
+        List<Long> ids = newestFirst
+                .setFirstResult((int) Math.min(Integer.MAX_VALUE, keep))
+                .setMaxResults(1)
+                .getResultList();
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * Archive all calculations returned by the keyset query, one batch at a time.
+     *
+     * @param page creates the query for ids greater than the given id
+     */
+    private void archiveAll(LongFunction<TypedQuery<Long>> page) throws Exception {
+        forEachBatch(page, this::archiveBatch);
+    }
+
+    /**
+     * Apply a batch action to all ids returned by the keyset query.
+     *
+     * @param page creates the query for ids greater than the given id
+     * @param batch action run on each batch of ids
+     */
+    private void forEachBatch(LongFunction<TypedQuery<Long>> page, Batch batch) throws Exception {
+        long after = 0L;
+        while (true) {
+            List<Long> ids = page.apply(after).setMaxResults(policy.batchSize()).getResultList();
+            if (ids.isEmpty()) return;
+            batch.apply(ids);
+            after = ids.get(ids.size() - 1);
+            if (ids.size() < policy.batchSize()) return;
+            if (policy.pauseMillis() > 0) Thread.sleep(policy.pauseMillis());
+        }
+    }
+
+    private void archiveBatch(List<Long> ids) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        userTransaction.begin();
+        try {
+            List<Calculation> calcs = em.createNamedQuery(Calculation.FETCH_BY_IDS, Calculation.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            Set<String> hashes = new HashSet<>();
+            for (Calculation calc : calcs) {
+                em.persist(new ArchivedCalculation(calc, now));
+                if (calc.getCircuit() != null) hashes.add(calc.getCircuit().getHash());
+                em.remove(calc);
+            }
+            em.flush();
+            int removed = removeUnusedCircuits(hashes);
+            em.flush();
+            em.clear();
+            userTransaction.commit();
+            archived += calcs.size();
+            circuitsRemoved += removed;
+            batches++;
+        } catch (Exception e) {
+            try { userTransaction.rollback(); } catch (Exception ex) { }
+            throw e;
+        }
+        if (cache != null) cache.invalidateRange(ids.get(0), ids.get(ids.size() - 1));
+    }
+
+    /**
+     * Delete those of the given circuits that no calculation refers to any more;
+     * their components are removed with them. Runs in the caller's transaction,
+     * after the calculations have been flushed.
+     *
+     * @param hashes hashes of the circuits of the archived calculations
+     * @return number of deleted circuits
+     */
+    private int removeUnusedCircuits(Set<String> hashes) {
+        if (hashes.isEmpty()) return 0;
+        hashes.removeAll(em.createNamedQuery(Calculation.CIRCUIT_HASHES_IN_USE, String.class)
+                .setParameter("hashes", hashes)
+                .getResultList());
+        int removed = 0;
+        for (String hash : hashes) {
+            Circuit circuit = em.find(Circuit.class, hash);
+            if (circuit == null) continue;
+            em.remove(circuit);
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * Give the calculations of a batch that still have no creation time the current time.
+     */
+    private void backfillBatch(List<Long> ids) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = 0;
+        userTransaction.begin();
+        try {
+            List<Calculation> calcs = em.createNamedQuery(Calculation.FETCH_BY_IDS, Calculation.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            for (Calculation calc : calcs) {
+                if (calc.getCreatedAt() != null) continue;
+                calc.setCreatedAt(now);
+                updated++;
+            }
+            em.flush();
+            em.clear();
+            userTransaction.commit();
+            backfilled += updated;
+            batches++;
+        } catch (Exception e) {
+            try { userTransaction.rollback(); } catch (Exception ex) { }
+            throw e;
+        }
+        if (cache != null) cache.invalidateRange(ids.get(0), ids.get(ids.size() - 1));
+    }
+}
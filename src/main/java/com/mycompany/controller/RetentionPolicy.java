@@ -0,0 +1,78 @@
+package com.mycompany.controller;
+
+import jakarta.servlet.ServletContext;
+
+import java.time.Duration;
+
+/**
+ * Retention settings for stored calculations, read from context parameters.
+ *
+ * <ul>
+ *   <li>{@code calculation.retention.maxAgeDays}: archive calculations older than this</li>
+ *   <li>{@code calculation.retention.maxRows}: keep at most this many calculations</li>
+ *   <li>{@code calculation.retention.maxPerName}: keep at most this many calculations per name</li>
+ *   <li>{@code calculation.retention.batchSize}: rows per transaction (default {@value #DEFAULT_BATCH_SIZE})</li>
+ *   <li>{@code calculation.retention.pauseMillis}: pause between batches (default {@value #DEFAULT_PAUSE_MILLIS})</li>
+ *   <li>{@code calculation.retention.intervalMinutes}: schedule period, 0 disables scheduling
+ *       (default {@value #DEFAULT_INTERVAL_MINUTES})</li>
+ * </ul>
+ * A limit that is not set (or not positive) is not applied.
+ *
+ * @param maxAge maximum age, or null
+ * @param maxRows maximum number of rows, or 0
+ * @param maxPerName maximum number of rows per name, or 0
+ * @param batchSize rows archived per transaction
+ * @param pauseMillis pause between two batches
+ * @param intervalMinutes period of the scheduled run
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+record RetentionPolicy(Duration maxAge, long maxRows, int maxPerName, int batchSize, long pauseMillis,
+                       long intervalMinutes) {
+
+    static final String PREFIX = "calculation.retention.";
+    static final int DEFAULT_BATCH_SIZE = 200;
+    static final long DEFAULT_PAUSE_MILLIS = 100;
+    static final long DEFAULT_INTERVAL_MINUTES = 60;
+
+    /**
+     * Derby escalates row locks to a table lock at 5000 locks per transaction by
+     * default; batches stay well below that.
+     */
+    static final int MAX_BATCH_SIZE = 2000;
+
+    /**
+     * Read the policy from the context parameters.
+     *
+     * @param context servlet context
+     * @return policy
+     */
+    static RetentionPolicy fromContext(ServletContext context) {
+        long maxAgeDays = parse(context, "maxAgeDays", 0);
+        return new RetentionPolicy(
+                maxAgeDays > 0 ? Duration.ofDays(maxAgeDays) : null,
+                Math.max(0, parse(context, "maxRows", 0)),
+                (int) Math.max(0, Math.min(Integer.MAX_VALUE, parse(context, "maxPerName", 0))),
+                (int) Math.max(1, Math.min(MAX_BATCH_SIZE, parse(context, "batchSize", DEFAULT_BATCH_SIZE))),
+                Math.max(0, parse(context, "pauseMillis", DEFAULT_PAUSE_MILLIS)),
+                Math.max(0, parse(context, "intervalMinutes", DEFAULT_INTERVAL_MINUTES)));
+    }
+
+    private static long parse(ServletContext context, String name, long fallback) {
+        String s = context.getInitParameter(PREFIX + name);
+        if (s == null || s.isBlank()) return fallback;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * @return true when at least one limit is set
+     */
+    boolean isEnabled() {
+        return maxAge != null || maxRows > 0 || maxPerName > 0;
+    }
+}
@@ -0,0 +1,168 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
+import com.mycompany.entities.Component;
+import com.mycompany.model.Capacitor;
+import com.mycompany.model.CircuitElement;
+import com.mycompany.model.CircuitHash;
+import com.mycompany.model.Complex;
+import com.mycompany.model.ComponentSpec;
+import com.mycompany.model.ConnectionNode;
+import com.mycompany.model.Inductor;
+import com.mycompany.model.InvalidCircuitException;
+import com.mycompany.model.NumberFormatter;
+import com.mycompany.model.Resistor;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bridge between stored {@link Calculation} entities and the circuit model.
+ *
+ * The components of a stored calculation are interpreted as a series connection,
+ * in the order in which they were entered. Component types are normalized like
+ * in {@link ComponentSpec}, so "R", "resistor" and "Res" all denote a resistor.
+ *
+ * Circuits are stored once per canonical structural hash ({@link CircuitHash});
+ * {@link #resolve} replaces a freshly built circuit with the stored one when the
+ * same structure has been saved before.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+final class StoredCircuits {
+
+    private StoredCircuits() {
+    }
+
+    /**
+     * Build the circuit represented by a list of stored components.
+     *
+     * @param components stored components
+     * @return series connection of the components, or the component itself when there is only one
+     * @throws InvalidCircuitException when there are no components or a component is invalid
+     */
+    static CircuitElement toCircuit(List<Component> components) throws InvalidCircuitException {
+        if (components == null || components.isEmpty()) {
+            throw new InvalidCircuitException("Calculation has no components");
+        }
+        ConnectionNode series = new ConnectionNode(true);
+        for (Component c : components) {
+            if (c.getValue() == null) throw new InvalidCircuitException("Component " + c.getType() + " has no value");
+            ComponentSpec spec = new ComponentSpec(c.getType(), c.getValue());
+            if (spec.isResistor()) series.addChild(new Resistor(spec.getValue()));
+            else if (spec.isCapacitor()) series.addChild(new Capacitor(spec.getValue()));
+            else if (spec.isInductor()) series.addChild(new Inductor(spec.getValue()));
+            else throw new InvalidCircuitException("Unknown component type: " + c.getType());
+        }
+        List<CircuitElement> children = series.getChildren();
+        return children.size() == 1 ? children.get(0) : series;
+    }
+
+    /**
+     * Compute the content hash identifying a list of stored components.
+     * Valid circuits use the canonical structural hash of the model circuit;
+     * components that do not form a valid circuit are hashed by their raw values.
+     *
+     * @param components stored components
+     * @return 64-character hex hash
+     */
+    static String hash(List<Component> components) {
+        try {
+            return CircuitHash.of(toCircuit(components));
+        } catch (InvalidCircuitException e) {
+            StringBuilder raw = new StringBuilder("raw");
+            for (Component c : components) {
+                raw.append('|').append(c.getType()).append(':')
+                        .append(c.getValue() == null ? "null" : Long.toHexString(Double.doubleToLongBits(c.getValue())));
+            }
+            return CircuitHash.sha256Hex(raw.toString());
+        }
+    }
+
+    /**
+     * Return the stored circuit with the same content as the given draft, or
+     * persist the draft when this structure has not been stored yet.
+     *
+     * Must be called inside a transaction. Circuits persisted earlier in the same
+     * transaction are looked up in {@code pending}, which may be null when only one
+     * circuit is resolved per transaction.
+     *
+     * @param em entity manager joined to the current transaction
+     * @param draft new circuit with its components added
+     * @param pending circuits persisted in the current transaction, keyed by hash; may be null
+     * @return managed circuit to reference from the calculation
+     */
+    static Circuit resolve(EntityManager em, Circuit draft, Map<String, Circuit> pending) {
+        String hash = hash(draft.getComponents());
+        Circuit existing = pending == null ? null : pending.get(hash);
+        if (existing == null) existing = em.find(Circuit.class, hash);
+        if (existing != null) return existing;
+
+        draft.setHash(hash);
+        String definition;
+        try {
+            definition = toCircuit(draft.getComponents()).description();
+        } catch (InvalidCircuitException e) {
+            definition = "invalid: " + e.getMessage();
+        }
+        draft.setDefinition(definition.length() > 4000 ? definition.substring(0, 4000) : definition);
+        em.persist(draft);
+        if (pending != null) pending.put(hash, draft);
+        return draft;
+    }
+
+    /**
+     * Evaluate a stored calculation and write the result into its numeric columns
+     * and its display string. When the calculation cannot be evaluated the numeric
+     * columns are cleared and the display string contains the reason.
+     *
+     * @param calc calculation with frequency and components set
+     */
+    static void evaluate(Calculation calc) {
+        try {
+            if (calc.getFrequency() == null) throw new InvalidCircuitException("Calculation has no frequency");
+            CircuitElement circuit = toCircuit(calc.getComponents());
+            applyResult(calc, circuit.getImpedance(calc.getFrequency()));
+        } catch (InvalidCircuitException e) {
+            clearResult(calc, e.getMessage());
+        }
+    }
+
+    /**
+     * Store a computed impedance in the calculation. An impedance with an infinite or
+     * NaN part cannot be stored in the numeric columns, so the result is cleared and
+     * the display string says why.
+     *
+     * @param calc calculation to update
+     * @param z computed impedance
+     */
+    static void applyResult(Calculation calc, Complex z) {
+        if (!Double.isFinite(z.re()) || !Double.isFinite(z.im()) || !Double.isFinite(z.magnitude())) {
+            clearResult(calc, "impedance " + z + " is not finite");
+            return;
+        }
+        calc.setResultRe(z.re());
+        calc.setResultIm(z.im());
+        calc.setMagnitude(z.magnitude());
+        calc.setPhase(Math.toDegrees(Math.atan2(z.im(), z.re())));
+        calc.setResult(z + " (|Z| = " + NumberFormatter.format(z.magnitude()) + " Ω)");
+    }
+
+    /**
+     * Clear the numeric result of a calculation that could not be evaluated.
+     *
+     * @param calc calculation to update
+     * @param reason error message shown instead of the result
+     */
+    static void clearResult(Calculation calc, String reason) {
+        calc.setResultRe(null);
+        calc.setResultIm(null);
+        calc.setMagnitude(null);
+        calc.setPhase(null);
+        calc.setResult("Calculation error: " + reason);
+    }
+}
@@ -0,0 +1,326 @@
+package com.mycompany.controller;
+
+import com.mycompany.model.CircuitElement;
+import com.mycompany.model.Complex;
+import com.mycompany.model.ExpressionLimits;
+import com.mycompany.model.ExpressionParser;
+import com.mycompany.model.FrequencySweep;
+import com.mycompany.model.InvalidCircuitException;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.annotation.WebInitParam;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams very large frequency sweeps as NDJSON or CSV.
+ *
+ * Example: {@code /sweep/stream?expression=parallel(R:100,C:1e-6)&start=1&stop=1e6&points=1000000&format=csv}
+ *
+ * The sweep is computed in chunks of {@value #CHUNK_POINTS} points with non-blocking
+ * servlet I/O: a chunk is computed and written only when the container reports that
+ * the output stream is ready. When the client reads slowly, the stream stops being
+ * ready and computation pauses until the container calls
+ * {@link WriteListener#onWritePossible()} again. Memory per request is therefore
+ * bounded by one chunk, and the first chunk is sent as soon as it is computed,
+ * regardless of the sweep size.
+ *
+ * A stream ends after {@code timeoutSeconds} (init parameter, default
+ * {@value #DEFAULT_TIMEOUT_SECONDS}) in total, or earlier when the client has not
+ * accepted any data for {@code idleTimeoutSeconds} (default
+ * {@value #DEFAULT_IDLE_TIMEOUT_SECONDS}); the async context is then completed, so a
+ * client that stops reading does not hold the request, and its admission slot, forever.
+ * Writing a chunk and completing the stream exclude each other, so the watchdog
+ * thread never completes the stream while a container thread is writing to it.
+ *
+ * Parameters: {@code expression}, {@code start}, {@code stop}, {@code points}
+ * (default 1000, at most {@value FrequencySweep#MAX_STREAMING_POINTS}), {@code scale}
+ * (log or linear, default log) and {@code format} (ndjson or csv, default ndjson).
+ * Points at which the circuit cannot be evaluated carry an error instead of a result.
+ * The expression and the number of points are checked against the "sweep.stream"
+ * {@link ExpressionLimits} before parsing; violations are answered with 400.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.3
+ */
+@WebServlet(name = "SweepStreamServlet", urlPatterns = {"/sweep/stream"}, asyncSupported = true,
+        initParams = {
+                @WebInitParam(name = "timeoutSeconds", value = "600"),
+                @WebInitParam(name = "idleTimeoutSeconds", value = "30")
+        })
+public class SweepStreamServlet extends HttpServlet {
+
+    static final int CHUNK_POINTS = 1024;
+    static final int DEFAULT_POINTS = 1000;
+    static final long DEFAULT_TIMEOUT_SECONDS = 600;
+    static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 30;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private ExpressionLimits limits = ExpressionLimits.DEFAULT.withMaxPoints(FrequencySweep.MAX_STREAMING_POINTS);
+    private long timeoutMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT_SECONDS);
+    private long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(DEFAULT_IDLE_TIMEOUT_SECONDS);
+    private ScheduledExecutorService watchdog;
+
+    @Override
+    public void init() throws ServletException {
+        limits = ExpressionLimits.resolve("sweep.stream", limits, getServletContext()::getInitParameter);
+        timeoutMillis = TimeUnit.SECONDS.toMillis(seconds(getInitParameter("timeoutSeconds"), DEFAULT_TIMEOUT_SECONDS));
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(seconds(getInitParameter("idleTimeoutSeconds"), DEFAULT_IDLE_TIMEOUT_SECONDS));
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "impedance-sweep-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (watchdog != null) watchdog.shutdownNow();
+    }
+
+    private static long seconds(String s, long fallback) {
+        if (s == null || s.isBlank()) return fallback;
+        try {
+            long v = Long.parseLong(s.trim());
+            return v > 0 ? v : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Validate the parameters and start streaming the sweep.
+     *
+     * @param req HTTP request
+     * @param resp HTTP response
+     * @throws ServletException on servlet errors
+     * @throws IOException on I/O errors
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        String format = req.getParameter("format");
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (format != null && !format.isBlank() && !csv && !"ndjson".equalsIgnoreCase(format)) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be ndjson or csv");
+            return;
+        }
+        String scale = req.getParameter("scale");
+        boolean linear = "linear".equalsIgnoreCase(scale);
+        if (scale != null && !scale.isBlank() && !linear && !"log".equalsIgnoreCase(scale)) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "scale must be log or linear");
+            return;
+        }
+
+        CircuitElement element;
+        FrequencySweep sweep;
+        try {
+            String expression = req.getParameter("expression");
+            if (expression == null || expression.isBlank()) throw new IllegalArgumentException("expression is required");
+            String pointsStr = req.getParameter("points");
+            int points = pointsStr == null || pointsStr.isBlank() ? DEFAULT_POINTS : Integer.parseInt(pointsStr.trim());
+            limits.checkPoints(points);
+            element = ExpressionParser.parse(expression, limits);
+            sweep = FrequencySweep.forStreaming(parseNumber(req, "start"), parseNumber(req, "stop"), points, !linear);
+            element.getImpedance(sweep.frequency(0));
+        } catch (IllegalArgumentException | InvalidCircuitException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        resp.setContentType((csv ? "text/csv" : "application/x-ndjson") + ";charset=UTF-8");
+        AsyncContext async = req.startAsync();
+        async.setTimeout(timeoutMillis);
+        ServletOutputStream out = resp.getOutputStream();
+        SweepWriter writer = new SweepWriter(async, out, element, sweep, csv);
+        async.addListener(writer);
+        writer.watch(watchdog, idleTimeoutNanos);
+        out.setWriteListener(writer);
+    }
+
+    private static double parseNumber(HttpServletRequest req, String name) {
+        String s = req.getParameter(name);
+        if (s == null || s.isBlank()) throw new IllegalArgumentException(name + " is required");
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
+    /**
+     * Computes and writes one chunk at a time while the output stream is ready, and
+     * completes the stream when it is done, fails, times out or stays idle too long.
+     */
+    private static final class SweepWriter implements WriteListener, AsyncListener {
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final CircuitElement element;
+        private final FrequencySweep sweep;
+        private final boolean csv;
+        private final StringBuilder buffer = new StringBuilder(CHUNK_POINTS * 96);
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long lastProgress = System.nanoTime();
+        private volatile ScheduledFuture<?> idleCheck;
+        private int next;
+
+        SweepWriter(AsyncContext async, ServletOutputStream out, CircuitElement element, FrequencySweep sweep,
+                    boolean csv) {
+            this.async = async;
+            this.out = out;
+            this.element = element;
+            this.sweep = sweep;
+            this.csv = csv;
+        }
+
+        /**
+         * Check every half idle timeout whether the client has accepted data recently.
+         */
+        void watch(ScheduledExecutorService scheduler, long idleNanos) {
+            if (scheduler == null) return;
+            long period = Math.max(1, idleNanos / 2);
+            idleCheck = scheduler.scheduleWithFixedDelay(() -> {
+                if (System.nanoTime() - lastProgress > idleNanos) finish();
+            }, period, period, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Complete the stream once, whichever of end, error, timeout or idleness comes first.
+         * Runs on container threads and on the watchdog thread, never during a write.
+         */
+        private synchronized void finish() {
+            ScheduledFuture<?> check = idleCheck;
+            if (check != null) check.cancel(false);
+            if (!finished.compareAndSet(false, true)) return;
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container.
+            }
+        }
+
+        @Override
+        public synchronized void onWritePossible() throws IOException {
+            try {
+                while (!finished.get() && out.isReady()) {
+                    if (next >= sweep.size()) {
+                        finish();
+                        return;
+                    }
+                    boolean first = next == 0;
+                    byte[] chunk = encodeChunk();
+                    if (finished.get()) return;
+                    out.write(chunk);
+                    lastProgress = System.nanoTime();
+                    if (first && !finished.get() && out.isReady()) out.flush();
+                }
+            } catch (IllegalStateException e) {
+                // The container completed the request, for example after an error.
+                if (!finished.get()) throw e;
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            finish();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finished.set(true);
+            ScheduledFuture<?> check = idleCheck;
+            if (check != null) check.cancel(false);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finish();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finish();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private byte[] encodeChunk() {
+            buffer.setLength(0);
+            if (next == 0 && csv) buffer.append("frequency,re,im,magnitude,phase,error\r\n");
+            int end = Math.min(sweep.size(), next + CHUNK_POINTS);
+            for (int i = next; i < end; i++) {
+                double f = sweep.frequency(i);
+                Complex z = null;
+                String error = null;
+                try {
+                    z = element.getImpedance(f);
+                } catch (InvalidCircuitException e) {
+                    error = e.getMessage();
+                }
+                if (csv) appendCsv(f, z, error);
+                else appendJson(f, z, error);
+            }
+            next = end;
+            return buffer.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void appendCsv(double f, Complex z, String error) {
+            buffer.append(f).append(',');
+            if (z != null) {
+                buffer.append(z.re()).append(',').append(z.im()).append(',').append(z.magnitude()).append(',')
+                        .append(Math.toDegrees(Math.atan2(z.im(), z.re()))).append(",\r\n");
+            } else {
+                buffer.append(",,,,\"").append(error == null ? "" : error.replace("\"", "\"\"")).append("\"\r\n");
+            }
+        }
+
+        private void appendJson(double f, Complex z, String error) {
+            buffer.append("{\"frequency\":");
+            appendJsonNumber(f);
+            if (z != null) {
+                buffer.append(",\"re\":");
+                appendJsonNumber(z.re());
+                buffer.append(",\"im\":");
+                appendJsonNumber(z.im());
+                buffer.append(",\"magnitude\":");
+                appendJsonNumber(z.magnitude());
+                buffer.append(",\"phase\":");
+                appendJsonNumber(Math.toDegrees(Math.atan2(z.im(), z.re())));
+            } else {
+                buffer.append(",\"error\":\"");
+                String s = error == null ? "" : error;
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    if (c == '"' || c == '\\') buffer.append('\\').append(c);
+                    else if (c < 0x20) buffer.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+                    else buffer.append(c);
+                }
+                buffer.append('"');
+            }
+            buffer.append("}\n");
+        }
+
+        private void appendJsonNumber(double v) {
+            if (Double.isNaN(v) || Double.isInfinite(v)) buffer.append("null");
+            else buffer.append(v);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.mycompany.controller;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streams the contents of a database table as CSV or NDJSON.
+ *
+ * Rows are read through a forward-only, read-only JDBC cursor with a fixed fetch
+ * size and written to the given writer one by one, so memory use does not depend
+ * on the table size: at most one fetch block of rows and the writer's buffer are
+ * held at any time. Only the tables in {@link #EXPORTABLE_TABLES} can be exported.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+final class TableExporter {
+
+    /**
+     * Tables that may be exported.
+     */
+    static final Set<String> EXPORTABLE_TABLES = Set.of("CALCULATION", "COMPONENT", "CIRCUIT");
+
+    /**
+     * Number of rows fetched from the database per round trip.
+     */
+    static final int FETCH_SIZE = 500;
+
+    /**
+     * Supported output formats.
+     */
+    enum Format {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Parse a format name, defaulting to CSV.
+         *
+         * @param name "csv" or "ndjson" (case-insensitive), may be null
+         * @return format
+         * @throws IllegalArgumentException for unknown names
+         */
+        static Format parse(String name) {
+            if (name == null || name.isBlank() || name.equalsIgnoreCase("csv")) return CSV;
+            if (name.equalsIgnoreCase("ndjson")) return NDJSON;
+            throw new IllegalArgumentException("Unknown export format: " + name);
+        }
+    }
+
+    private final DataSource dataSource;
+
+    TableExporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Normalize and validate a table name.
+     *
+     * @param table requested table name
+     * @return upper-case table name
+     * @throws IllegalArgumentException when the table is not exportable
+     */
+    static String checkTable(String table) {
+        String t = table == null ? "" : table.trim().toUpperCase(Locale.ROOT);
+        if (!EXPORTABLE_TABLES.contains(t)) throw new IllegalArgumentException("Table cannot be exported: " + table);
+        return t;
+    }
+
+    /**
+     * Stream all rows of the table to the writer.
+     *
+     * @param table validated table name (see {@link #checkTable(String)})
+     * @param format output format
+     * @param out destination writer; flushed but not closed
+     * @return number of exported rows
+     * @throws SQLException on database errors
+     * @throws IOException on write errors
+     */
+    long export(String table, Format format, Writer out) throws SQLException, IOException {
+        long rows = 0;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM " + checkTable(table),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int cols = meta.getColumnCount();
+                String[] names = new String[cols];
+                for (int i = 0; i < cols; i++) names[i] = meta.getColumnLabel(i + 1);
+
+                if (format == Format.CSV) {
+                    for (int i = 0; i < cols; i++) {
+                        if (i > 0) out.write(',');
+                        writeCsvField(out, names[i]);
+                    }
+                    out.write("\r\n");
+                }
+                while (rs.next()) {
+                    if (format == Format.CSV) writeCsvRow(rs, cols, out);
+                    else writeJsonRow(rs, names, out);
+                    rows++;
+                }
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    private static void writeCsvRow(ResultSet rs, int cols, Writer out) throws SQLException, IOException {
+        for (int i = 1; i <= cols; i++) {
+            if (i > 1) out.write(',');
+            Object v = rs.getObject(i);
+            if (v != null) writeCsvField(out, v.toString());
+        }
+        out.write("\r\n");
+    }
+
+    private static void writeCsvField(Writer out, String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static void writeJsonRow(ResultSet rs, String[] names, Writer out) throws SQLException, IOException {
+        out.write('{');
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) out.write(',');
+            writeJsonString(out, names[i]);
+            out.write(':');
+            Object v = rs.getObject(i + 1);
+            if (v == null) {
+                out.write("null");
+            } else if (v instanceof Number n) {
+                double d = n.doubleValue();
+                out.write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : n.toString());
+            } else if (v instanceof Boolean) {
+                out.write(v.toString());
+            } else {
+                writeJsonString(out, v.toString());
+            }
+        }
+        out.write("}\n");
+    }
+
+    private static void writeJsonString(Writer out, String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
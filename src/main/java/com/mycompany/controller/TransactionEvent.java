@@ -0,0 +1,41 @@
+package com.mycompany.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a database transaction of the calculation service.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@Name("com.mycompany.impedance.Transaction")
+@Label("Database Transaction")
+@Category({"Impedance Calculator", "Database"})
+@Description("JPA transaction or table export of the calculation service")
+@StackTrace(false)
+final class TransactionEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Fill in the fields and commit, when the event is enabled and above its threshold.
+     *
+     * @param name operation name
+     * @param succeeded whether the transaction committed
+     */
+    void finish(String name, boolean succeeded) {
+        if (shouldCommit()) {
+            operation = name;
+            success = succeeded;
+            commit();
+        }
+    }
+}
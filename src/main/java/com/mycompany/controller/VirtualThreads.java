@@ -0,0 +1,58 @@
+package com.mycompany.controller;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without requiring Java 21 at compile time.
+ *
+ * The application is compiled for Java 16 by default; when it runs on Java 21 or
+ * newer, {@code Executors.newVirtualThreadPerTaskExecutor()} is looked up
+ * reflectively and used for the virtual-thread execution mode.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+final class VirtualThreads {
+
+    private static final MethodHandle NEW_EXECUTOR = lookup();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle lookup() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true when the running JVM supports virtual threads
+     */
+    static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that starts a new virtual thread for each task.
+     *
+     * @return executor service
+     * @throws UnsupportedOperationException when the JVM has no virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR == null) throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.mycompany.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Compact copy of a calculation removed by the retention job.
+ *
+ * Only the numeric result is kept, with the circuit's hash and definition: the
+ * retention job deletes circuits that no remaining calculation refers to, so the
+ * CIRCUIT row may no longer exist.
+ */
+@Entity
+@Table(name = "ARCHIVED_CALCULATION", indexes = {
+        @Index(name = "IDX_ARCHIVED_CALCULATION_CIRCUIT", columnList = "CIRCUIT_HASH")
+})
+public class ArchivedCalculation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Id of the original calculation.
+     */
+    @Id
+    @Column(name = "ID")
+    private Long id;
+
+    @Column(name = "NAME")
+    private String name;
+
+    @Column(name = "FREQUENCY")
+    private Double frequency;
+
+    @Column(name = "RESULT_RE")
+    private Double resultRe;
+
+    @Column(name = "RESULT_IM")
+    private Double resultIm;
+
+    @Column(name = "CIRCUIT_HASH", length = 64)
+    private String circuitHash;
+
+    @Column(name = "CIRCUIT_DEFINITION", length = 4000)
+    private String circuitDefinition;
+
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt;
+
+    @Column(name = "ARCHIVED_AT")
+    private LocalDateTime archivedAt;
+
+    public ArchivedCalculation() {}
+
+    /**
+     * Copy the archived fields of a calculation.
+     *
+     * @param calc calculation to archive
+     * @param archivedAt archival time
+     */
+    public ArchivedCalculation(Calculation calc, LocalDateTime archivedAt) {
+        this.id = calc.getId();
+        this.name = calc.getName();
+        this.frequency = calc.getFrequency();
+        this.resultRe = calc.getResultRe();
+        this.resultIm = calc.getResultIm();
+        this.circuitHash = calc.getCircuit() == null ? null : calc.getCircuit().getHash();
+        this.circuitDefinition = calc.getCircuit() == null ? null : calc.getCircuit().getDefinition();
+        this.createdAt = calc.getCreatedAt();
+        this.archivedAt = archivedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Double getFrequency() {
+        return frequency;
+    }
+
+    public Double getResultRe() {
+        return resultRe;
+    }
+
+    public Double getResultIm() {
+        return resultIm;
+    }
+
+    public String getCircuitHash() {
+        return circuitHash;
+    }
+
+    public String getCircuitDefinition() {
+        return circuitDefinition;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedCalculation{id=" + id + ", name='" + name + '\'' + ", frequency=" + frequency + '}';
+    }
+}
@@ -2,17 +2,121 @@ package com.mycompany.entities;
 
 import jakarta.persistence.*;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "CALCULATION")
+@Cacheable
+@Table(name = "CALCULATION", indexes = {
+        @Index(name = "IDX_CALCULATION_MAGNITUDE", columnList = "MAGNITUDE, FREQUENCY"),
+        @Index(name = "IDX_CALCULATION_FREQUENCY", columnList = "FREQUENCY, MAGNITUDE"),
+        @Index(name = "IDX_CALCULATION_CIRCUIT", columnList = "CIRCUIT_HASH, ID"),
+        @Index(name = "IDX_CALCULATION_CREATED", columnList = "CREATED_AT"),
+        @Index(name = "IDX_CALCULATION_NAME", columnList = "NAME, ID")
+})
+@NamedEntityGraph(name = Calculation.WITH_COMPONENTS,
+        attributeNodes = @NamedAttributeNode(value = "circuit", subgraph = "circuitComponents"),
+        subgraphs = @NamedSubgraph(name = "circuitComponents", attributeNodes = @NamedAttributeNode("components")))
+@NamedQueries({
+        @NamedQuery(name = Calculation.PAGE_IDS,
+                query = "SELECT c.id FROM Calculation c WHERE c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = Calculation.FETCH_BY_IDS,
+                query = "SELECT c FROM Calculation c WHERE c.id IN :ids ORDER BY c.id"),
+        @NamedQuery(name = Calculation.FIND_BY_CIRCUIT,
+                query = "SELECT c FROM Calculation c WHERE c.circuit.hash = :hash AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = Calculation.FIND_BY_MAGNITUDE_AND_FREQUENCY,
+                query = "SELECT c FROM Calculation c WHERE c.magnitude BETWEEN :magMin AND :magMax"
+                        + " AND c.frequency BETWEEN :freqMin AND :freqMax AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = Calculation.PAGE_IDS_CREATED_BEFORE,
+                query = "SELECT c.id FROM Calculation c WHERE c.createdAt < :cutoff AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = Calculation.PAGE_IDS_UP_TO,
+                query = "SELECT c.id FROM Calculation c WHERE c.id > :after AND c.id <= :upTo ORDER BY c.id"),
+        @NamedQuery(name = Calculation.PAGE_IDS_BY_NAME_UP_TO,
+                query = "SELECT c.id FROM Calculation c WHERE c.name = :name AND c.id > :after AND c.id <= :upTo ORDER BY c.id"),
+        @NamedQuery(name = Calculation.IDS_DESCENDING,
+                query = "SELECT c.id FROM Calculation c ORDER BY c.id DESC"),
+        @NamedQuery(name = Calculation.IDS_BY_NAME_DESCENDING,
+                query = "SELECT c.id FROM Calculation c WHERE c.name = :name ORDER BY c.id DESC"),
+        @NamedQuery(name = Calculation.NAMES_OVER_LIMIT,
+                query = "SELECT c.name FROM Calculation c WHERE c.name IS NOT NULL GROUP BY c.name HAVING COUNT(c) > :max"),
+        @NamedQuery(name = Calculation.PAGE_IDS_CREATED_UNKNOWN,
+                query = "SELECT c.id FROM Calculation c WHERE c.createdAt IS NULL AND c.id > :after ORDER BY c.id"),
+        @NamedQuery(name = Calculation.CIRCUIT_HASHES_IN_USE,
+                query = "SELECT DISTINCT c.circuit.hash FROM Calculation c WHERE c.circuit.hash IN :hashes")
+})
 public class Calculation implements Serializable {
 
+    /**
+     * Keyset page of ids: ids greater than {@code :after}, ascending.
+     */
+    public static final String PAGE_IDS = "Calculation.pageIds";
+
+    /**
+     * Calculations for the ids in {@code :ids}; use with the {@link #WITH_COMPONENTS} graph.
+     */
+    public static final String FETCH_BY_IDS = "Calculation.fetchByIds";
+
+    /**
+     * Calculations of the circuit with hash {@code :hash}, keyset-paginated by {@code :after}.
+     */
+    public static final String FIND_BY_CIRCUIT = "Calculation.findByCircuit";
+
+    /**
+     * Entity graph loading the circuit and its components together with the calculation.
+     */
+    public static final String WITH_COMPONENTS = "Calculation.withComponents";
+
+    /**
+     * Calculations with |Z| in [{@code :magMin}, {@code :magMax}] and frequency in
+     * [{@code :freqMin}, {@code :freqMax}], keyset-paginated by {@code :after}.
+     */
+    public static final String FIND_BY_MAGNITUDE_AND_FREQUENCY = "Calculation.findByMagnitudeAndFrequency";
+
+    /**
+     * Keyset page of ids of calculations created before {@code :cutoff}.
+     */
+    public static final String PAGE_IDS_CREATED_BEFORE = "Calculation.pageIdsCreatedBefore";
+
+    /**
+     * Keyset page of ids in ({@code :after}, {@code :upTo}].
+     */
+    public static final String PAGE_IDS_UP_TO = "Calculation.pageIdsUpTo";
+
+    /**
+     * Keyset page of ids in ({@code :after}, {@code :upTo}] of calculations named {@code :name}.
+     */
+    public static final String PAGE_IDS_BY_NAME_UP_TO = "Calculation.pageIdsByNameUpTo";
+
+    /**
+     * All ids, newest first.
+     */
+    public static final String IDS_DESCENDING = "Calculation.idsDescending";
+
+    /**
+     * Ids of calculations named {@code :name}, newest first.
+     */
+    public static final String IDS_BY_NAME_DESCENDING = "Calculation.idsByNameDescending";
+
+    /**
+     * Names used by more than {@code :max} calculations.
+     */
+    public static final String NAMES_OVER_LIMIT = "Calculation.namesOverLimit";
+
+    /**
+     * Keyset page of ids of calculations without a creation time.
+     */
+    public static final String PAGE_IDS_CREATED_UNKNOWN = "Calculation.pageIdsCreatedUnknown";
+
+    /**
+     * Those of the circuit hashes in {@code :hashes} that some calculation refers to.
+     */
+    public static final String CIRCUIT_HASHES_IN_USE = "Calculation.circuitHashesInUse";
+
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = "CALCULATION_SEQ", sequenceName = "CALCULATION_SEQ", allocationSize = 100)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "CALCULATION_SEQ")
     @Column(name = "ID")
     private Long id;
 
@@ -25,11 +129,38 @@ public class Calculation implements Serializable {
     @Column(name = "RESULT")
     private String result;
 
-    @OneToMany(mappedBy = "calculation", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Component> components = new ArrayList<>();
+    @Column(name = "RESULT_RE")
+    private Double resultRe;
+
+    @Column(name = "RESULT_IM")
+    private Double resultIm;
+
+    @Column(name = "MAGNITUDE")
+    private Double magnitude;
+
+    /**
+     * Phase angle of the impedance in degrees.
+     */
+    @Column(name = "PHASE")
+    private Double phase;
+
+    /**
+     * Circuit definition, shared by all calculations of structurally identical circuits.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "CIRCUIT_HASH")
+    private Circuit circuit;
+
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt;
 
     public Calculation() {}
 
+    @PrePersist
+    void onPersist() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+    }
+
     public Long getId() {
         return id;
     }
@@ -60,24 +191,61 @@ public class Calculation implements Serializable {
         this.result = result;
     }
 
-    public List<Component> getComponents() {
-        return components;
+    public Double getResultRe() {
+        return resultRe;
+    }
+
+    public void setResultRe(Double resultRe) {
+        this.resultRe = resultRe;
+    }
+
+    public Double getResultIm() {
+        return resultIm;
+    }
+
+    public void setResultIm(Double resultIm) {
+        this.resultIm = resultIm;
+    }
+
+    public Double getMagnitude() {
+        return magnitude;
+    }
+
+    public void setMagnitude(Double magnitude) {
+        this.magnitude = magnitude;
+    }
+
+    public Double getPhase() {
+        return phase;
     }
 
-    public void setComponents(List<Component> components) {
-        this.components = components;
+    public void setPhase(Double phase) {
+        this.phase = phase;
     }
 
-    public void addComponent(Component c) {
-        if (c == null) return;
-        c.setCalculation(this);
-        this.components.add(c);
+    public Circuit getCircuit() {
+        return circuit;
     }
 
-    public void removeComponent(Component c) {
-        if (c == null) return;
-        c.setCalculation(null);
-        this.components.remove(c);
+    public void setCircuit(Circuit circuit) {
+        this.circuit = circuit;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Components of the referenced circuit.
+     *
+     * @return components in entry order, empty when no circuit is set
+     */
+    public List<Component> getComponents() {
+        return circuit == null ? List.of() : circuit.getComponents();
     }
 
     @Override
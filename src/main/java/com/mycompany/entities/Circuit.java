@@ -0,0 +1,69 @@
+package com.mycompany.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Cacheable
+@Table(name = "CIRCUIT")
+public class Circuit implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Canonical structural hash of the circuit (64 hex characters).
+     */
+    @Id
+    @Column(name = "HASH", length = 64)
+    private String hash;
+
+    @Column(name = "DEFINITION", length = 4000)
+    private String definition;
+
+    @OneToMany(mappedBy = "circuit", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    private List<Component> components = new ArrayList<>();
+
+    public Circuit() {}
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getDefinition() {
+        return definition;
+    }
+
+    public void setDefinition(String definition) {
+        this.definition = definition;
+    }
+
+    public List<Component> getComponents() {
+        return components;
+    }
+
+    public void setComponents(List<Component> components) {
+        this.components = components;
+    }
+
+    public void addComponent(Component c) {
+        if (c == null) return;
+        c.setCircuit(this);
+        this.components.add(c);
+    }
+
+    public void removeComponent(Component c) {
+        if (c == null) return;
+        c.setCircuit(null);
+        this.components.remove(c);
+    }
+
+    @Override
+    public String toString() {
+        return "Circuit{hash='" + hash + '\'' + ", definition='" + definition + '\'' + '}';
+    }
+}
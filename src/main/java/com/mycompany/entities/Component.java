@@ -4,13 +4,15 @@ import jakarta.persistence.*;
 import java.io.Serializable;
 
 @Entity
+@Cacheable
 @Table(name = "COMPONENT")
 public class Component implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SequenceGenerator(name = "COMPONENT_SEQ", sequenceName = "COMPONENT_SEQ", allocationSize = 100)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "COMPONENT_SEQ")
     @Column(name = "ID")
     private Long id;
 
@@ -21,8 +23,8 @@ public class Component implements Serializable {
     private Double value;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "CALCULATION_ID")
-    private Calculation calculation;
+    @JoinColumn(name = "CIRCUIT_HASH")
+    private Circuit circuit;
 
     public Component() {}
 
@@ -42,9 +44,9 @@ public class Component implements Serializable {
 
     public void setValue(Double value) { this.value = value; }
 
-    public Calculation getCalculation() { return calculation; }
+    public Circuit getCircuit() { return circuit; }
 
-    public void setCalculation(Calculation calculation) { this.calculation = calculation; }
+    public void setCircuit(Circuit circuit) { this.circuit = circuit; }
 
     @Override
     public String toString() {
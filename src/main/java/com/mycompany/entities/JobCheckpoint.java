@@ -0,0 +1,154 @@
+package com.mycompany.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a long-running batch job, committed together with each processed
+ * batch so that a restarted job can resume after the last completed batch.
+ */
+@Entity
+@Table(name = "JOB_CHECKPOINT")
+public class JobCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_STOPPED = "STOPPED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_DONE = "DONE";
+
+    @Id
+    @Column(name = "JOB_NAME", length = 64)
+    private String jobName;
+
+    /**
+     * Highest entity id processed so far; the job continues with ids greater than this.
+     */
+    @Column(name = "LAST_ID")
+    private long lastId;
+
+    /**
+     * Highest entity id that existed when the run started, or null for no bound;
+     * rows created by the run itself are not processed again.
+     */
+    @Column(name = "UP_TO_ID")
+    private Long upToId;
+
+    @Column(name = "PROCESSED_COUNT")
+    private long processed;
+
+    @Column(name = "FAILED_COUNT")
+    private long failed;
+
+    /**
+     * Frequency override in Hz, or null to keep the stored frequencies.
+     */
+    @Column(name = "FREQUENCY")
+    private Double frequency;
+
+    @Column(name = "STATUS", length = 16)
+    private String status;
+
+    @Column(name = "MESSAGE", length = 1000)
+    private String message;
+
+    @Column(name = "STARTED_AT")
+    private LocalDateTime startedAt;
+
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+
+    public JobCheckpoint() {}
+
+    public JobCheckpoint(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(long lastId) {
+        this.lastId = lastId;
+    }
+
+    public Long getUpToId() {
+        return upToId;
+    }
+
+    public void setUpToId(Long upToId) {
+        this.upToId = upToId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public Double getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(Double frequency) {
+        this.frequency = frequency;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message == null || message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "JobCheckpoint{jobName='" + jobName + '\'' + ", lastId=" + lastId + ", processed=" + processed
+                + ", status=" + status + '}';
+    }
+}
@@ -0,0 +1,482 @@
+package com.mycompany.impedancecalculatorweb.resources;
+
+import com.mycompany.controller.AdmissionFilter;
+import com.mycompany.controller.AppContextListener;
+import com.mycompany.model.BatchEvaluation;
+import com.mycompany.model.CircuitElement;
+import com.mycompany.model.Complex;
+import com.mycompany.model.ExpressionLimitException;
+import com.mycompany.model.ExpressionLimits;
+import com.mycompany.model.ExpressionParser;
+import com.mycompany.model.FrequencySweep;
+import com.mycompany.model.HistoryPage;
+import com.mycompany.model.ImpedanceModel;
+import com.mycompany.model.InvalidCircuitException;
+import com.mycompany.model.SweepResult;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JSON API for impedance calculations.
+ *
+ * <ul>
+ *   <li>{@code GET impedance?expression=...&frequency=...} — impedance of one circuit at one
+ *       frequency; the calculation is recorded in the history like on the HTML pages.</li>
+ *   <li>{@code GET impedance/sweep?expression=...&start=...&stop=...&points=...&scale=log|linear}
+ *       — impedance over a frequency grid; sweep points are not recorded in the history.</li>
+ *   <li>{@code GET impedance/history?offset=...&limit=...} — entries of the calculation history.</li>
+ *   <li>{@code POST impedance/batch} — many circuits at many frequencies in one request,
+ *       evaluated in parallel and streamed back in request order without holding the
+ *       request thread; see {@link #batch(InputStream)}.</li>
+ * </ul>
+ * Expressions use the syntax of {@link ExpressionParser}. Responses are written with a
+ * {@link JsonGenerator} directly to the response stream. Invalid input yields 400 with
+ * a JSON body {@code {"error": "..."}}.
+ *
+ * Identical single-frequency calculations and sweeps of up to
+ * {@value #MAX_SHARED_SWEEP_POINTS} points that arrive while the same one is being
+ * evaluated share that evaluation (see {@link ImpedanceModel#calculateSweep}).
+ * Larger sweeps are evaluated point by point while the response is written.
+ *
+ * Expressions and point counts are checked against the {@link ExpressionLimits} of
+ * the endpoint ("api.calculate", "api.sweep" or "api.batch", configurable through
+ * context parameters) before anything is parsed; violations yield 400, except for
+ * the circuits of a batch, which report them inline.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.5
+ */
+@Path("impedance")
+@Produces(MediaType.APPLICATION_JSON)
+public class ImpedanceResource {
+
+    /**
+     * Maximum number of history entries returned by one request.
+     */
+    static final int MAX_HISTORY_LIMIT = 1000;
+
+    /**
+     * Maximum number of circuits in one batch request.
+     */
+    static final int MAX_BATCH_CIRCUITS = 10_000;
+
+    /**
+     * Maximum number of evaluations (circuits × frequencies) in one batch request.
+     */
+    static final long MAX_BATCH_EVALUATIONS = 1_000_000L;
+
+    /**
+     * Largest sweep evaluated up front, and shared between identical requests.
+     */
+    static final int MAX_SHARED_SWEEP_POINTS = 65_536;
+
+    /**
+     * Number of batch chunks evaluated ahead of the response.
+     */
+    static final int BATCH_WINDOW = 2 * Runtime.getRuntime().availableProcessors();
+
+    @Context
+    private ServletContext servletContext;
+
+    @Context
+    private HttpServletRequest request;
+
+    private ExpressionLimits limits(String endpoint, ExpressionLimits defaults) {
+        return ExpressionLimits.resolve(endpoint, defaults, servletContext::getInitParameter);
+    }
+
+    private ImpedanceModel model() {
+        return (ImpedanceModel) servletContext.getAttribute(AppContextListener.MODEL_ATTRIBUTE);
+    }
+
+    /**
+     * Calculate the impedance of a circuit at one frequency.
+     *
+     * @param expression circuit expression
+     * @param frequencyParam frequency in Hertz
+     * @return JSON response
+     */
+    @GET
+    public Response calculate(@QueryParam("expression") String expression,
+                              @QueryParam("frequency") String frequencyParam) {
+        ImpedanceModel model = model();
+        if (model == null) return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        if (expression == null || expression.isBlank()) return badRequest("expression is required");
+
+        double frequency;
+        CircuitElement element;
+        Complex z;
+        try {
+            frequency = parseNumber("frequency", frequencyParam);
+            element = ExpressionParser.parse(expression, limits("api.calculate", ExpressionLimits.INTERACTIVE));
+            z = model.calculateImpedanceShared(element, frequency);
+        } catch (IllegalArgumentException | InvalidCircuitException e) {
+            return badRequest(e.getMessage());
+        }
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.write("circuit", element.description());
+                writeNumber(gen, "frequency", frequency);
+                writeImpedance(gen, z);
+                gen.writeEnd();
+            }
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Calculate the impedance of a circuit over a frequency range.
+     *
+     * @param expression circuit expression
+     * @param start first frequency in Hertz
+     * @param stop last frequency in Hertz
+     * @param points number of points
+     * @param scale "log" (default) or "linear"
+     * @return JSON response
+     */
+    @GET
+    @Path("sweep")
+    public Response sweep(@QueryParam("expression") String expression,
+                          @QueryParam("start") String start,
+                          @QueryParam("stop") String stop,
+                          @QueryParam("points") @DefaultValue("50") int points,
+                          @QueryParam("scale") @DefaultValue("log") String scale) {
+        if (expression == null || expression.isBlank()) return badRequest("expression is required");
+        if (!"log".equalsIgnoreCase(scale) && !"linear".equalsIgnoreCase(scale)) {
+            return badRequest("scale must be log or linear");
+        }
+
+        CircuitElement element;
+        FrequencySweep sweep;
+        try {
+            ExpressionLimits limits = limits("api.sweep", ExpressionLimits.DEFAULT);
+            limits.checkPoints(points);
+            element = ExpressionParser.parse(expression, limits);
+            sweep = new FrequencySweep(parseNumber("start", start), parseNumber("stop", stop), points,
+                    "log".equalsIgnoreCase(scale));
+            element.getImpedance(sweep.frequency(0));
+        } catch (IllegalArgumentException | InvalidCircuitException e) {
+            return badRequest(e.getMessage());
+        }
+        ImpedanceModel model = model();
+        SweepResult shared = model != null && sweep.size() <= MAX_SHARED_SWEEP_POINTS
+                ? model.calculateSweep(element, sweep) : null;
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.write("circuit", element.description());
+                gen.write("scale", sweep.isLogarithmic() ? "log" : "linear");
+                gen.writeStartArray("points");
+                for (int i = 0; i < sweep.size(); i++) {
+                    double f = sweep.frequency(i);
+                    gen.writeStartObject();
+                    writeNumber(gen, "frequency", f);
+                    if (shared != null) {
+                        if (shared.getError(i) != null) gen.write("error", shared.getError(i));
+                        else writeImpedance(gen, shared.getImpedance(i));
+                    } else {
+                        try {
+                            writeImpedance(gen, element.getImpedance(f));
+                        } catch (InvalidCircuitException e) {
+                            gen.write("error", e.getMessage());
+                        }
+                    }
+                    gen.writeEnd();
+                }
+                gen.writeEnd();
+                gen.writeEnd();
+            }
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Return entries of the calculation history, oldest first.
+     *
+     * @param offset index of the first entry
+     * @param limit maximum number of entries (at most {@value #MAX_HISTORY_LIMIT})
+     * @return JSON response
+     */
+    @GET
+    @Path("history")
+    public Response history(@QueryParam("offset") @DefaultValue("0") int offset,
+                            @QueryParam("limit") @DefaultValue("100") int limit) {
+        ImpedanceModel model = model();
+        if (model == null) return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        if (offset < 0 || limit < 1) return badRequest("offset must be >= 0 and limit >= 1");
+        int max = Math.min(limit, MAX_HISTORY_LIMIT);
+
+        HistoryPage page = model.getHistoryPage(offset, max);
+
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.write("total", page.total());
+                gen.write("offset", page.offset());
+                gen.writeStartArray("entries");
+                int index = page.offset();
+                for (HistoryPage.Entry entry : page.entries()) {
+                    gen.writeStartObject();
+                    gen.write("index", index++);
+                    gen.write("circuit", entry.element().description());
+                    writeNumber(gen, "frequency", entry.frequencyHz());
+                    writeImpedance(gen, entry.result());
+                    gen.writeEnd();
+                }
+                gen.writeEnd();
+                gen.writeEnd();
+            }
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Evaluate many circuits at many frequencies.
+     *
+     * The request body is a JSON object with the circuit expressions and either an
+     * explicit frequency list or a sweep:
+     * <pre>
+     *   {"circuits": ["R:100", "series(R:10, L:0.01)"], "frequencies": [50, 60, 1000]}
+     *   {"circuits": ["parallel(R:100, C:1e-6)"], "sweep": {"start": 10, "stop": 1e6, "points": 200, "scale": "log"}}
+     * </pre>
+     * The expressions are parsed and evaluated on the shared evaluation executor (see
+     * {@link BatchEvaluation}), at most {@link #BATCH_WINDOW} chunks ahead of the
+     * response. The request thread is released as soon as the batch has started; once
+     * the first chunk is evaluated the response is written on the request executor
+     * while the evaluation goes on: the frequencies once, then one result per circuit
+     * in request order, whose {@code points[i]} belongs to {@code frequencies[i]}.
+     * Every finished chunk is written and flushed as soon as all chunks before it are,
+     * so neither the server nor the client waits for the whole batch. Invalid
+     * expressions, expressions exceeding the limits and failed points carry an inline
+     * {@code error} instead of failing the whole batch. 503 when the evaluation or the
+     * request executor is saturated, 429 when the client's admission budget does not
+     * cover the circuit nodes times the number of frequencies (see
+     * {@link AdmissionFilter#chargeActualCost}).
+     *
+     * @param body JSON request body
+     * @return stage completing with the JSON response
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public CompletionStage<Response> batch(InputStream body) {
+        Executor executor = (Executor) servletContext.getAttribute(AppContextListener.EVALUATION_EXECUTOR_ATTRIBUTE);
+        Executor writer = (Executor) servletContext.getAttribute(AppContextListener.REQUEST_EXECUTOR_ATTRIBUTE);
+        if (executor == null || writer == null) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+        }
+        ExpressionLimits limits = limits("api.batch", ExpressionLimits.DEFAULT);
+        List<String> expressions = new ArrayList<>();
+        long nodes = 0;
+        double[] frequencies;
+        try (JsonReader reader = Json.createReader(body)) {
+            JsonObject spec = reader.readObject();
+            JsonValue circuits = spec.get("circuits");
+            if (!(circuits instanceof JsonArray array)) throw new IllegalArgumentException("circuits must be an array");
+            if (array.size() > MAX_BATCH_CIRCUITS) {
+                throw new IllegalArgumentException("at most " + MAX_BATCH_CIRCUITS + " circuits per batch");
+            }
+            for (JsonValue v : array) {
+                if (!(v instanceof JsonString str)) throw new IllegalArgumentException("circuits must contain strings");
+                String expression = str.getString();
+                expressions.add(expression);
+                try {
+                    limits.check(expression);
+                    nodes += ExpressionLimits.countNodes(expression);
+                } catch (ExpressionLimitException e) {
+                    // reported inline by the evaluation, which parses within the same limits
+                }
+            }
+            frequencies = batchFrequencies(spec, limits);
+            if ((long) expressions.size() * frequencies.length > MAX_BATCH_EVALUATIONS) {
+                throw new IllegalArgumentException("at most " + MAX_BATCH_EVALUATIONS + " evaluations per batch");
+            }
+        } catch (IllegalArgumentException | JsonException | ClassCastException e) {
+            return CompletableFuture.completedFuture(badRequest(e.getMessage()));
+        }
+        long retryAfter = AdmissionFilter.chargeActualCost(request, (double) nodes * frequencies.length);
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(Response.status(429).header("Retry-After", retryAfter).build());
+        }
+
+        BatchEvaluation evaluation;
+        try {
+            evaluation = BatchEvaluation.start(expressions, frequencies, limits, executor, BATCH_WINDOW);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", "1").build());
+        }
+        // Completing on the request executor makes the container write the response there.
+        return evaluation.ready()
+                .thenApplyAsync(ready -> Response.ok(batchOutput(evaluation, frequencies), MediaType.APPLICATION_JSON)
+                        .build(), writer)
+                .exceptionally(e -> {
+                    evaluation.close();
+                    return Response.status(Response.Status.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+                });
+    }
+
+    /**
+     * Write the results of a running batch as they are evaluated, and close it.
+     */
+    private static StreamingOutput batchOutput(BatchEvaluation evaluation, double[] frequencies) {
+        return output -> {
+            try (evaluation; JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.writeStartArray("frequencies");
+                for (double f : frequencies) gen.write(f);
+                gen.writeEnd();
+                gen.writeStartArray("results");
+                BatchEvaluation.Chunk chunk;
+                while ((chunk = evaluation.next()) != null) {
+                    if (chunk.isFirst()) {
+                        gen.writeStartObject();
+                        gen.write("index", chunk.getCircuit());
+                        gen.write("expression", chunk.getExpression());
+                        if (chunk.getError() != null) {
+                            gen.write("error", chunk.getError());
+                        } else {
+                            gen.write("circuit", chunk.getElement().description());
+                            gen.writeStartArray("points");
+                        }
+                    }
+                    if (chunk.getError() == null) {
+                        for (int i = chunk.getFrom(); i < chunk.getTo(); i++) {
+                            gen.writeStartObject();
+                            Complex z = chunk.getImpedance(i);
+                            if (z != null) writeImpedance(gen, z);
+                            else gen.write("error", chunk.getError(i));
+                            gen.writeEnd();
+                        }
+                        if (chunk.isLast()) gen.writeEnd();
+                    }
+                    if (chunk.isLast()) gen.writeEnd();
+                    gen.flush();
+                }
+                gen.writeEnd();
+                gen.writeEnd();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("batch evaluation interrupted");
+            }
+        };
+    }
+
+    /**
+     * Read the frequency grid of a batch request. The number of points is checked
+     * before the grid is allocated.
+     *
+     * @throws IllegalArgumentException when neither a valid list nor a valid sweep is given
+     * @throws ExpressionLimitException when the grid has more points than the limits allow
+     */
+    private static double[] batchFrequencies(JsonObject spec, ExpressionLimits limits) {
+        JsonValue list = spec.get("frequencies");
+        if (list instanceof JsonArray array) {
+            if (array.isEmpty()) throw new IllegalArgumentException("frequencies must not be empty");
+            limits.checkPoints(array.size());
+            double[] frequencies = new double[array.size()];
+            for (int i = 0; i < frequencies.length; i++) {
+                if (!(array.get(i) instanceof JsonNumber n)) throw new IllegalArgumentException("frequencies must contain numbers");
+                frequencies[i] = n.doubleValue();
+                if (!Double.isFinite(frequencies[i])) throw new IllegalArgumentException("frequencies must be finite numbers");
+            }
+            return frequencies;
+        }
+        JsonValue sweepValue = spec.get("sweep");
+        if (sweepValue instanceof JsonObject sweepSpec) {
+            String scale = sweepSpec.getString("scale", "log");
+            if (!"log".equalsIgnoreCase(scale) && !"linear".equalsIgnoreCase(scale)) {
+                throw new IllegalArgumentException("scale must be log or linear");
+            }
+            if (!(sweepSpec.get("start") instanceof JsonNumber) || !(sweepSpec.get("stop") instanceof JsonNumber)) {
+                throw new IllegalArgumentException("sweep start and stop must be numbers");
+            }
+            int points = sweepSpec.getInt("points", 50);
+            limits.checkPoints(points);
+            FrequencySweep sweep = new FrequencySweep(
+                    sweepSpec.getJsonNumber("start").doubleValue(),
+                    sweepSpec.getJsonNumber("stop").doubleValue(),
+                    points,
+                    "log".equalsIgnoreCase(scale));
+            double[] frequencies = new double[sweep.size()];
+            for (int i = 0; i < frequencies.length; i++) frequencies[i] = sweep.frequency(i);
+            return frequencies;
+        }
+        throw new IllegalArgumentException("frequencies or sweep is required");
+    }
+
+    /**
+     * Parse a required numeric query parameter.
+     *
+     * @throws IllegalArgumentException when the parameter is missing or not a finite number
+     */
+    static double parseNumber(String name, String value) {
+        if (value == null || value.isBlank()) throw new IllegalArgumentException(name + " is required");
+        double number;
+        try {
+            number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        if (!Double.isFinite(number)) throw new IllegalArgumentException(name + " must be a finite number");
+        return number;
+    }
+
+    /**
+     * Write the real and imaginary part, magnitude and phase (degrees) of an impedance.
+     * Non-finite values are written as null.
+     */
+    static void writeImpedance(JsonGenerator gen, Complex z) {
+        writeNumber(gen, "re", z.re());
+        writeNumber(gen, "im", z.im());
+        writeNumber(gen, "magnitude", z.magnitude());
+        writeNumber(gen, "phase", Math.toDegrees(Math.atan2(z.im(), z.re())));
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) gen.writeNull(name);
+        else gen.write(name, value);
+    }
+
+    static Response badRequest(String message) {
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.write("error", message == null ? "Invalid request" : message);
+                gen.writeEnd();
+            }
+        };
+        return Response.status(Response.Status.BAD_REQUEST).entity(body).type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.mycompany.impedancecalculatorweb.resources;
+
+import com.mycompany.controller.AppContextListener;
+import com.mycompany.model.ImpedanceModel;
+import com.mycompany.model.Metrics;
+
+import jakarta.servlet.ServletContext;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Prometheus scrape endpoint.
+ *
+ * Returns every timer and counter registered in {@link Metrics} (parse,
+ * evaluation, history write, database and render times, failures and admission
+ * rejections) in the Prometheus text format, followed by the calculation totals of
+ * the {@link ImpedanceModel}. Timers are summaries in seconds.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@Path("metrics")
+public class MetricsResource {
+
+    /**
+     * Content type of the Prometheus text exposition format.
+     */
+    static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Context
+    private ServletContext servletContext;
+
+    /**
+     * Return all metrics in the Prometheus text format.
+     *
+     * @return text response
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    public Response metrics() {
+        StringBuilder out = Metrics.writePrometheus(new StringBuilder(8192));
+        ImpedanceModel model = (ImpedanceModel) servletContext.getAttribute(AppContextListener.MODEL_ATTRIBUTE);
+        if (model != null) {
+            write(out, "impedance_calculations_total", "counter",
+                    "Calculations recorded in the history since startup", model.getStatistics().getTotal());
+            write(out, "impedance_coalesced_calculations_total", "counter",
+                    "Requests answered by an identical calculation already in flight", model.getCoalescedCalculations());
+            write(out, "impedance_history_entries", "gauge",
+                    "Entries currently held in the calculation history", model.getHistorySize());
+        }
+        return Response.ok(out.toString(), PROMETHEUS_TEXT).build();
+    }
+
+    private static void write(StringBuilder out, String name, String type, String help, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n')
+                .append(name).append(' ').append(value).append('\n');
+    }
+}
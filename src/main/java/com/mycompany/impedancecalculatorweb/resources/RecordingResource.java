@@ -0,0 +1,257 @@
+package com.mycompany.impedancecalculatorweb.resources;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Admin endpoint controlling a Java Flight Recorder recording.
+ *
+ * <ul>
+ *   <li>{@code GET admin/recording} — state of the current recording.</li>
+ *   <li>{@code POST admin/recording/start?maxAge=...&maxSize=...&duration=...} — start a
+ *       recording with the JDK "default" settings and the application's events
+ *       (parse, evaluation, history append, database transaction, page render).
+ *       It keeps at most {@code maxAge} seconds (default {@value #DEFAULT_MAX_AGE_SECONDS})
+ *       and {@code maxSize} MiB (default {@value #DEFAULT_MAX_SIZE_MB}) of data and stops
+ *       by itself after {@code duration} seconds (default {@value #DEFAULT_DURATION_SECONDS}),
+ *       all capped by the MAX_ constants. 409 when a recording is already running.</li>
+ *   <li>{@code POST admin/recording/dump} — write the data recorded so far to disk.</li>
+ *   <li>{@code POST admin/recording/stop} — stop the recording, write it to disk and
+ *       discard it.</li>
+ * </ul>
+ * Files are written to the directory in the {@value #DIRECTORY_PARAM} context
+ * parameter (default: the temporary directory) under generated names, which are
+ * returned as JSON. Only one recording is managed at a time.
+ *
+ * The endpoint is disabled (404) unless the {@value #ENABLED_PARAM} context parameter
+ * is "true", and then only serves authenticated users in the {@value #ADMIN_ROLE}
+ * role (403 otherwise). The role is declared, and required by a security constraint
+ * on {@code /resources/admin/*}, in web.xml; the container maps it to users in
+ * glassfish-web.xml. The client address is not trusted, since behind a reverse proxy
+ * every request comes from the proxy.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+@Path("admin/recording")
+@Produces(MediaType.APPLICATION_JSON)
+public class RecordingResource {
+
+    static final String DIRECTORY_PARAM = "impedance.jfr.directory";
+
+    /**
+     * Context parameter that enables the endpoint when "true".
+     */
+    public static final String ENABLED_PARAM = "impedance.jfr.enabled";
+
+    /**
+     * Security role required to use the endpoint.
+     */
+    public static final String ADMIN_ROLE = "impedance-admin";
+
+    static final long DEFAULT_MAX_AGE_SECONDS = 600;
+    static final long MAX_MAX_AGE_SECONDS = 3600;
+    static final long DEFAULT_MAX_SIZE_MB = 64;
+    static final long MAX_MAX_SIZE_MB = 512;
+    static final long DEFAULT_DURATION_SECONDS = 900;
+    static final long MAX_DURATION_SECONDS = 6 * 3600;
+
+    private static final String RECORDING_NAME = "impedance-calculator";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * The managed recording; guarded by the class lock.
+     */
+    private static Recording recording;
+
+    @Context
+    private ServletContext servletContext;
+
+    @Context
+    private HttpServletRequest request;
+
+    /**
+     * @return state of the current recording
+     */
+    @GET
+    public Response status() {
+        Response denied = checkAccess();
+        if (denied != null) return denied;
+        synchronized (RecordingResource.class) {
+            return json(recording, null);
+        }
+    }
+
+    /**
+     * Start a bounded recording.
+     *
+     * @param maxAge seconds of data to keep
+     * @param maxSize MiB of data to keep
+     * @param duration seconds after which the recording stops
+     * @return state of the new recording
+     */
+    @POST
+    @Path("start")
+    public Response start(@QueryParam("maxAge") @DefaultValue("" + DEFAULT_MAX_AGE_SECONDS) long maxAge,
+                          @QueryParam("maxSize") @DefaultValue("" + DEFAULT_MAX_SIZE_MB) long maxSize,
+                          @QueryParam("duration") @DefaultValue("" + DEFAULT_DURATION_SECONDS) long duration) {
+        Response denied = checkAccess();
+        if (denied != null) return denied;
+        if (!FlightRecorder.isAvailable()) return error(Response.Status.SERVICE_UNAVAILABLE, "Flight Recorder is not available");
+        synchronized (RecordingResource.class) {
+            if (recording != null && recording.getState() == RecordingState.RUNNING) {
+                return error(Response.Status.CONFLICT, "a recording is already running");
+            }
+            discard();
+            Recording r;
+            try {
+                r = new Recording(Configuration.getConfiguration("default"));
+            } catch (IOException | ParseException e) {
+                return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+            }
+            r.setName(RECORDING_NAME);
+            r.setToDisk(true);
+            r.setMaxAge(Duration.ofSeconds(clamp(maxAge, MAX_MAX_AGE_SECONDS)));
+            r.setMaxSize(clamp(maxSize, MAX_MAX_SIZE_MB) * 1024 * 1024);
+            r.setDuration(Duration.ofSeconds(clamp(duration, MAX_DURATION_SECONDS)));
+            r.start();
+            recording = r;
+            return json(r, null);
+        }
+    }
+
+    /**
+     * Write the data recorded so far to disk and keep recording.
+     *
+     * @return state of the recording and the written file
+     */
+    @POST
+    @Path("dump")
+    public Response dump() {
+        Response denied = checkAccess();
+        if (denied != null) return denied;
+        synchronized (RecordingResource.class) {
+            if (recording == null) return error(Response.Status.NOT_FOUND, "no recording");
+            try {
+                return json(recording, writeFile(recording));
+            } catch (IOException e) {
+                return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop the recording, write it to disk and discard it.
+     *
+     * @return the written file
+     */
+    @POST
+    @Path("stop")
+    public Response stop() {
+        Response denied = checkAccess();
+        if (denied != null) return denied;
+        synchronized (RecordingResource.class) {
+            if (recording == null) return error(Response.Status.NOT_FOUND, "no recording");
+            try {
+                if (recording.getState() == RecordingState.RUNNING) recording.stop();
+                return json(recording, writeFile(recording));
+            } catch (IOException e) {
+                return error(Response.Status.INTERNAL_SERVER_ERROR, e.getMessage());
+            } finally {
+                discard();
+            }
+        }
+    }
+
+    private static void discard() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private java.nio.file.Path writeFile(Recording r) throws IOException {
+        String dir = servletContext.getInitParameter(DIRECTORY_PARAM);
+        java.nio.file.Path directory = Paths.get(dir == null || dir.isBlank() ? System.getProperty("java.io.tmpdir") : dir.trim());
+        Files.createDirectories(directory);
+        java.nio.file.Path file = directory.resolve(RECORDING_NAME + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        for (int i = 1; Files.exists(file); i++) {
+            file = directory.resolve(RECORDING_NAME + "-" + LocalDateTime.now().format(FILE_TIME) + "-" + i + ".jfr");
+        }
+        r.dump(file);
+        return file.toAbsolutePath();
+    }
+
+    /**
+     * @return the error response when the endpoint is disabled or the user is not an
+     *         administrator, or null when the request may proceed
+     */
+    private Response checkAccess() {
+        if (!"true".equalsIgnoreCase(servletContext.getInitParameter(ENABLED_PARAM))) {
+            return error(Response.Status.NOT_FOUND, "recording control is disabled");
+        }
+        if (request.getUserPrincipal() == null || !request.isUserInRole(ADMIN_ROLE)) {
+            return error(Response.Status.FORBIDDEN, "recording control requires the " + ADMIN_ROLE + " role");
+        }
+        return null;
+    }
+
+    private static long clamp(long value, long max) {
+        return Math.max(1, Math.min(max, value));
+    }
+
+    private static Response json(Recording r, java.nio.file.Path file) {
+        String state = r == null ? "NONE" : r.getState().name();
+        String started = r == null || r.getStartTime() == null ? null : r.getStartTime().toString();
+        Long maxAge = r == null || r.getMaxAge() == null ? null : r.getMaxAge().toSeconds();
+        Long maxSize = r == null ? null : r.getMaxSize();
+        Long size = r == null ? null : r.getSize();
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.write("state", state);
+                if (started != null) gen.write("startTime", started);
+                if (maxAge != null) gen.write("maxAgeSeconds", maxAge);
+                if (maxSize != null) gen.write("maxSizeBytes", maxSize);
+                if (size != null) gen.write("sizeBytes", size);
+                if (file != null) gen.write("file", file.toString());
+                gen.writeEnd();
+            }
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    private static Response error(Response.Status status, String message) {
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject().write("error", message == null ? status.getReasonPhrase() : message).writeEnd();
+            }
+        };
+        return Response.status(status).entity(body).type(MediaType.APPLICATION_JSON).build();
+    }
+}
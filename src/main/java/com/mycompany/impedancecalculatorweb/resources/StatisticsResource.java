@@ -0,0 +1,133 @@
+package com.mycompany.impedancecalculatorweb.resources;
+
+import com.mycompany.controller.AppContextListener;
+import com.mycompany.controller.RequestExecutionStats;
+import com.mycompany.model.CalculationStatistics;
+import com.mycompany.model.ImpedanceModel;
+import com.mycompany.model.LogHistogram;
+import com.mycompany.model.SpaceSaving;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.servlet.ServletContext;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.time.Instant;
+
+/**
+ * Read-only JSON view of the streaming calculation statistics.
+ *
+ * Reports the most frequent circuits, distinct-circuit counts (overall and per
+ * hour) and the |Z| and frequency distributions. All values come from the
+ * constant-memory sketches in {@link CalculationStatistics}, so the cost of a
+ * request does not depend on the history size. {@code coalescedCalculations}
+ * counts requests answered by an identical calculation already in flight.
+ *
+ * The {@code execution} section reports the thread mode and the throughput of
+ * requests handed off to the request executor.
+ *
+ * Circuits are reported with their description and their
+ * {@link com.mycompany.model.CircuitHash}. Distribution values that are not finite
+ * are written as null.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.2
+ */
+@Path("statistics")
+public class StatisticsResource {
+
+    @Context
+    private ServletContext servletContext;
+
+    /**
+     * Return all statistics as a JSON document.
+     *
+     * @param top maximum number of frequent circuits to report
+     * @return JSON response
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response statistics(@QueryParam("top") @DefaultValue("10") int top) {
+        ImpedanceModel model = (ImpedanceModel) servletContext.getAttribute(AppContextListener.MODEL_ATTRIBUTE);
+        if (model == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        CalculationStatistics stats = model.getStatistics();
+        int limit = Math.max(0, Math.min(top, CalculationStatistics.HEAVY_HITTER_CAPACITY));
+        RequestExecutionStats execution = (RequestExecutionStats) servletContext
+                .getAttribute(AppContextListener.EXECUTION_STATS_ATTRIBUTE);
+
+        StreamingOutput body = output -> {
+            try (JsonGenerator gen = Json.createGenerator(output)) {
+                gen.writeStartObject();
+                gen.write("totalCalculations", stats.getTotal());
+                gen.write("coalescedCalculations", model.getCoalescedCalculations());
+                gen.write("distinctCircuits", stats.getDistinctCircuits());
+
+                gen.writeStartArray("distinctCircuitsPerHour");
+                for (CalculationStatistics.HourlyCount h : stats.getDistinctCircuitsPerHour()) {
+                    gen.writeStartObject()
+                            .write("hourStart", Instant.ofEpochMilli(h.hourStartMillis()).toString())
+                            .write("distinctCircuits", h.distinctCircuits())
+                            .writeEnd();
+                }
+                gen.writeEnd();
+
+                gen.writeStartArray("topCircuits");
+                for (SpaceSaving.Entry e : stats.getTopCircuits(limit)) {
+                    gen.writeStartObject()
+                            .write("circuit", e.label())
+                            .write("hash", e.key())
+                            .write("count", e.count())
+                            .write("maxError", e.error())
+                            .writeEnd();
+                }
+                gen.writeEnd();
+
+                writeHistogram(gen, "magnitude", stats.getMagnitudes());
+                writeHistogram(gen, "frequency", stats.getFrequencies());
+                if (execution != null) {
+                    gen.writeStartObject("execution")
+                            .write("threadMode", execution.getThreadMode())
+                            .write("dispatched", execution.getDispatched())
+                            .write("completed", execution.getCompleted())
+                            .write("rejected", execution.getRejected())
+                            .write("timedOut", execution.getTimedOut())
+                            .write("meanHandlingMillis", execution.getMeanHandlingMillis())
+                            .write("databaseWaitMillis", execution.getDatabaseWaitMillis())
+                            .write("throughputPerSecond", execution.getThroughputPerSecond())
+                            .writeEnd();
+                }
+                gen.writeEnd();
+            }
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+
+    private static void writeHistogram(JsonGenerator gen, String name, LogHistogram h) {
+        gen.writeStartObject(name);
+        gen.write("count", h.getCount());
+        if (h.getCount() > 0) {
+            writeNumber(gen, "min", h.getMin());
+            writeNumber(gen, "max", h.getMax());
+            writeNumber(gen, "mean", h.getMean());
+            writeNumber(gen, "p50", h.quantile(0.50));
+            writeNumber(gen, "p90", h.quantile(0.90));
+            writeNumber(gen, "p99", h.quantile(0.99));
+        }
+        gen.writeEnd();
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, double value) {
+        if (Double.isFinite(value)) gen.write(name, value);
+        else gen.writeNull(name);
+    }
+}
@@ -0,0 +1,119 @@
+package com.mycompany.model;
+
+/**
+ * Concurrency limit that adapts to observed latency (additive increase,
+ * multiplicative decrease).
+ *
+ * {@link #tryAcquire()} admits a request while fewer than {@link #getLimit()}
+ * requests are in flight. Each completed request reports its latency to
+ * {@link #release(long, boolean)}. The shortest latency seen recently serves as the
+ * no-queueing baseline, as in TCP Vegas: a latency above {@code tolerance} times
+ * the baseline means requests are queueing, and the limit is multiplied by
+ * {@value #BACKOFF} (at most once per limit's worth of completions, so one slow
+ * burst does not collapse it). Otherwise, while the limit is actually being used,
+ * it grows by about one for every limit's worth of completions. The baseline is
+ * re-measured every {@value #BASELINE_WINDOW} samples so that it can follow lasting
+ * changes of the workload.
+ *
+ * Methods are thread-safe.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    /**
+     * Factor applied to the limit when latency shows queueing.
+     */
+    public static final double BACKOFF = 0.9;
+
+    /**
+     * Number of latency samples after which the baseline is re-measured.
+     */
+    public static final int BASELINE_WINDOW = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private double limit;
+    private int inFlight;
+    private long baseline = Long.MAX_VALUE;
+    private long windowMin = Long.MAX_VALUE;
+    private int windowSamples;
+    private int sinceDecrease;
+
+    /**
+     * Create a limit.
+     *
+     * @param initialLimit starting limit
+     * @param minLimit lowest limit, at least 1
+     * @param maxLimit highest limit
+     * @param tolerance latency / baseline ratio above which the limit is lowered, greater than 1
+     * @throws IllegalArgumentException for inconsistent bounds or tolerance
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("1 <= minLimit <= maxLimit required");
+        if (!(tolerance > 1)) throw new IllegalArgumentException("tolerance must be greater than 1");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Admit a request if the limit allows it. Every admitted request must be
+     * released exactly once.
+     *
+     * @return true when admitted
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) return false;
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Release an admitted request.
+     *
+     * @param latencyNanos time the request took
+     * @param sample false to release without using the latency (e.g. for requests whose
+     *               duration does not reflect server load)
+     */
+    public synchronized void release(long latencyNanos, boolean sample) {
+        int used = inFlight;
+        inFlight--;
+        if (!sample || latencyNanos <= 0) return;
+
+        windowMin = Math.min(windowMin, latencyNanos);
+        baseline = Math.min(baseline, latencyNanos);
+        if (++windowSamples >= BASELINE_WINDOW) {
+            baseline = windowMin;
+            windowMin = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+
+        sinceDecrease++;
+        if (latencyNanos > tolerance * baseline) {
+            if (sinceDecrease >= limit) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                sinceDecrease = 0;
+            }
+        } else if (2 * used >= limit) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * @return current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return number of admitted requests not yet released
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,329 @@
+package com.mycompany.model;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Evaluates many circuit expressions at many frequencies in parallel and hands the
+ * results back in request order as they complete.
+ *
+ * The work is split into chunks: each expression's frequency grid is cut into pieces
+ * of at most {@value #CHUNK_SIZE} points, and every (circuit, piece) pair is evaluated
+ * as a separate task on the given executor. Expressions are parsed by the tasks, once
+ * per circuit, not by the thread that starts the batch. At most {@code window} chunks
+ * are submitted ahead of the consumer, which takes them in order with {@link #next()};
+ * each chunk taken makes room for the next submission, so the memory held by a batch
+ * and its share of the executor do not grow with the size of the batch. When the
+ * executor rejects a submission and nothing else is pending, the consumer evaluates
+ * the chunk itself, which slows it down to the pace of the executor.
+ *
+ * Errors are kept per item: an expression that cannot be parsed or exceeds the
+ * {@link ExpressionLimits} of the batch, or a frequency at which the circuit cannot
+ * be evaluated, is reported in its chunk without affecting the other items. An
+ * invalid expression yields a single chunk carrying the error.
+ *
+ * An instance is consumed by one thread and must be closed, which skips the chunks
+ * not evaluated yet. {@link #ready()} tells when the consumer can start without
+ * waiting, so it need not hold a thread before the first chunk is evaluated.
+ *
+ * @author Kamil Fulneczek
+ * @version 2.1
+ */
+public final class BatchEvaluation implements AutoCloseable {
+
+    /**
+     * Maximum number of frequencies evaluated by one task.
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Evaluated piece of one circuit's frequency grid.
+     */
+    public static final class Chunk {
+        private final int circuit;
+        private final String expression;
+        private final CircuitElement element;
+        private final String error;
+        private final int from;
+        private final int to;
+        private final boolean last;
+        private final Complex[] impedances;
+        private final String[] errors;
+
+        private Chunk(int circuit, String expression, CircuitElement element, String error, int from, int to, boolean last) {
+            this.circuit = circuit;
+            this.expression = expression;
+            this.element = element;
+            this.error = error;
+            this.from = from;
+            this.to = to;
+            this.last = last;
+            int points = element == null ? 0 : to - from;
+            this.impedances = new Complex[points];
+            this.errors = new String[points];
+        }
+
+        /**
+         * @return index of the circuit in the request
+         */
+        public int getCircuit() {
+            return circuit;
+        }
+
+        /**
+         * @return expression as submitted
+         */
+        public String getExpression() {
+            return expression;
+        }
+
+        /**
+         * @return parsed circuit, or null when the expression is invalid
+         */
+        public CircuitElement getElement() {
+            return element;
+        }
+
+        /**
+         * @return parse error, or null when the expression is valid
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return index of the first frequency of the chunk
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * @return index after the last frequency of the chunk
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * @return true for the first chunk of a circuit
+         */
+        public boolean isFirst() {
+            return from == 0;
+        }
+
+        /**
+         * @return true for the last chunk of a circuit, including the only chunk of an invalid one
+         */
+        public boolean isLast() {
+            return last || element == null;
+        }
+
+        /**
+         * @param i frequency index, from {@link #getFrom()} (inclusive) to {@link #getTo()}
+         * @return impedance at the i-th frequency, or null when it could not be evaluated
+         */
+        public Complex getImpedance(int i) {
+            return impedances[i - from];
+        }
+
+        /**
+         * @param i frequency index, from {@link #getFrom()} (inclusive) to {@link #getTo()}
+         * @return evaluation error at the i-th frequency, or null
+         */
+        public String getError(int i) {
+            return errors[i - from];
+        }
+
+        private void evaluate(double[] frequencies) {
+            for (int i = from; i < to; i++) {
+                try {
+                    impedances[i - from] = element.getImpedance(frequencies[i]);
+                } catch (InvalidCircuitException | RuntimeException e) {
+                    errors[i - from] = message(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse result of one expression, shared by the tasks of its chunks.
+     */
+    private static final class Parsed {
+        private final String expression;
+        private final ExpressionLimits limits;
+        private boolean done;
+        private CircuitElement element;
+        private String error;
+
+        Parsed(String expression, ExpressionLimits limits) {
+            this.expression = expression;
+            this.limits = limits;
+        }
+
+        synchronized void parse() {
+            if (done) return;
+            try {
+                element = ExpressionParser.parse(expression, limits);
+            } catch (RuntimeException e) {
+                error = message(e);
+            }
+            done = true;
+        }
+    }
+
+    private final List<String> expressions;
+    private final double[] grid;
+    private final ExpressionLimits limits;
+    private final Executor executor;
+    private final int window;
+    private final ArrayDeque<CompletableFuture<Chunk>> pending = new ArrayDeque<>();
+    private int nextCircuit;
+    private int nextFrom;
+    private Parsed nextParsed;
+    private volatile boolean closed;
+
+    private BatchEvaluation(List<String> expressions, double[] frequencies, ExpressionLimits limits,
+                            Executor executor, int window) {
+        this.expressions = List.copyOf(expressions);
+        this.grid = frequencies.clone();
+        this.limits = limits;
+        this.executor = executor;
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * Start evaluating all expressions at all frequencies, parsing them within the
+     * {@link ExpressionLimits#DEFAULT default limits}.
+     *
+     * @param expressions circuit expressions in {@link ExpressionParser} syntax
+     * @param frequencies frequencies in Hertz, shared by all expressions; not empty
+     * @param executor executor running the evaluation tasks
+     * @param window maximum number of chunks submitted ahead of the consumer
+     * @return the running batch
+     * @throws IllegalArgumentException when there are no frequencies
+     * @throws RejectedExecutionException when the executor accepts none of the first chunks
+     */
+    public static BatchEvaluation start(List<String> expressions, double[] frequencies, Executor executor, int window) {
+        return start(expressions, frequencies, ExpressionLimits.DEFAULT, executor, window);
+    }
+
+    /**
+     * Start evaluating all expressions at all frequencies.
+     *
+     * @param expressions circuit expressions in {@link ExpressionParser} syntax
+     * @param frequencies frequencies in Hertz, shared by all expressions; not empty
+     * @param limits limits each expression is parsed within
+     * @param executor executor running the evaluation tasks
+     * @param window maximum number of chunks submitted ahead of the consumer
+     * @return the running batch
+     * @throws IllegalArgumentException when there are no frequencies
+     * @throws RejectedExecutionException when the executor accepts none of the first chunks
+     */
+    public static BatchEvaluation start(List<String> expressions, double[] frequencies, ExpressionLimits limits,
+                                        Executor executor, int window) {
+        if (frequencies.length == 0) throw new IllegalArgumentException("frequencies must not be empty");
+        BatchEvaluation batch = new BatchEvaluation(expressions, frequencies, limits, executor, window);
+        batch.fill(false);
+        if (batch.pending.isEmpty() && batch.hasMoreChunks()) {
+            throw new RejectedExecutionException("evaluation executor is saturated");
+        }
+        return batch;
+    }
+
+    /**
+     * Return a stage completing when the first chunk has been evaluated, right away
+     * when there is none. Call it before handing the batch to its consumer.
+     *
+     * @return stage completing when {@link #next()} can return without waiting
+     */
+    public CompletionStage<Void> ready() {
+        CompletableFuture<Chunk> head = pending.peek();
+        return head == null ? CompletableFuture.completedFuture(null) : head.handle((chunk, e) -> null);
+    }
+
+    /**
+     * Wait for the next chunk in request order: circuits in input order, and the
+     * chunks of a circuit in frequency order.
+     *
+     * @return next chunk, or null when all chunks have been returned
+     * @throws InterruptedException when interrupted while waiting
+     * @throws IllegalStateException when the batch has been closed
+     */
+    public Chunk next() throws InterruptedException {
+        while (true) {
+            if (closed) throw new IllegalStateException("batch is closed");
+            CompletableFuture<Chunk> head = pending.poll();
+            if (head == null) return null;
+            Chunk chunk;
+            try {
+                chunk = head.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("batch task failed", e.getCause());
+            }
+            fill(true);
+            // The tasks after the first chunk of an invalid expression carry its error again.
+            if (chunk.element != null || chunk.isFirst()) return chunk;
+        }
+    }
+
+    /**
+     * Stop the batch: chunks not evaluated yet are skipped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (CompletableFuture<Chunk> f : pending) f.cancel(false);
+        pending.clear();
+    }
+
+    private boolean hasMoreChunks() {
+        return nextCircuit < expressions.size();
+    }
+
+    /**
+     * Submit chunks until the window is full.
+     *
+     * @param callerRuns evaluate a rejected chunk on this thread when nothing else is pending
+     */
+    private void fill(boolean callerRuns) {
+        while (pending.size() < window && hasMoreChunks()) {
+            int circuit = nextCircuit;
+            int from = nextFrom;
+            int to = Math.min(grid.length, from + CHUNK_SIZE);
+            Parsed parsed = from == 0 ? new Parsed(expressions.get(circuit), limits) : nextParsed;
+            CompletableFuture<Chunk> task;
+            try {
+                task = CompletableFuture.supplyAsync(() -> evaluate(circuit, parsed, from, to), executor);
+            } catch (RejectedExecutionException e) {
+                if (!callerRuns || !pending.isEmpty()) return;
+                task = CompletableFuture.completedFuture(evaluate(circuit, parsed, from, to));
+            }
+            pending.add(task);
+            nextParsed = parsed;
+            if (to < grid.length) {
+                nextFrom = to;
+            } else {
+                nextCircuit++;
+                nextFrom = 0;
+            }
+        }
+    }
+
+    private Chunk evaluate(int circuit, Parsed parsed, int from, int to) {
+        if (closed) return new Chunk(circuit, parsed.expression, null, "batch closed", from, to, true);
+        parsed.parse();
+        Chunk chunk = new Chunk(circuit, parsed.expression, parsed.element, parsed.error, from, to, to == grid.length);
+        if (chunk.element != null) chunk.evaluate(grid);
+        return chunk;
+    }
+
+    private static String message(Exception e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+}
@@ -0,0 +1,194 @@
+package com.mycompany.model;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Incremental, constant-memory statistics over all recorded calculations.
+ *
+ * The statistics are updated by {@link ImpedanceModel} as each calculation is
+ * recorded, so reporting never has to scan the history:
+ * <ul>
+ *   <li>most frequent circuits — {@link SpaceSaving} sketch</li>
+ *   <li>distinct circuits overall and per hour — {@link HyperLogLog} sketches</li>
+ *   <li>|Z| and frequency distributions — {@link LogHistogram}s</li>
+ * </ul>
+ * Circuits are identified by their {@link CircuitHash}; the description of a
+ * circuit is kept only as the label of its heavy-hitter counter. Infinite and NaN
+ * values (an ideal capacitor at DC, overflowing series) are counted but left out
+ * of the distributions.
+ * Per-hour cardinalities are kept for the last {@value #HOURS_KEPT} hours in a ring
+ * of sketches that is reused as time advances.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class CalculationStatistics {
+
+    /**
+     * Number of hourly distinct-circuit sketches kept.
+     */
+    public static final int HOURS_KEPT = 24;
+
+    /**
+     * Number of counters used by the heavy-hitters sketch.
+     */
+    public static final int HEAVY_HITTER_CAPACITY = 256;
+
+    private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+
+    /**
+     * Distinct-circuit estimate for one hour.
+     *
+     * @param hourStartMillis start of the hour in epoch milliseconds
+     * @param distinctCircuits estimated number of distinct circuits in that hour
+     */
+    public record HourlyCount(long hourStartMillis, long distinctCircuits) {
+    }
+
+    private final Clock clock;
+    private final LongAdder total = new LongAdder();
+    private final SpaceSaving topCircuits = new SpaceSaving(HEAVY_HITTER_CAPACITY);
+    private final HyperLogLog distinctCircuits = new HyperLogLog();
+    private final HyperLogLog[] hourly = new HyperLogLog[HOURS_KEPT];
+    private final long[] hourlyStart = new long[HOURS_KEPT];
+    private final LogHistogram magnitudes = new LogHistogram();
+    private final LogHistogram frequencies = new LogHistogram();
+
+    /**
+     * Create statistics using the system UTC clock.
+     */
+    public CalculationStatistics() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Create statistics using the given clock for hourly bucketing.
+     *
+     * @param clock time source; must not be null
+     */
+    public CalculationStatistics(Clock clock) {
+        if (clock == null) throw new IllegalArgumentException("clock must not be null");
+        this.clock = clock;
+        for (int i = 0; i < HOURS_KEPT; i++) {
+            hourly[i] = new HyperLogLog(10);
+            hourlyStart[i] = -1;
+        }
+    }
+
+    /**
+     * Record one calculation.
+     *
+     * @param element calculated circuit
+     * @param frequencyHz frequency in Hertz
+     * @param result computed impedance
+     */
+    public void record(CircuitElement element, double frequencyHz, Complex result) {
+        String key = CircuitHash.of(element);
+        long hash = HyperLogLog.hash64(key);
+        total.increment();
+        topCircuits.offer(key, element::description);
+        distinctCircuits.offerHash(hash);
+        hourSketch(clock.millis()).offerHash(hash);
+        double magnitude = result.magnitude();
+        if (Double.isFinite(magnitude)) magnitudes.record(magnitude);
+        if (Double.isFinite(frequencyHz)) frequencies.record(frequencyHz);
+    }
+
+    /**
+     * Return the total number of recorded calculations.
+     *
+     * @return calculation count
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Return the most frequent circuits, most frequent first.
+     *
+     * @param k maximum number of circuits to return
+     * @return heavy-hitter entries keyed by circuit hash and labelled with the circuit description
+     */
+    public List<SpaceSaving.Entry> getTopCircuits(int k) {
+        return topCircuits.top(k);
+    }
+
+    /**
+     * Return the estimated number of distinct circuits recorded.
+     *
+     * @return distinct-circuit estimate
+     */
+    public long getDistinctCircuits() {
+        return distinctCircuits.estimate();
+    }
+
+    /**
+     * Return the distinct-circuit estimates for the retained hours, oldest first.
+     * Hours without any calculations are omitted.
+     *
+     * @return hourly distinct-circuit counts
+     */
+    public List<HourlyCount> getDistinctCircuitsPerHour() {
+        long currentHour = clock.millis() / HOUR_MILLIS;
+        List<HourlyCount> out = new ArrayList<>();
+        synchronized (hourly) {
+            for (long h = currentHour - HOURS_KEPT + 1; h <= currentHour; h++) {
+                int slot = (int) Math.floorMod(h, (long) HOURS_KEPT);
+                if (hourlyStart[slot] == h) {
+                    out.add(new HourlyCount(h * HOUR_MILLIS, hourly[slot].estimate()));
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Return the histogram of impedance magnitudes |Z| in Ohms.
+     *
+     * @return magnitude histogram
+     */
+    public LogHistogram getMagnitudes() {
+        return magnitudes;
+    }
+
+    /**
+     * Return the histogram of calculation frequencies in Hertz.
+     *
+     * @return frequency histogram
+     */
+    public LogHistogram getFrequencies() {
+        return frequencies;
+    }
+
+    /**
+     * Reset all statistics.
+     */
+    public void clear() {
+        total.reset();
+        topCircuits.clear();
+        distinctCircuits.clear();
+        magnitudes.clear();
+        frequencies.clear();
+        synchronized (hourly) {
+            for (int i = 0; i < HOURS_KEPT; i++) {
+                hourly[i].clear();
+                hourlyStart[i] = -1;
+            }
+        }
+    }
+
+    private HyperLogLog hourSketch(long nowMillis) {
+        long hour = nowMillis / HOUR_MILLIS;
+        int slot = (int) Math.floorMod(hour, (long) HOURS_KEPT);
+        synchronized (hourly) {
+            if (hourlyStart[slot] != hour) {
+                hourly[slot].clear();
+                hourlyStart[slot] = hour;
+            }
+            return hourly[slot];
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.mycompany.model;
 
+import java.io.IOException;
+
 /**
  * Base abstraction for elements that can provide impedance and a short description.
  *
@@ -7,7 +9,7 @@ package com.mycompany.model;
  * and composite connection nodes (series/parallel groups).
  *
  * @author Kamil Fulneczek
- * @version 1.1
+ * @version 1.2
  */
 public abstract class CircuitElement {
 
@@ -36,6 +38,17 @@ public abstract class CircuitElement {
      */
     public abstract String description();
 
+    /**
+     * Write the description to a destination. Composite elements write their parts
+     * one by one, so a large circuit does not have to be turned into one String first.
+     *
+     * @param out destination
+     * @throws IOException when the destination fails
+     */
+    public void describeTo(Appendable out) throws IOException {
+        out.append(description());
+    }
+
     @Override
     public String toString() {
         return description();
@@ -0,0 +1,97 @@
+package com.mycompany.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Canonical structural hash of a circuit.
+ *
+ * Two circuits have the same hash exactly when they have the same structure:
+ * the same connection types, the same child order and bit-identical component
+ * values. Textual differences of the source expression (whitespace, "resistor"
+ * vs "R", "100" vs "1e2") do not change the hash, because it is computed from the
+ * parsed tree, not from the text.
+ *
+ * The canonical form is a compact prefix notation, for example
+ * {@code S(R4059000000000000,P(C3eb0c6f7a0b5ed8d,L3f847ae147ae147b))}, which is
+ * hashed with SHA-256 and returned as 64 lowercase hex characters.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public final class CircuitHash {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private CircuitHash() {
+    }
+
+    /**
+     * Compute the canonical hash of a circuit.
+     *
+     * @param element circuit to hash; must not be null
+     * @return 64-character lowercase hex SHA-256 of the canonical form
+     * @throws IllegalArgumentException for unsupported element types
+     */
+    public static String of(CircuitElement element) {
+        if (element == null) throw new IllegalArgumentException("element must not be null");
+        StringBuilder sb = new StringBuilder();
+        appendCanonical(element, sb);
+        return sha256Hex(sb.toString());
+    }
+
+    /**
+     * Return the canonical form hashed by {@link #of(CircuitElement)}.
+     *
+     * @param element circuit; must not be null
+     * @return canonical prefix notation
+     */
+    public static String canonicalForm(CircuitElement element) {
+        StringBuilder sb = new StringBuilder();
+        appendCanonical(element, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Hash an arbitrary string with SHA-256.
+     *
+     * @param text text to hash
+     * @return 64-character lowercase hex digest
+     */
+    public static String sha256Hex(String text) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        char[] out = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            out[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            out[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(out);
+    }
+
+    private static void appendCanonical(CircuitElement element, StringBuilder sb) {
+        if (element instanceof ConnectionNode node) {
+            sb.append(node.isSeries() ? "S(" : "P(");
+            boolean first = true;
+            for (CircuitElement child : node.getChildren()) {
+                if (!first) sb.append(',');
+                appendCanonical(child, sb);
+                first = false;
+            }
+            sb.append(')');
+            return;
+        }
+        if (element instanceof Resistor) sb.append('R');
+        else if (element instanceof Capacitor) sb.append('C');
+        else if (element instanceof Inductor) sb.append('L');
+        else throw new IllegalArgumentException("Unsupported circuit element: " + element.getClass().getName());
+        double value = ((Component) element).getValue();
+        if (value == 0.0) value = 0.0;
+        sb.append(Long.toHexString(Double.doubleToLongBits(value)));
+    }
+}
@@ -8,7 +8,7 @@ import java.util.Objects;
  * reciprocal and magnitude computation.
  *
  * @author Kamil Fulneczek
- * @version 1.2
+ * @version 1.3
  *
  * @param re the real part of the complex number
  * @param im the imaginary part of the complex number
@@ -62,12 +62,12 @@ public record Complex(double re, double im) {
     /**
      * Return a human-readable string representation.
      *
-     * @return string like "a + bj" or "a - bj"
+     * @return string like "a + bj" or "a - bj", each part with 6 significant digits
+     * @see NumberFormatter#appendComplex(StringBuilder, Complex)
      */
     @Override
     public String toString() {
-        if (im >= 0) return String.format("%.6g + %.6gj", re, im);
-        else return String.format("%.6g - %.6gj", re, -im);
+        return NumberFormatter.format(this);
     }
 
     @Override
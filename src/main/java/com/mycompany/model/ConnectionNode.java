@@ -1,11 +1,12 @@
 package com.mycompany.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Composite connection node representing either a series or parallel grouping of
@@ -29,8 +30,17 @@ import java.util.stream.Collectors;
  *   root.addChild(new ConnectionNode(false)); // nested parallel group
  * </pre>
  *
+ * The description is computed once and cached until the subtree changes. Each node
+ * knows the connection nodes it has been added to, and adding or removing a child
+ * clears the cached description of the node and of all nodes above it. Descriptions
+ * longer than {@value #MAX_CACHED_DESCRIPTION} characters are not cached, so that
+ * deeply nested circuits do not keep a copy of their text at every level; they are
+ * assembled from their cached subtrees instead, or written piece by piece with
+ * {@link #describeTo(Appendable)}. Changing a tree while another thread reads its
+ * description is not supported.
+ *
  * @author Kamil Fulneczek
- * @version 1.2
+ * @version 1.3
  */
 @Getter
 public class ConnectionNode extends CircuitElement {
@@ -38,6 +48,17 @@ public class ConnectionNode extends CircuitElement {
     private final boolean series;
     private final List<CircuitElement> children = Collections.checkedList(new ArrayList<>(), CircuitElement.class);
 
+    /**
+     * Longest description kept in the cache, in characters.
+     */
+    public static final int MAX_CACHED_DESCRIPTION = 4096;
+
+    @Getter(AccessLevel.NONE)
+    private volatile String description;
+
+    @Getter(AccessLevel.NONE)
+    private List<ConnectionNode> parents;
+
     /**
      * Create a connection node.
      *
@@ -55,6 +76,11 @@ public class ConnectionNode extends CircuitElement {
     public void addChild(CircuitElement element) {
         if (element == null) throw new IllegalArgumentException("element must not be null");
         children.add(element);
+        if (element instanceof ConnectionNode node) {
+            if (node.parents == null) node.parents = new ArrayList<>(1);
+            node.parents.add(this);
+        }
+        invalidateDescription();
     }
 
     /**
@@ -64,7 +90,23 @@ public class ConnectionNode extends CircuitElement {
      * @return true if the element was present and removed, false otherwise
      */
     public boolean removeChild(CircuitElement element) {
-        return children.remove(element);
+        if (!children.remove(element)) return false;
+        if (element instanceof ConnectionNode node && node.parents != null) node.parents.remove(this);
+        invalidateDescription();
+        return true;
+    }
+
+    /**
+     * Clear the cached description of this node and of every node above it. A node
+     * is only cached when all nodes below it are, so the walk stops at the first
+     * node without a cached description.
+     */
+    private void invalidateDescription() {
+        if (description == null) return;
+        description = null;
+        if (parents != null) {
+            for (ConnectionNode parent : parents) parent.invalidateDescription();
+        }
     }
 
     /**
@@ -138,11 +180,31 @@ public class ConnectionNode extends CircuitElement {
 
     @Override
     public String description() {
-        String prefix = series ? "series(" : "parallel(";
-        String joined = children.stream()
-                .map(CircuitElement::description)
-                .collect(Collectors.joining(", "));
-        return prefix + joined + ")";
+        String d = description;
+        if (d != null) return d;
+        StringBuilder sb = new StringBuilder(series ? "series(" : "parallel(");
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(children.get(i).description());
+        }
+        d = sb.append(')').toString();
+        if (d.length() <= MAX_CACHED_DESCRIPTION) description = d;
+        return d;
+    }
+
+    @Override
+    public void describeTo(Appendable out) throws IOException {
+        String d = description;
+        if (d != null) {
+            out.append(d);
+            return;
+        }
+        out.append(series ? "series(" : "parallel(");
+        for (int i = 0; i < children.size(); i++) {
+            if (i > 0) out.append(", ");
+            children.get(i).describeTo(out);
+        }
+        out.append(')');
     }
 
     @Override
@@ -0,0 +1,62 @@
+package com.mycompany.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for evaluating a circuit at one or more frequencies.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@Name("com.mycompany.impedance.Evaluation")
+@Label("Impedance Evaluation")
+@Category({"Impedance Calculator", "Model"})
+@Description("Evaluation of a circuit at a single frequency or over a sweep")
+@StackTrace(false)
+final class EvaluationEvent extends jdk.jfr.Event {
+
+    @Label("Nodes")
+    @Description("Number of circuit elements")
+    int nodes;
+
+    @Label("Frequencies")
+    @Description("Number of frequencies evaluated")
+    int frequencies;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Fill in the fields and commit, when the event is enabled and above its threshold.
+     *
+     * @param element evaluated circuit
+     * @param frequencyCount number of frequencies
+     * @param succeeded whether the evaluation succeeded
+     */
+    void finish(CircuitElement element, int frequencyCount, boolean succeeded) {
+        if (shouldCommit()) {
+            nodes = countNodes(element);
+            frequencies = frequencyCount;
+            success = succeeded;
+            commit();
+        }
+    }
+
+    /**
+     * Count the elements of a circuit tree. Only called for committed events.
+     *
+     * @param element circuit
+     * @return number of components and connections
+     */
+    static int countNodes(CircuitElement element) {
+        int nodes = 1;
+        if (element instanceof ConnectionNode node) {
+            for (CircuitElement child : node.getChildren()) nodes += countNodes(child);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mycompany.model;
+
+/**
+ * Exception thrown when a circuit expression or sweep exceeds the configured
+ * {@link ExpressionLimits}.
+ *
+ * It extends {@link IllegalArgumentException}, so callers that already report
+ * invalid expressions as bad requests also reject oversized ones.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class ExpressionLimitException extends IllegalArgumentException {
+
+    /**
+     * Create exception with message.
+     *
+     * @param message error message
+     */
+    public ExpressionLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,153 @@
+package com.mycompany.model;
+
+import java.util.function.Function;
+
+/**
+ * Complexity limits for circuit expressions and frequency sweeps.
+ *
+ * {@link #check(CharSequence)} scans an expression once, without allocating,
+ * before it reaches {@link ExpressionParser}: it rejects expressions that are
+ * longer than {@code maxLength} characters, nest connections deeper than
+ * {@code maxDepth} or describe more than {@code maxNodes} elements. The parser
+ * recurses per nesting level and copies substrings per level, so these bounds also
+ * bound its stack depth and allocation. {@link #checkPoints(long)} bounds the number
+ * of frequency points of a sweep.
+ *
+ * Each endpoint has its own limits; {@link #resolve} reads overrides from
+ * parameters named {@code impedance.limits.<endpoint>.<limit>}, falling back to
+ * {@code impedance.limits.<limit>} and then to the endpoint's defaults.
+ *
+ * @param maxLength maximum expression length in characters
+ * @param maxDepth maximum nesting depth of connections
+ * @param maxNodes maximum number of circuit elements (components and connections)
+ * @param maxPoints maximum number of frequency points
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public record ExpressionLimits(int maxLength, int maxDepth, int maxNodes, int maxPoints) {
+
+    /**
+     * Prefix of the parameters read by {@link #resolve}.
+     */
+    public static final String PARAM_PREFIX = "impedance.limits.";
+
+    /**
+     * Limits applied by {@link ExpressionParser#parse(String)}.
+     */
+    public static final ExpressionLimits DEFAULT = new ExpressionLimits(10_000, 64, 2_000, FrequencySweep.MAX_POINTS);
+
+    /**
+     * Limits for single-frequency calculations entered by hand.
+     */
+    public static final ExpressionLimits INTERACTIVE = new ExpressionLimits(4_096, 32, 512, 1);
+
+    /**
+     * @throws IllegalArgumentException when a limit is not positive
+     */
+    public ExpressionLimits {
+        if (maxLength < 1 || maxDepth < 1 || maxNodes < 1 || maxPoints < 1) {
+            throw new IllegalArgumentException("limits must be positive");
+        }
+    }
+
+    /**
+     * Check an expression against the length, depth and node limits.
+     *
+     * @param expression circuit expression; null passes and is left to the parser
+     * @throws ExpressionLimitException when a limit is exceeded
+     */
+    public void check(CharSequence expression) {
+        if (expression == null) return;
+        int length = expression.length();
+        if (length > maxLength) {
+            throw new ExpressionLimitException("expression is longer than " + maxLength + " characters");
+        }
+        int depth = 0;
+        int nodes = 1;
+        for (int i = 0; i < length; i++) {
+            char c = expression.charAt(i);
+            if (c == '(') {
+                if (++depth > maxDepth) {
+                    throw new ExpressionLimitException("expression nests deeper than " + maxDepth + " levels");
+                }
+                nodes++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',') {
+                nodes++;
+            } else {
+                continue;
+            }
+            if (nodes > maxNodes) {
+                throw new ExpressionLimitException("expression has more than " + maxNodes + " elements");
+            }
+        }
+    }
+
+    /**
+     * Check the number of frequency points of a sweep.
+     *
+     * @param points number of points
+     * @throws ExpressionLimitException when the limit is exceeded
+     */
+    public void checkPoints(long points) {
+        if (points > maxPoints) {
+            throw new ExpressionLimitException("at most " + maxPoints + " frequency points are allowed");
+        }
+    }
+
+    /**
+     * Estimate the number of circuit elements of an expression without parsing it:
+     * every connection opens a parenthesis and every further child follows a comma.
+     *
+     * @param expression circuit expression, may be null
+     * @return number of elements, at least 1
+     */
+    public static int countNodes(CharSequence expression) {
+        int nodes = 1;
+        if (expression == null) return nodes;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '(' || c == ',') nodes++;
+        }
+        return nodes;
+    }
+
+    /**
+     * @param points maximum number of frequency points
+     * @return copy of these limits with another point limit
+     */
+    public ExpressionLimits withMaxPoints(int points) {
+        return new ExpressionLimits(maxLength, maxDepth, maxNodes, points);
+    }
+
+    /**
+     * Read the limits of an endpoint from configuration parameters.
+     *
+     * @param endpoint endpoint name, e.g. "circuit" or "api.sweep"
+     * @param defaults limits used for parameters that are not set or not valid
+     * @param parameters parameter lookup, e.g. {@code ServletContext::getInitParameter}
+     * @return limits of the endpoint
+     */
+    public static ExpressionLimits resolve(String endpoint, ExpressionLimits defaults,
+                                           Function<String, String> parameters) {
+        return new ExpressionLimits(
+                parameter(parameters, endpoint, "maxLength", defaults.maxLength),
+                parameter(parameters, endpoint, "maxDepth", defaults.maxDepth),
+                parameter(parameters, endpoint, "maxNodes", defaults.maxNodes),
+                parameter(parameters, endpoint, "maxPoints", defaults.maxPoints));
+    }
+
+    private static int parameter(Function<String, String> parameters, String endpoint, String name, int fallback) {
+        String s = parameters.apply(PARAM_PREFIX + endpoint + "." + name);
+        if (s == null || s.isBlank()) s = parameters.apply(PARAM_PREFIX + name);
+        if (s == null || s.isBlank()) return fallback;
+        try {
+            int v = Integer.parseInt(s.trim());
+            return v > 0 ? v : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -12,23 +12,72 @@ import java.util.List;
  * Note: This parser is intentionally small and supports the expression form used by the
  * CLI: 'series(...)' and 'parallel(...)' with comma-separated subexpressions and component tokens.
  *
+ * Expressions are checked against {@link ExpressionLimits} before parsing, so that
+ * the recursion depth and the work per expression stay bounded. Parse times and
+ * rejected expressions are recorded in {@link Metrics} and as Flight Recorder
+ * {@link ParseEvent}s.
+ *
  * @author Kamil Fulneczek
- * @version 1.1
+ * @version 1.4
  */
 public final class ExpressionParser {
 
+    private static final Metrics.Timer PARSE_TIMER = Metrics.timer("impedance_parse_seconds",
+            "Time spent checking and parsing circuit expressions");
+    private static final Metrics.Counter PARSE_FAILURES = Metrics.counter("impedance_parse_failures_total",
+            "Circuit expressions rejected by the limits or the parser");
+
     private ExpressionParser() {
     }
 
     /**
-     * Parse a nested expression and return the root CircuitElement.
+     * Parse a nested expression within the {@link ExpressionLimits#DEFAULT default limits}
+     * and return the root CircuitElement.
      *
      * @param expr expression string (may contain whitespace)
      * @return parsed CircuitElement (ConnectionNode or Component)
      * @throws IllegalArgumentException on parse errors
+     * @throws ExpressionLimitException when the expression exceeds the default limits
      */
     public static CircuitElement parse(String expr) {
+        return parse(expr, ExpressionLimits.DEFAULT);
+    }
+
+    /**
+     * Parse a nested expression within the given limits and return the root CircuitElement.
+     *
+     * @param expr expression string (may contain whitespace)
+     * @param limits limits checked before parsing
+     * @return parsed CircuitElement (ConnectionNode or Component)
+     * @throws IllegalArgumentException on parse errors
+     * @throws ExpressionLimitException when the expression exceeds the limits
+     */
+    public static CircuitElement parse(String expr, ExpressionLimits limits) {
         if (expr == null) throw new IllegalArgumentException("expression is null");
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        long start = PARSE_TIMER.start();
+        boolean success = false;
+        try {
+            limits.check(expr);
+            CircuitElement element = parseChecked(expr);
+            success = true;
+            return element;
+        } catch (IllegalArgumentException e) {
+            PARSE_FAILURES.increment();
+            throw e;
+        } finally {
+            PARSE_TIMER.stop(start);
+            if (event.shouldCommit()) {
+                event.length = expr.length();
+                event.nodes = ExpressionLimits.countNodes(expr);
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    private static CircuitElement parseChecked(String expr) {
         String s = expr.trim();
         if (!s.contains("(")) {
             ComponentSpec spec = Parser.parseComponentToken(s);
@@ -54,7 +103,7 @@ public final class ExpressionParser {
         List<String> parts = splitTopLevel(inner);
         ConnectionNode node = new ConnectionNode(isSeries);
         for (String part : parts) {
-            CircuitElement child = parse(part);
+            CircuitElement child = parseChecked(part);
             node.addChild(child);
         }
         return node;
@@ -0,0 +1,118 @@
+package com.mycompany.model;
+
+import java.util.Objects;
+
+/**
+ * Grid of frequencies for evaluating a circuit over a frequency range.
+ *
+ * The points run from {@code start} to {@code stop} inclusive and are spaced either
+ * linearly or logarithmically (equal ratios between neighbours, the usual choice
+ * for Bode-style plots spanning several decades).
+ *
+ * Sweeps with the same range, number of points and spacing are equal.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.2
+ */
+public final class FrequencySweep {
+
+    /**
+     * Upper limit on the number of points of one sweep.
+     */
+    public static final int MAX_POINTS = 100_000;
+
+    /**
+     * Upper limit on the number of points of a sweep created with {@link #forStreaming},
+     * whose points are computed and written a chunk at a time and never held together.
+     */
+    public static final int MAX_STREAMING_POINTS = 10_000_000;
+
+    private final double start;
+    private final double stop;
+    private final int points;
+    private final boolean logarithmic;
+
+    /**
+     * Create a sweep.
+     *
+     * @param start first frequency in Hertz, must be positive
+     * @param stop last frequency in Hertz, must not be smaller than start
+     * @param points number of points, 1 to {@value #MAX_POINTS}; a single point requires start == stop
+     * @param logarithmic true for logarithmic spacing, false for linear spacing
+     * @throws IllegalArgumentException when the range or the number of points is invalid
+     */
+    public FrequencySweep(double start, double stop, int points, boolean logarithmic) {
+        this(start, stop, points, logarithmic, MAX_POINTS);
+    }
+
+    private FrequencySweep(double start, double stop, int points, boolean logarithmic, int maxPoints) {
+        if (!(start > 0) || Double.isInfinite(start)) throw new IllegalArgumentException("start must be a positive number");
+        if (!(stop >= start) || Double.isInfinite(stop)) throw new IllegalArgumentException("stop must not be smaller than start");
+        if (points < 1 || points > maxPoints) throw new IllegalArgumentException("points must be between 1 and " + maxPoints);
+        if (points == 1 && stop != start) throw new IllegalArgumentException("a single point requires start == stop");
+        this.start = start;
+        this.stop = stop;
+        this.points = points;
+        this.logarithmic = logarithmic;
+    }
+
+    /**
+     * Create a sweep for streaming, which may have up to {@value #MAX_STREAMING_POINTS}
+     * points. Such a sweep must only be evaluated point by point as it is written;
+     * everything that evaluates a sweep as a whole relies on {@link #MAX_POINTS}.
+     *
+     * @param start first frequency in Hertz, must be positive
+     * @param stop last frequency in Hertz, must not be smaller than start
+     * @param points number of points, 1 to {@value #MAX_STREAMING_POINTS}
+     * @param logarithmic true for logarithmic spacing, false for linear spacing
+     * @return sweep
+     * @throws IllegalArgumentException when the range or the number of points is invalid
+     */
+    public static FrequencySweep forStreaming(double start, double stop, int points, boolean logarithmic) {
+        return new FrequencySweep(start, stop, points, logarithmic, MAX_STREAMING_POINTS);
+    }
+
+    /**
+     * @return number of points
+     */
+    public int size() {
+        return points;
+    }
+
+    /**
+     * Return the i-th frequency of the sweep. The first and last points are exactly
+     * {@code start} and {@code stop}.
+     *
+     * @param i point index, 0 to size() - 1
+     * @return frequency in Hertz
+     * @throws IndexOutOfBoundsException for invalid indices
+     */
+    public double frequency(int i) {
+        if (i < 0 || i >= points) throw new IndexOutOfBoundsException("index " + i + " out of " + points);
+        if (i == 0) return start;
+        if (i == points - 1) return stop;
+        double t = (double) i / (points - 1);
+        if (logarithmic) return start * Math.pow(stop / start, t);
+        return start + (stop - start) * t;
+    }
+
+    /**
+     * @return true when the points are spaced logarithmically
+     */
+    public boolean isLogarithmic() {
+        return logarithmic;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof FrequencySweep other)) return false;
+        return Double.compare(start, other.start) == 0 && Double.compare(stop, other.stop) == 0
+                && points == other.points && logarithmic == other.logarithmic;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, stop, points, logarithmic);
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * History store that keeps entries as ordinary objects on the Java heap.
+ *
+ * This is the default backend of {@link ImpedanceModel}. It is simple and fast
+ * for small histories, but every entry keeps its circuit tree, boxed frequency
+ * and {@link Complex} result reachable for the garbage collector.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class HeapHistoryStore implements HistoryStore {
+
+    private final List<CircuitElement> elements = new ArrayList<>();
+    private final List<Double> frequencies = new ArrayList<>();
+    private final List<Complex> results = new ArrayList<>();
+
+    @Override
+    public synchronized void append(CircuitElement element, double frequencyHz, Complex result) {
+        elements.add(element);
+        frequencies.add(frequencyHz);
+        results.add(result);
+    }
+
+    @Override
+    public synchronized int size() {
+        return elements.size();
+    }
+
+    @Override
+    public synchronized List<CircuitElement> getElements() {
+        return new ArrayList<>(elements);
+    }
+
+    @Override
+    public synchronized List<Double> getFrequencies() {
+        return new ArrayList<>(frequencies);
+    }
+
+    @Override
+    public synchronized List<Complex> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    @Override
+    public synchronized HistoryPage read(int offset, int limit) {
+        int[] range = HistoryPage.range(offset, limit, elements.size());
+        List<HistoryPage.Entry> entries = new ArrayList<>(range[1] - range[0]);
+        for (int i = range[0]; i < range[1]; i++) {
+            entries.add(new HistoryPage.Entry(elements.get(i), frequencies.get(i), results.get(i)));
+        }
+        return new HistoryPage(elements.size(), range[0], entries);
+    }
+
+    @Override
+    public synchronized void clear() {
+        elements.clear();
+        frequencies.clear();
+        results.clear();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+}
@@ -0,0 +1,29 @@
+package com.mycompany.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for recording a calculation in the history and statistics.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@Name("com.mycompany.impedance.HistoryAppend")
+@Label("History Append")
+@Category({"Impedance Calculator", "Model"})
+@Description("Append of a calculation to the history store and the statistics")
+@StackTrace(false)
+final class HistoryAppendEvent extends jdk.jfr.Event {
+
+    @Label("Store")
+    @Description("History store implementation")
+    String store;
+
+    @Label("Nodes")
+    @Description("Number of circuit elements")
+    int nodes;
+}
@@ -0,0 +1,52 @@
+package com.mycompany.model;
+
+import java.util.List;
+
+/**
+ * A contiguous range of history entries read in one step from a {@link HistoryStore},
+ * together with the number of entries the history had at that moment.
+ *
+ * @param total number of entries in the history when the page was read
+ * @param offset index of the first entry of the page
+ * @param entries entries of the page in history order (unmodifiable)
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public record HistoryPage(int total, int offset, List<Entry> entries) {
+
+    /**
+     * One history entry.
+     *
+     * @param element calculated circuit element
+     * @param frequencyHz frequency in Hertz
+     * @param result computed impedance
+     */
+    public record Entry(CircuitElement element, double frequencyHz, Complex result) {
+    }
+
+    /**
+     * @param total number of entries in the history
+     * @param offset index of the first entry
+     * @param entries entries of the page
+     */
+    public HistoryPage {
+        entries = List.copyOf(entries);
+    }
+
+    /**
+     * Clamp a requested range to a history of the given size.
+     *
+     * @param offset requested index of the first entry, not negative
+     * @param limit requested maximum number of entries, not negative
+     * @param total number of entries in the history
+     * @return {from, to} with from inclusive and to exclusive
+     * @throws IllegalArgumentException when offset or limit is negative
+     */
+    static int[] range(int offset, int limit, int total) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+        int from = Math.min(offset, total);
+        int to = (int) Math.min((long) from + limit, total);
+        return new int[]{from, to};
+    }
+}
@@ -0,0 +1,83 @@
+package com.mycompany.model;
+
+import java.util.List;
+
+/**
+ * Storage backend for the calculation history kept by {@link ImpedanceModel}.
+ *
+ * Each history entry consists of the calculated circuit element, the frequency
+ * it was evaluated at and the resulting impedance. Implementations must be safe
+ * for concurrent use by servlet request threads.
+ *
+ * Two implementations are provided:
+ * <ul>
+ *   <li>{@link HeapHistoryStore} — keeps entries as regular Java objects</li>
+ *   <li>{@link OffHeapHistoryStore} — serializes entries into direct memory</li>
+ * </ul>
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public interface HistoryStore extends AutoCloseable {
+
+    /**
+     * Append a single entry to the history.
+     *
+     * @param element calculated circuit element; must not be null
+     * @param frequencyHz frequency in Hertz
+     * @param result computed impedance; must not be null
+     * @throws IllegalStateException if the store has been closed
+     */
+    void append(CircuitElement element, double frequencyHz, Complex result);
+
+    /**
+     * Return the number of entries in the history.
+     *
+     * @return number of history entries
+     */
+    int size();
+
+    /**
+     * Return a snapshot of the circuit elements in history order.
+     *
+     * @return list of circuit elements (snapshot)
+     */
+    List<CircuitElement> getElements();
+
+    /**
+     * Return a snapshot of the frequencies in history order.
+     *
+     * @return list of frequencies in Hertz (snapshot)
+     */
+    List<Double> getFrequencies();
+
+    /**
+     * Return a snapshot of the impedance results in history order.
+     *
+     * @return list of impedances (snapshot)
+     */
+    List<Complex> getResults();
+
+    /**
+     * Return up to {@code limit} entries starting at {@code offset} together with the
+     * current size of the history, read atomically with respect to appends. Only the
+     * entries of the range are materialized.
+     *
+     * @param offset index of the first entry; offsets past the end give an empty page
+     * @param limit maximum number of entries
+     * @return page of entries
+     * @throws IllegalArgumentException when offset or limit is negative
+     */
+    HistoryPage read(int offset, int limit);
+
+    /**
+     * Remove all entries from the history.
+     */
+    void clear();
+
+    /**
+     * Release all resources held by the store. Further appends fail.
+     */
+    @Override
+    void close();
+}
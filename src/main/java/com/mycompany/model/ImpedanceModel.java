@@ -1,6 +1,5 @@
 package com.mycompany.model;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -11,43 +10,81 @@ import java.util.List;
  * The model is intended to be instantiated once (for example by an application
  * listener) and shared across all servlet requests during the application lifecycle.
  *
- * The model stores history in synchronized lists so concurrent servlet requests
- * can safely add entries.
+ * The model stores history in a {@link HistoryStore}: on the heap by default, or
+ * in direct memory ({@link OffHeapHistoryStore}) for very large histories.
+ * Stores are thread-safe so concurrent servlet requests can safely add entries.
+ *
+ * {@link #calculateImpedanceShared} and {@link #calculateSweep} coalesce identical
+ * concurrent requests: while a circuit with the same canonical hash (see
+ * {@link CircuitHash}) is being evaluated with the same parameters, further callers
+ * wait for that evaluation instead of repeating it ({@link SingleFlight}). Each
+ * caller of calculateImpedanceShared is still recorded in the history.
+ *
+ * Evaluation, sweep and history-write times are recorded in {@link Metrics} and as
+ * Flight Recorder events ({@link EvaluationEvent}, {@link HistoryAppendEvent}).
  *
  * Example usage:
  * <pre>
  *   ImpedanceModel model = new ImpedanceModel();
  *   Complex z = model.calculateImpedance(new Resistor(100), 1000.0);
- *   List&lt;Complex&gt; results = model.getHistoryResults();
+ *   HistoryPage page = model.getHistoryPage(0, 100);
  * </pre>
  *
  * @author Kamil Fulneczek
- * @version 1.1
+ * @version 1.6
  */
-public class ImpedanceModel {
+public class ImpedanceModel implements AutoCloseable {
 
     /**
-     * History of circuit elements that were calculated.
+     * Backend holding the history of calculated elements, frequencies and results.
      */
-    private final List<CircuitElement> historyElements;
+    private final HistoryStore history;
 
     /**
-     * Frequencies corresponding to entries in historyElements (in Hz).
+     * Streaming statistics over every calculation performed since startup.
      */
-    private final List<Double> historyFrequencies;
+    private final CalculationStatistics statistics = new CalculationStatistics();
 
     /**
-     * Computed impedance results corresponding to historyElements.
+     * Identity of a single-frequency calculation.
      */
-    private final List<Complex> historyResults;
+    private record PointKey(String circuitHash, double frequencyHz) {
+    }
 
     /**
-     * Create a new ImpedanceModel with empty, thread-safe history lists.
+     * Identity of a sweep calculation.
+     */
+    private record SweepKey(String circuitHash, FrequencySweep sweep) {
+    }
+
+    private static final Metrics.Timer EVALUATION_TIMER = Metrics.timer("impedance_evaluation_seconds",
+            "Time spent evaluating the impedance of a circuit at one frequency");
+    private static final Metrics.Timer SWEEP_TIMER = Metrics.timer("impedance_sweep_seconds",
+            "Time spent evaluating frequency sweeps, including waiting for an identical sweep in flight");
+    private static final Metrics.Timer HISTORY_TIMER = Metrics.timer("impedance_history_write_seconds",
+            "Time spent recording a calculation in the history and statistics");
+    private static final Metrics.Counter EVALUATION_FAILURES = Metrics.counter("impedance_evaluation_failures_total",
+            "Impedance calculations that failed with an invalid circuit");
+
+    private final SingleFlight<PointKey, Complex> pointCalculations = new SingleFlight<>();
+    private final SingleFlight<SweepKey, SweepResult> sweepCalculations = new SingleFlight<>();
+
+    /**
+     * Create a new ImpedanceModel with an empty, thread-safe on-heap history.
      */
     public ImpedanceModel() {
-        this.historyElements = Collections.synchronizedList(new ArrayList<>());
-        this.historyFrequencies = Collections.synchronizedList(new ArrayList<>());
-        this.historyResults = Collections.synchronizedList(new ArrayList<>());
+        this(new HeapHistoryStore());
+    }
+
+    /**
+     * Create a new ImpedanceModel that records history in the given store.
+     *
+     * @param history history backend; must not be null
+     * @throws IllegalArgumentException when history is null
+     */
+    public ImpedanceModel(HistoryStore history) {
+        if (history == null) throw new IllegalArgumentException("history must not be null");
+        this.history = history;
     }
 
     /**
@@ -65,20 +102,127 @@ public class ImpedanceModel {
         if (element == null) {
             throw new NullPointerException("element must not be null");
         }
-        Complex impedance = element.getImpedance(frequencyHz);
-        historyElements.add(element);
-        historyFrequencies.add(frequencyHz);
-        historyResults.add(impedance);
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        long start = EVALUATION_TIMER.start();
+        Complex impedance = null;
+        try {
+            impedance = element.getImpedance(frequencyHz);
+        } catch (InvalidCircuitException e) {
+            EVALUATION_FAILURES.increment();
+            throw e;
+        } finally {
+            EVALUATION_TIMER.stop(start);
+            event.finish(element, 1, impedance != null);
+        }
+        record(element, frequencyHz, impedance);
         return impedance;
     }
 
+    /**
+     * Calculate impedance like {@link #calculateImpedance}, sharing the evaluation
+     * with identical calculations in flight on other threads. The result is stored
+     * in history for every caller.
+     *
+     * @param element circuit element; must not be null
+     * @param frequencyHz frequency in Hertz
+     * @return computed impedance
+     * @throws InvalidCircuitException if computation fails
+     * @throws NullPointerException if element is null
+     */
+    public Complex calculateImpedanceShared(CircuitElement element, double frequencyHz)
+            throws InvalidCircuitException {
+        if (element == null) {
+            throw new NullPointerException("element must not be null");
+        }
+        PointKey key = new PointKey(CircuitHash.of(element), frequencyHz);
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        long start = EVALUATION_TIMER.start();
+        Complex impedance = null;
+        try {
+            impedance = pointCalculations.run(key, () -> element.getImpedance(frequencyHz));
+        } catch (InvalidCircuitException e) {
+            EVALUATION_FAILURES.increment();
+            throw e;
+        } finally {
+            EVALUATION_TIMER.stop(start);
+            event.finish(element, 1, impedance != null);
+        }
+        record(element, frequencyHz, impedance);
+        return impedance;
+    }
+
+    /**
+     * Evaluate a circuit over a frequency sweep, sharing the evaluation with
+     * identical sweeps in flight on other threads. Sweeps are not stored in history.
+     *
+     * @param element circuit element; must not be null
+     * @param sweep frequency grid; must not be null
+     * @return evaluated sweep
+     */
+    public SweepResult calculateSweep(CircuitElement element, FrequencySweep sweep) {
+        if (element == null || sweep == null) {
+            throw new NullPointerException("element and sweep must not be null");
+        }
+        SweepKey key = new SweepKey(CircuitHash.of(element), sweep);
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        long start = SWEEP_TIMER.start();
+        SweepResult result = null;
+        try {
+            result = sweepCalculations.run(key, () -> SweepResult.evaluate(element, sweep));
+            return result;
+        } finally {
+            SWEEP_TIMER.stop(start);
+            event.finish(element, sweep.size(), result != null);
+        }
+    }
+
+    /**
+     * Store a calculated result in history and statistics.
+     */
+    private void record(CircuitElement element, double frequencyHz, Complex impedance) {
+        HistoryAppendEvent event = new HistoryAppendEvent();
+        event.begin();
+        long start = HISTORY_TIMER.start();
+        try {
+            history.append(element, frequencyHz, impedance);
+            statistics.record(element, frequencyHz, impedance);
+        } finally {
+            HISTORY_TIMER.stop(start);
+            if (event.shouldCommit()) {
+                event.store = history.getClass().getSimpleName();
+                event.nodes = EvaluationEvent.countNodes(element);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return number of calculations answered with the result of an identical one in flight
+     */
+    public long getCoalescedCalculations() {
+        return pointCalculations.getShared() + sweepCalculations.getShared();
+    }
+
+    /**
+     * Return the streaming statistics maintained for all calculations.
+     * The statistics are not reset by {@link #clearHistory()}.
+     *
+     * @return calculation statistics
+     */
+    public CalculationStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Return an unmodifiable copy of the list of circuit elements from history.
      *
      * @return unmodifiable list of {@link CircuitElement} objects (snapshot)
      */
     public List<CircuitElement> getHistoryElements() {
-        return Collections.unmodifiableList(new ArrayList<>(historyElements));
+        return Collections.unmodifiableList(history.getElements());
     }
 
     /**
@@ -87,7 +231,7 @@ public class ImpedanceModel {
      * @return unmodifiable list of frequencies in Hertz (snapshot)
      */
     public List<Double> getHistoryFrequencies() {
-        return Collections.unmodifiableList(new ArrayList<>(historyFrequencies));
+        return Collections.unmodifiableList(history.getFrequencies());
     }
 
     /**
@@ -96,7 +240,21 @@ public class ImpedanceModel {
      * @return unmodifiable list of {@link Complex} impedances (snapshot)
      */
     public List<Complex> getHistoryResults() {
-        return Collections.unmodifiableList(new ArrayList<>(historyResults));
+        return Collections.unmodifiableList(history.getResults());
+    }
+
+    /**
+     * Return up to {@code limit} history entries starting at {@code offset}, with the
+     * size of the history at the same moment. Unlike the list getters, this reads only
+     * the requested entries, and elements, frequencies and results cannot disagree.
+     *
+     * @param offset index of the first entry
+     * @param limit maximum number of entries
+     * @return page of history entries
+     * @throws IllegalArgumentException when offset or limit is negative
+     */
+    public HistoryPage getHistoryPage(int offset, int limit) {
+        return history.read(offset, limit);
     }
 
     /**
@@ -105,7 +263,7 @@ public class ImpedanceModel {
      * @return number of history entries
      */
     public int getHistorySize() {
-        return historyElements.size();
+        return history.size();
     }
 
     /**
@@ -113,8 +271,15 @@ public class ImpedanceModel {
      * This removes elements, frequencies and results.
      */
     public void clearHistory() {
-        historyElements.clear();
-        historyFrequencies.clear();
-        historyResults.clear();
+        history.clear();
+    }
+
+    /**
+     * Release the resources held by the history backend.
+     * Called when the application is shut down.
+     */
+    @Override
+    public void close() {
+        history.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package com.mycompany.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram for non-negative doubles, in the spirit of
+ * HdrHistogram.
+ *
+ * Every power of two between 2^-64 and 2^64 is split into 16 linear sub-buckets,
+ * so quantiles are reported with a relative error below about 6.25% over a range
+ * of almost 40 decades while using a fixed array of counters. Values outside the
+ * range are clamped into the first or last bucket; min, max and mean are tracked
+ * exactly. Recording is wait-free and may be called from any thread.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT = -64;
+    private static final int MAX_EXPONENT = 63;
+    private static final int BUCKETS = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+    /**
+     * Record a single value. Negative values are recorded as zero, NaN is ignored.
+     *
+     * @param value value to record
+     */
+    public void record(double value) {
+        if (Double.isNaN(value)) return;
+        if (value < 0.0) value = 0.0;
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Return the number of recorded values.
+     *
+     * @return value count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Return the smallest recorded value, or NaN when empty.
+     *
+     * @return minimum value
+     */
+    public double getMin() {
+        return getCount() == 0 ? Double.NaN : min.get();
+    }
+
+    /**
+     * Return the largest recorded value, or NaN when empty.
+     *
+     * @return maximum value
+     */
+    public double getMax() {
+        return getCount() == 0 ? Double.NaN : max.get();
+    }
+
+    /**
+     * Return the arithmetic mean of the recorded values, or NaN when empty.
+     *
+     * @return mean value
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? Double.NaN : sum.sum() / n;
+    }
+
+    /**
+     * Return the sum of the recorded values.
+     *
+     * @return sum of values
+     */
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Estimate the value at the given quantile.
+     *
+     * @param q quantile in [0, 1]
+     * @return estimated value, or NaN when the histogram is empty
+     * @throws IllegalArgumentException when q is outside [0, 1]
+     */
+    public double quantile(double q) {
+        if (q < 0.0 || q > 1.0) throw new IllegalArgumentException("quantile must be in [0, 1]");
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        if (total == 0) return Double.NaN;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(Math.max(midpointOf(i), min.get()), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Return the number of buckets, including the zero bucket.
+     *
+     * @return bucket count
+     */
+    public int getBucketCount() {
+        return counts.length();
+    }
+
+    /**
+     * Return the count recorded in the given bucket.
+     *
+     * @param bucket bucket index in [0, {@link #getBucketCount()})
+     * @return number of values in the bucket
+     */
+    public long getBucketValue(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Return the exclusive upper bound of the given bucket.
+     *
+     * @param bucket bucket index in [0, {@link #getBucketCount()})
+     * @return upper bound of values counted in the bucket
+     */
+    public double getBucketUpperBound(int bucket) {
+        if (bucket == 0) return Math.scalb(1.0, MIN_EXPONENT);
+        int b = bucket - 1;
+        int exponent = MIN_EXPONENT + b / SUB_BUCKETS;
+        int sub = b % SUB_BUCKETS;
+        return Math.scalb(1.0 + (sub + 1) / (double) SUB_BUCKETS, exponent);
+    }
+
+    /**
+     * Reset all counters.
+     */
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        min.reset();
+        max.reset();
+    }
+
+    private static int bucketOf(double value) {
+        int exponent = Math.getExponent(value);
+        if (value == 0.0 || exponent < MIN_EXPONENT) return 0;
+        if (exponent > MAX_EXPONENT) return BUCKETS;
+        long mantissa = Double.doubleToRawLongBits(value) & 0x000fffffffffffffL;
+        int sub = (int) (mantissa >>> (52 - SUB_BUCKET_BITS));
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    private static double midpointOf(int bucket) {
+        if (bucket == 0) return 0.0;
+        int b = bucket - 1;
+        int exponent = MIN_EXPONENT + b / SUB_BUCKETS;
+        int sub = b % SUB_BUCKETS;
+        return Math.scalb(1.0 + (sub + 0.5) / SUB_BUCKETS, exponent);
+    }
+}
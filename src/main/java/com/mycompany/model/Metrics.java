@@ -0,0 +1,262 @@
+package com.mycompany.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry of latency timers and counters, written in the Prometheus
+ * text exposition format.
+ *
+ * Timers record durations into a {@link LogHistogram} and are exported as
+ * histograms: cumulative {@code _bucket} counts at the power-of-two bucket bounds of
+ * the log histogram from 2^{@value #MIN_LE_EXPONENT} s (about 8 µs) to
+ * 2^{@value #MAX_LE_EXPONENT} s, plus {@code +Inf}, {@code _sum} and {@code _count}.
+ * Unlike quantiles over the whole lifetime of the process, bucket counts can be
+ * differenced over any window and aggregated across instances by the server
+ * ({@code histogram_quantile(0.99, rate(..._bucket[5m]))}). Counters are exported as
+ * counters. Recording takes no lock: a timer costs two {@link System#nanoTime()}
+ * calls and a few atomic additions, a counter one {@link LongAdder} increment.
+ * Only registration, which instrumented classes do once in static initializers,
+ * and {@link #writePrometheus} synchronize on the registry.
+ *
+ * Metrics of one name form a family sharing help text and type; the members of a
+ * family differ by their labels. Registering the same name and labels again
+ * returns the existing metric.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public final class Metrics {
+
+    /**
+     * Exponent of the smallest exported bucket bound, 2^-17 s.
+     */
+    private static final int MIN_LE_EXPONENT = -17;
+
+    /**
+     * Exponent of the largest finite exported bucket bound, 2^6 s.
+     */
+    private static final int MAX_LE_EXPONENT = 6;
+
+    private static final Map<String, Family> FAMILIES = new LinkedHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Latency timer backed by a {@link LogHistogram} of seconds.
+     */
+    public static final class Timer {
+        private final String labels;
+        private final LogHistogram histogram = new LogHistogram();
+
+        private Timer(String labels) {
+            this.labels = labels;
+        }
+
+        /**
+         * @return start time to pass to {@link #stop(long)}
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Record the time elapsed since {@code startNanos}.
+         *
+         * @param startNanos value returned by {@link #start()}
+         */
+        public void stop(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * @param nanos duration to record
+         */
+        public void record(long nanos) {
+            histogram.record(nanos / 1e9);
+        }
+
+        /**
+         * @return histogram of the recorded durations in seconds
+         */
+        public LogHistogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Monotonic counter.
+     */
+    public static final class Counter {
+        private final String labels;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String labels) {
+            this.labels = labels;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        /**
+         * @param n amount to add, not negative
+         */
+        public void add(long n) {
+            value.add(n);
+        }
+
+        /**
+         * @return current value
+         */
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private static final class Family {
+        final String help;
+        final boolean timer;
+        final Map<String, Object> members = new LinkedHashMap<>();
+
+        Family(String help, boolean timer) {
+            this.help = help;
+            this.timer = timer;
+        }
+    }
+
+    /**
+     * Register a timer, or return the one registered with the same name and labels.
+     *
+     * @param name metric name, conventionally ending in "_seconds"
+     * @param help description of the metric
+     * @param labels label names and values, alternating
+     * @return timer
+     * @throws IllegalArgumentException when the name is already used by a counter or
+     *                                  the labels are not name/value pairs
+     */
+    public static Timer timer(String name, String help, String... labels) {
+        return (Timer) register(name, help, true, labels);
+    }
+
+    /**
+     * Register a counter, or return the one registered with the same name and labels.
+     *
+     * @param name metric name, conventionally ending in "_total"
+     * @param help description of the metric
+     * @param labels label names and values, alternating
+     * @return counter
+     * @throws IllegalArgumentException when the name is already used by a timer or
+     *                                  the labels are not name/value pairs
+     */
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, false, labels);
+    }
+
+    private static synchronized Object register(String name, String help, boolean timer, String[] labels) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("labels must be name/value pairs");
+        Family family = FAMILIES.computeIfAbsent(name, n -> new Family(help, timer));
+        if (family.timer != timer) throw new IllegalArgumentException(name + " is registered with another type");
+        String key = formatLabels(labels);
+        return family.members.computeIfAbsent(key, k -> timer ? new Timer(k) : new Counter(k));
+    }
+
+    private static String formatLabels(String[] labels) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') sb.append('\\').append(c);
+                else if (c == '\n') sb.append("\\n");
+                else sb.append(c);
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write all registered metrics in the Prometheus text format (version 0.0.4).
+     *
+     * @param out destination
+     * @return the destination
+     */
+    public static StringBuilder writePrometheus(StringBuilder out) {
+        List<Map.Entry<String, Family>> families;
+        List<List<Object>> members = new ArrayList<>();
+        synchronized (Metrics.class) {
+            families = new ArrayList<>(FAMILIES.entrySet());
+            for (Map.Entry<String, Family> e : families) members.add(new ArrayList<>(e.getValue().members.values()));
+        }
+        for (int f = 0; f < families.size(); f++) {
+            String name = families.get(f).getKey();
+            Family family = families.get(f).getValue();
+            out.append("# HELP ").append(name).append(' ');
+            appendHelp(out, family.help);
+            out.append("\n# TYPE ").append(name).append(family.timer ? " histogram\n" : " counter\n");
+            for (Object member : members.get(f)) {
+                if (member instanceof Timer t) {
+                    writeTimer(out, name, t);
+                } else {
+                    Counter c = (Counter) member;
+                    sample(out, name, c.labels, null).append(c.get()).append('\n');
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void writeTimer(StringBuilder out, String name, Timer timer) {
+        LogHistogram h = timer.histogram;
+        String bucketName = name + "_bucket";
+        long cumulative = 0;
+        int bucket = 0;
+        for (int e = MIN_LE_EXPONENT; e <= MAX_LE_EXPONENT; e++) {
+            double le = Math.scalb(1.0, e);
+            while (bucket < h.getBucketCount() && h.getBucketUpperBound(bucket) <= le) {
+                cumulative += h.getBucketValue(bucket++);
+            }
+            sample(out, bucketName, timer.labels, le).append(cumulative).append('\n');
+        }
+        while (bucket < h.getBucketCount()) cumulative += h.getBucketValue(bucket++);
+        sample(out, bucketName, timer.labels, Double.POSITIVE_INFINITY).append(cumulative).append('\n');
+        appendValue(sample(out, name + "_sum", timer.labels, null), h.getSum()).append('\n');
+        // The count is taken from the buckets so that it always equals the +Inf bucket.
+        sample(out, name + "_count", timer.labels, null).append(cumulative).append('\n');
+    }
+
+    private static StringBuilder sample(StringBuilder out, String name, String labels, Double le) {
+        out.append(name);
+        if (!labels.isEmpty() || le != null) {
+            out.append('{').append(labels);
+            if (le != null) {
+                if (!labels.isEmpty()) out.append(',');
+                appendValue(out.append("le=\""), le).append('"');
+            }
+            out.append('}');
+        }
+        return out.append(' ');
+    }
+
+    private static StringBuilder appendValue(StringBuilder out, double v) {
+        if (Double.isNaN(v)) return out.append("NaN");
+        if (Double.isInfinite(v)) return out.append(v > 0 ? "+Inf" : "-Inf");
+        return NumberFormatter.appendShortest(out, v);
+    }
+
+    private static void appendHelp(StringBuilder out, String help) {
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            if (c == '\\') out.append("\\\\");
+            else if (c == '\n') out.append("\\n");
+            else out.append(c);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.mycompany.model;
+
+import java.io.IOException;
+
+/**
+ * Formats doubles and complex numbers for pages and responses without going
+ * through {@link java.util.Formatter}.
+ *
+ * {@link #appendSignificant} produces the same text as {@code String.format("%.Ng", v)}
+ * with a '.' decimal separator: the shortest decimal digits of the value (as
+ * printed by {@link Double#toString}) are rounded half-up to N significant digits,
+ * and values whose rounded exponent is below -4 or at least N are written in
+ * scientific notation ({@code 1.23457e+08}). {@link #appendShortest} writes the
+ * shortest digits that read back as the same double.
+ *
+ * Digits are produced by {@link StringBuilder#append(double)} directly in the
+ * destination builder and rearranged in place, so no format string is parsed, no
+ * value is boxed and no intermediate strings are created.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public final class NumberFormatter {
+
+    /**
+     * Significant digits used for impedance values, as in "%.6g".
+     */
+    public static final int DEFAULT_DIGITS = 6;
+
+    /**
+     * Maximum supported number of significant digits.
+     */
+    public static final int MAX_DIGITS = 17;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 2];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+    }
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * Format a value with {@value #DEFAULT_DIGITS} significant digits.
+     *
+     * @param value value to format
+     * @return same text as {@code String.format("%.6g", value)}
+     */
+    public static String format(double value) {
+        return appendSignificant(new StringBuilder(16), value, DEFAULT_DIGITS).toString();
+    }
+
+    /**
+     * Format a complex number as "a + bj" or "a - bj" with {@value #DEFAULT_DIGITS}
+     * significant digits per part.
+     *
+     * @param z complex number
+     * @return formatted text, equal to {@link Complex#toString()}
+     */
+    public static String format(Complex z) {
+        return appendComplex(new StringBuilder(32), z).toString();
+    }
+
+    /**
+     * Append a complex number as "a + bj" or "a - bj" with {@value #DEFAULT_DIGITS}
+     * significant digits per part.
+     *
+     * @param sb destination
+     * @param z complex number
+     * @return the destination
+     */
+    public static StringBuilder appendComplex(StringBuilder sb, Complex z) {
+        double im = z.im();
+        appendSignificant(sb, z.re(), DEFAULT_DIGITS);
+        if (im >= 0) {
+            sb.append(" + ");
+            appendSignificant(sb, im, DEFAULT_DIGITS);
+        } else {
+            sb.append(" - ");
+            appendSignificant(sb, -im, DEFAULT_DIGITS);
+        }
+        return sb.append('j');
+    }
+
+    /**
+     * Append a value with a fixed number of significant digits, as "%.Ng" does.
+     *
+     * @param out destination
+     * @param value value to format
+     * @param digits significant digits, 1 to {@value #MAX_DIGITS}
+     * @throws IOException when the destination fails
+     */
+    public static void appendSignificant(Appendable out, double value, int digits) throws IOException {
+        if (out instanceof StringBuilder sb) {
+            appendSignificant(sb, value, digits);
+        } else {
+            out.append(appendSignificant(new StringBuilder(24), value, digits));
+        }
+    }
+
+    /**
+     * Append the shortest text that reads back as the same double
+     * (the {@link Double#toString} form).
+     *
+     * @param sb destination
+     * @param value value to format
+     * @return the destination
+     */
+    public static StringBuilder appendShortest(StringBuilder sb, double value) {
+        return sb.append(value);
+    }
+
+    /**
+     * Append a value with a fixed number of significant digits, as "%.Ng" does.
+     *
+     * @param sb destination
+     * @param value value to format
+     * @param digits significant digits, 1 to {@value #MAX_DIGITS}
+     * @return the destination
+     * @throws IllegalArgumentException when digits is out of range
+     */
+    public static StringBuilder appendSignificant(StringBuilder sb, double value, int digits) {
+        if (digits < 1 || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException("Significant digits must be between 1 and " + MAX_DIGITS);
+        }
+        if (Double.isNaN(value)) return sb.append("NaN");
+        if (Double.compare(value, 0.0) < 0) sb.append('-');
+        double v = Math.abs(value);
+        if (Double.isInfinite(v)) return sb.append("Infinity");
+
+        long mantissa;
+        int count;
+        int decExp;
+        if (v == 0.0) {
+            mantissa = 0;
+            count = 1;
+            decExp = 1;
+        } else {
+            // Read the shortest digits back from their Double.toString form, keeping
+            // the first digits + 1 of them: "%g" rounds on that one digit only.
+            int start = sb.length();
+            sb.append(v);
+            int end = sb.length();
+            int exponent = 0;
+            for (int i = start; i < end; i++) {
+                if (sb.charAt(i) == 'E') {
+                    exponent = Integer.parseInt(sb, i + 1, end, 10);
+                    end = i;
+                    break;
+                }
+            }
+            mantissa = 0;
+            count = 0;
+            int leadingZeros = 0;
+            int integerDigits = 0;
+            boolean afterPoint = false;
+            for (int i = start; i < end; i++) {
+                char c = sb.charAt(i);
+                if (c == '.') {
+                    afterPoint = true;
+                    continue;
+                }
+                if (!afterPoint) integerDigits++;
+                if (count == 0 && c == '0') {
+                    leadingZeros++;
+                    continue;
+                }
+                if (count <= digits) {
+                    mantissa = 10 * mantissa + (c - '0');
+                    count++;
+                }
+            }
+            decExp = integerDigits - leadingZeros + exponent;
+            sb.setLength(start);
+
+            if (count > digits) {
+                int next = (int) (mantissa % 10);
+                mantissa /= 10;
+                count = digits;
+                if (next >= 5) {
+                    mantissa++;
+                    if (mantissa == POWERS_OF_TEN[digits]) {
+                        mantissa = POWERS_OF_TEN[digits - 1];
+                        decExp++;
+                    }
+                }
+            }
+        }
+
+        // mantissa holds count digits d1 d2 ... with the value 0.d1d2... * 10^decExp
+        int exponent = decExp - 1;
+        if (v != 0.0 && (exponent < -4 || exponent >= digits)) {
+            appendDigits(sb, mantissa, count, 0, 1);
+            if (digits > 1) {
+                sb.append('.');
+                appendDigits(sb, mantissa, count, 1, digits);
+            }
+            sb.append('e').append(exponent < 0 ? '-' : '+');
+            int e = Math.abs(exponent);
+            if (e < 10) sb.append('0');
+            return sb.append(e);
+        }
+        int decimals = digits - decExp;
+        if (decExp > 0) {
+            appendDigits(sb, mantissa, count, 0, decExp);
+            if (decimals > 0) {
+                sb.append('.');
+                appendDigits(sb, mantissa, count, decExp, decExp + decimals);
+            }
+        } else {
+            sb.append("0.");
+            for (int i = decExp; i < 0; i++) sb.append('0');
+            appendDigits(sb, mantissa, count, 0, decimals + decExp);
+        }
+        return sb;
+    }
+
+    /**
+     * Append digits from..to-1 of a count-digit mantissa, padding with zeros past its end.
+     */
+    private static void appendDigits(StringBuilder sb, long mantissa, int count, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sb.append(i < count ? (char) ('0' + (mantissa / POWERS_OF_TEN[count - 1 - i]) % 10) : '0');
+        }
+    }
+}
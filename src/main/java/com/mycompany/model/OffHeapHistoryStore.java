@@ -0,0 +1,260 @@
+package com.mycompany.model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * History store that serializes entries into direct (off-heap) memory.
+ *
+ * Records are appended to a list of fixed-size direct buffer chunks, and the
+ * start offset of each record is kept in a separate direct index buffer, so the
+ * heap usage does not grow with the number of entries. The garbage collector
+ * only ever sees the chunk list, never the individual records.
+ *
+ * Record layout (big-endian):
+ * <pre>
+ *   frequency (double) | re (double) | im (double) | tree length (int) | tree bytes
+ * </pre>
+ * The circuit tree is stored in prefix form: a tag byte ('R', 'C', 'L') followed by
+ * the component value, or 'S'/'P' followed by the child count and the children.
+ * Entries are decoded back into objects only when a snapshot or a page is requested;
+ * a page decodes only its own records, found through the index.
+ *
+ * A record is first encoded into a reusable heap scratch buffer and only then copied
+ * into a chunk and published in the index, so an element that cannot be encoded
+ * leaves the store exactly as it was.
+ *
+ * The project targets Java 16, where direct buffers cannot be freed explicitly;
+ * {@link #close()} drops every buffer reference so the memory is returned as soon
+ * as the buffers' cleaners run, and rejects further appends.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.2
+ */
+public class OffHeapHistoryStore implements HistoryStore {
+
+    /**
+     * Default size of a single data chunk in bytes (1 MiB).
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int HEADER_SIZE = 3 * Double.BYTES + Integer.BYTES;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final int INITIAL_SCRATCH_CAPACITY = 256;
+
+    private static final byte TAG_RESISTOR = 'R';
+    private static final byte TAG_CAPACITOR = 'C';
+    private static final byte TAG_INDUCTOR = 'L';
+    private static final byte TAG_SERIES = 'S';
+    private static final byte TAG_PARALLEL = 'P';
+
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer index;
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH_CAPACITY);
+    private int count;
+    private boolean closed;
+
+    /**
+     * Create a store with {@link #DEFAULT_CHUNK_SIZE} chunks.
+     */
+    public OffHeapHistoryStore() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a store with the given chunk size.
+     *
+     * @param chunkSize size of a single direct data chunk in bytes; must be positive
+     * @throws IllegalArgumentException when chunkSize is not positive
+     */
+    public OffHeapHistoryStore(int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be > 0");
+        this.chunkSize = chunkSize;
+        this.index = ByteBuffer.allocateDirect(INITIAL_INDEX_CAPACITY * Long.BYTES);
+    }
+
+    @Override
+    public synchronized void append(CircuitElement element, double frequencyHz, Complex result) {
+        if (closed) throw new IllegalStateException("history store is closed");
+        int treeSize = encodedSize(element);
+        int recordSize = HEADER_SIZE + treeSize;
+
+        if (scratch.capacity() < recordSize) {
+            scratch = ByteBuffer.allocate(Math.max(recordSize, 2 * scratch.capacity()));
+        }
+        ByteBuffer record = scratch.clear();
+        record.putDouble(frequencyHz);
+        record.putDouble(result.re());
+        record.putDouble(result.im());
+        record.putInt(treeSize);
+        encode(element, record);
+        record.flip();
+
+        ensureIndexCapacity(count + 1);
+        ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        if (chunk == null || chunk.remaining() < recordSize) {
+            chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, recordSize));
+            chunks.add(chunk);
+        }
+
+        long offset = ((long) (chunks.size() - 1) << 32) | chunk.position();
+        chunk.put(record);
+        index.putLong(count * Long.BYTES, offset);
+        count++;
+    }
+
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    @Override
+    public synchronized List<CircuitElement> getElements() {
+        List<CircuitElement> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ByteBuffer record = record(i);
+            record.position(record.position() + HEADER_SIZE);
+            out.add(decode(record));
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized List<Double> getFrequencies() {
+        List<Double> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ByteBuffer record = record(i);
+            out.add(record.getDouble());
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized List<Complex> getResults() {
+        List<Complex> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ByteBuffer record = record(i);
+            record.position(record.position() + Double.BYTES);
+            double re = record.getDouble();
+            double im = record.getDouble();
+            out.add(new Complex(re, im));
+        }
+        return out;
+    }
+
+    @Override
+    public synchronized HistoryPage read(int offset, int limit) {
+        int[] range = HistoryPage.range(offset, limit, count);
+        List<HistoryPage.Entry> entries = new ArrayList<>(range[1] - range[0]);
+        for (int i = range[0]; i < range[1]; i++) {
+            ByteBuffer record = record(i);
+            double frequency = record.getDouble();
+            double re = record.getDouble();
+            double im = record.getDouble();
+            record.getInt();
+            entries.add(new HistoryPage.Entry(decode(record), frequency, new Complex(re, im)));
+        }
+        return new HistoryPage(count, range[0], entries);
+    }
+
+    /**
+     * Return the number of direct bytes currently reserved by data chunks and the index.
+     *
+     * @return reserved off-heap bytes
+     */
+    public synchronized long getReservedBytes() {
+        long total = index == null ? 0 : index.capacity();
+        for (ByteBuffer chunk : chunks) total += chunk.capacity();
+        return total;
+    }
+
+    /**
+     * Remove all entries. The first data chunk is kept for reuse, the rest are released.
+     */
+    @Override
+    public synchronized void clear() {
+        if (closed) return;
+        if (chunks.size() > 1) chunks.subList(1, chunks.size()).clear();
+        if (!chunks.isEmpty()) chunks.get(0).clear();
+        if (index.capacity() > INITIAL_INDEX_CAPACITY * Long.BYTES) {
+            index = ByteBuffer.allocateDirect(INITIAL_INDEX_CAPACITY * Long.BYTES);
+        }
+        count = 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        chunks.clear();
+        index = null;
+        count = 0;
+    }
+
+    private ByteBuffer record(int i) {
+        long offset = index.getLong(i * Long.BYTES);
+        ByteBuffer chunk = chunks.get((int) (offset >>> 32)).duplicate();
+        chunk.position((int) offset);
+        return chunk;
+    }
+
+    private void ensureIndexCapacity(int entries) {
+        long required = (long) entries * Long.BYTES;
+        if (required <= index.capacity()) return;
+        if (required > Integer.MAX_VALUE) throw new IllegalStateException("history store is full");
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE - 7L, Math.max(required, 2L * index.capacity()));
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity);
+        ByteBuffer used = index.duplicate();
+        used.position(0).limit(count * Long.BYTES);
+        grown.put(used);
+        grown.clear();
+        index = grown;
+    }
+
+    private static int encodedSize(CircuitElement element) {
+        if (element instanceof Component) return 1 + Double.BYTES;
+        if (element instanceof ConnectionNode node) {
+            int size = 1 + Integer.BYTES;
+            for (CircuitElement child : node.getChildren()) size += encodedSize(child);
+            return size;
+        }
+        throw new IllegalArgumentException("Unsupported circuit element: " + element.getClass().getName());
+    }
+
+    private static void encode(CircuitElement element, ByteBuffer out) {
+        if (element instanceof ConnectionNode node) {
+            List<CircuitElement> children = node.getChildren();
+            out.put(node.isSeries() ? TAG_SERIES : TAG_PARALLEL);
+            out.putInt(children.size());
+            for (CircuitElement child : children) encode(child, out);
+            return;
+        }
+        Component component = (Component) element;
+        if (component instanceof Resistor) out.put(TAG_RESISTOR);
+        else if (component instanceof Capacitor) out.put(TAG_CAPACITOR);
+        else if (component instanceof Inductor) out.put(TAG_INDUCTOR);
+        else throw new IllegalArgumentException("Unsupported component: " + component.getClass().getName());
+        out.putDouble(component.getValue());
+    }
+
+    private static CircuitElement decode(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case TAG_RESISTOR:
+                return new Resistor(in.getDouble());
+            case TAG_CAPACITOR:
+                return new Capacitor(in.getDouble());
+            case TAG_INDUCTOR:
+                return new Inductor(in.getDouble());
+            case TAG_SERIES:
+            case TAG_PARALLEL:
+                ConnectionNode node = new ConnectionNode(tag == TAG_SERIES);
+                int children = in.getInt();
+                for (int i = 0; i < children; i++) node.addChild(decode(in));
+                return node;
+            default:
+                throw new IllegalStateException("Corrupted history record, tag " + tag);
+        }
+    }
+}
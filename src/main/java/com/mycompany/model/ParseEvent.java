@@ -0,0 +1,36 @@
+package com.mycompany.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for parsing a circuit expression.
+ *
+ * Like every event here it is created, begun and committed on each call, but its
+ * fields are only filled in when {@link #shouldCommit()} is true. With no recording
+ * running the JIT removes the allocation and the calls entirely.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+@Name("com.mycompany.impedance.Parse")
+@Label("Expression Parse")
+@Category({"Impedance Calculator", "Model"})
+@Description("Checking and parsing of a circuit expression")
+@StackTrace(false)
+final class ParseEvent extends jdk.jfr.Event {
+
+    @Label("Length")
+    @Description("Expression length in characters")
+    int length;
+
+    @Label("Nodes")
+    @Description("Number of circuit elements in the expression")
+    int nodes;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,116 @@
+package com.mycompany.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent identical computations.
+ *
+ * The first caller of {@link #run} for a key becomes the leader: it runs the
+ * computation on its own thread and publishes the outcome through a
+ * {@link CompletableFuture}. Callers arriving with the same key while the
+ * computation is in flight wait for that future instead of computing again, and
+ * receive the same value or the same exception. The entry is removed as soon as the
+ * computation completes, so later callers compute afresh; nothing is cached.
+ * Waiting callers are not interrupted; the interrupt status is restored once the
+ * result is available.
+ *
+ * Keys must have value semantics (equals and hashCode), for example a record of
+ * the canonical circuit hash and the calculation parameters.
+ *
+ * @param <K> key type
+ * @param <V> result type
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * Computation that may fail with a checked exception.
+     *
+     * @param <V> result type
+     * @param <E> exception type
+     */
+    @FunctionalInterface
+    public interface Computation<V, E extends Exception> {
+        V compute() throws E;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * Run a computation, or join the identical one already in flight.
+     *
+     * @param key identity of the computation
+     * @param computation computation to run when no identical one is in flight
+     * @param <E> exception type of the computation
+     * @return result of the computation
+     * @throws E when the computation fails
+     */
+    public <E extends Exception> V run(K key, Computation<V, E> computation) throws E {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            shared.increment();
+            return await(existing);
+        }
+        computed.increment();
+        try {
+            V value = computation.compute();
+            mine.complete(value);
+            return value;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V await(CompletableFuture<V> future) throws E {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException re) throw re;
+                    if (cause instanceof Error err) throw err;
+                    // The leader ran a Computation<V, E>, so a checked cause is an E.
+                    throw (E) cause;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of computations currently in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return number of computations run since creation
+     */
+    public long getComputed() {
+        return computed.sum();
+    }
+
+    /**
+     * @return number of callers that received the result of another caller's computation
+     */
+    public long getShared() {
+        return shared.sum();
+    }
+}
@@ -0,0 +1,206 @@
+package com.mycompany.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Space-Saving heavy-hitters sketch (Metwally et al.).
+ *
+ * Tracks at most {@code capacity} keys. When a new key arrives and the sketch is
+ * full, the key with the smallest count is replaced and the newcomer inherits that
+ * count plus one; the inherited part is remembered as the maximum overestimation
+ * error. Any key occurring more than {@code n / capacity} times is guaranteed to
+ * be tracked.
+ *
+ * Memory use is constant regardless of the number of offered items.
+ *
+ * Counters are kept in a stream summary: a list of buckets in ascending count
+ * order, each holding the counters with that count. Incrementing a counter moves
+ * it to the neighbouring bucket and the counter to replace is the first one of the
+ * first bucket, so {@link #offer} takes constant time however large the capacity,
+ * and {@link #top} reads the counters in order without sorting.
+ *
+ * Keys should be short, such as hashes; a longer text to show for a key can be
+ * given as its label, which is only produced when the key gets a counter.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.2
+ */
+public class SpaceSaving {
+
+    /**
+     * Estimated frequency of a tracked key.
+     *
+     * @param key tracked key
+     * @param label text shown for the key; the key itself when none was given
+     * @param count estimated count (upper bound of the true count)
+     * @param error maximum overestimation included in count
+     */
+    public record Entry(String key, String label, long count, long error) {
+
+        /**
+         * Create an entry whose label is its key.
+         *
+         * @param key tracked key
+         * @param count estimated count
+         * @param error maximum overestimation included in count
+         */
+        public Entry(String key, long count, long error) {
+            this(key, key, count, error);
+        }
+    }
+
+    private static final class Counter {
+        String key;
+        String label;
+        long error;
+        Bucket bucket;
+        Counter prev;
+        Counter next;
+    }
+
+    /**
+     * Counters sharing one count, linked to the buckets with the neighbouring counts.
+     */
+    private static final class Bucket {
+        final long count;
+        Counter first;
+        Bucket prev;
+        Bucket next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private Bucket lowest;
+    private Bucket highest;
+
+    /**
+     * Create a sketch tracking at most capacity keys.
+     *
+     * @param capacity number of counters; must be positive
+     * @throws IllegalArgumentException when capacity is not positive
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Record one occurrence of the key.
+     *
+     * @param key key to count; must not be null
+     */
+    public void offer(String key) {
+        offer(key, () -> key);
+    }
+
+    /**
+     * Record one occurrence of the key, labelled for display.
+     *
+     * @param key key to count; must not be null
+     * @param label produces the label when the key gets a counter
+     */
+    public synchronized void offer(String key, Supplier<String> label) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            increment(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter();
+            counter.key = key;
+            counter.label = label.get();
+            Bucket ones = lowest != null && lowest.count == 1 ? lowest : insertAfter(null, 1);
+            attach(counter, ones);
+            counters.put(key, counter);
+            return;
+        }
+        Counter min = lowest.first;
+        counters.remove(min.key);
+        min.key = key;
+        min.label = label.get();
+        min.error = lowest.count;
+        increment(min);
+        counters.put(key, min);
+    }
+
+    /**
+     * Move a counter to the bucket of the next count, creating it when missing.
+     */
+    private void increment(Counter counter) {
+        Bucket from = counter.bucket;
+        Bucket to = from.next != null && from.next.count == from.count + 1 ? from.next : insertAfter(from, from.count + 1);
+        detach(counter);
+        attach(counter, to);
+    }
+
+    /**
+     * Link a new empty bucket after the given one, or first when it is null.
+     */
+    private Bucket insertAfter(Bucket prev, long count) {
+        Bucket bucket = new Bucket(count);
+        bucket.prev = prev;
+        bucket.next = prev == null ? lowest : prev.next;
+        if (bucket.next != null) bucket.next.prev = bucket; else highest = bucket;
+        if (prev != null) prev.next = bucket; else lowest = bucket;
+        return bucket;
+    }
+
+    private static void attach(Counter counter, Bucket bucket) {
+        counter.bucket = bucket;
+        counter.prev = null;
+        counter.next = bucket.first;
+        if (bucket.first != null) bucket.first.prev = counter;
+        bucket.first = counter;
+    }
+
+    /**
+     * Unlink a counter from its bucket, dropping the bucket when it becomes empty.
+     */
+    private void detach(Counter counter) {
+        Bucket bucket = counter.bucket;
+        if (counter.prev != null) counter.prev.next = counter.next; else bucket.first = counter.next;
+        if (counter.next != null) counter.next.prev = counter.prev;
+        counter.prev = null;
+        counter.next = null;
+        counter.bucket = null;
+        if (bucket.first == null) {
+            if (bucket.prev != null) bucket.prev.next = bucket.next; else lowest = bucket.next;
+            if (bucket.next != null) bucket.next.prev = bucket.prev; else highest = bucket.prev;
+        }
+    }
+
+    /**
+     * Return the k keys with the highest estimated counts, most frequent first.
+     *
+     * @param k number of keys to return
+     * @return list of entries (at most k)
+     */
+    public synchronized List<Entry> top(int k) {
+        int n = Math.max(0, Math.min(k, counters.size()));
+        List<Entry> top = new ArrayList<>(n);
+        for (Bucket b = highest; b != null && top.size() < n; b = b.prev) {
+            for (Counter c = b.first; c != null && top.size() < n; c = c.next) {
+                top.add(new Entry(c.key, c.label, b.count, c.error));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Remove all tracked keys.
+     */
+    public synchronized void clear() {
+        counters.clear();
+        lowest = null;
+        highest = null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mycompany.model;
+
+/**
+ * Impedances of one circuit at every point of a {@link FrequencySweep}.
+ *
+ * A point at which the circuit cannot be evaluated keeps the error message
+ * instead of an impedance. Results are immutable once evaluated and may be shared
+ * between requests.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public final class SweepResult {
+
+    private final FrequencySweep sweep;
+    private final Complex[] impedances;
+    private final String[] errors;
+
+    private SweepResult(FrequencySweep sweep) {
+        this.sweep = sweep;
+        this.impedances = new Complex[sweep.size()];
+        this.errors = new String[sweep.size()];
+    }
+
+    /**
+     * Evaluate a circuit at every point of a sweep.
+     *
+     * @param element circuit; must not be null
+     * @param sweep frequency grid; must not be null
+     * @return evaluated sweep
+     */
+    public static SweepResult evaluate(CircuitElement element, FrequencySweep sweep) {
+        if (element == null || sweep == null) throw new IllegalArgumentException("element and sweep must not be null");
+        SweepResult result = new SweepResult(sweep);
+        for (int i = 0; i < sweep.size(); i++) {
+            try {
+                result.impedances[i] = element.getImpedance(sweep.frequency(i));
+            } catch (InvalidCircuitException e) {
+                result.errors[i] = e.getMessage();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the evaluated sweep
+     */
+    public FrequencySweep getSweep() {
+        return sweep;
+    }
+
+    /**
+     * @return number of points
+     */
+    public int size() {
+        return impedances.length;
+    }
+
+    /**
+     * @param i point index
+     * @return impedance at the i-th frequency, or null when that point failed
+     */
+    public Complex getImpedance(int i) {
+        return impedances[i];
+    }
+
+    /**
+     * @param i point index
+     * @return error message of the i-th frequency, or null when it was evaluated
+     */
+    public String getError(int i) {
+        return errors[i];
+    }
+}
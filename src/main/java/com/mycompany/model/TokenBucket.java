@@ -0,0 +1,103 @@
+package com.mycompany.model;
+
+/**
+ * Token bucket rate limiter.
+ *
+ * The bucket holds up to {@code capacity} tokens and is refilled continuously at
+ * {@code refillPerSecond} tokens per second. A request of a given cost is admitted
+ * when at least that many tokens are available, and the tokens are taken. Costs
+ * larger than the capacity are treated as the capacity, so that an expensive
+ * request is admitted when the bucket is full instead of never.
+ *
+ * Time is passed in by the caller (from {@link System#nanoTime()}), which keeps the
+ * bucket deterministic in tests. Methods are thread-safe.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Create a full bucket.
+     *
+     * @param capacity maximum number of tokens (burst size), must be positive
+     * @param refillPerSecond tokens added per second, must be positive
+     * @param nowNanos current time in nanoseconds
+     * @throws IllegalArgumentException when capacity or rate is not positive
+     */
+    public TokenBucket(double capacity, double refillPerSecond, long nowNanos) {
+        if (!(capacity > 0) || !(refillPerSecond > 0)) {
+            throw new IllegalArgumentException("capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1e9;
+        this.tokens = capacity;
+        this.lastRefill = nowNanos;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+            lastRefill = nowNanos;
+        }
+    }
+
+    /**
+     * Take tokens for a request if enough are available.
+     *
+     * @param cost cost of the request; values above the capacity count as the capacity
+     * @param nowNanos current time in nanoseconds
+     * @return true when the request is admitted
+     */
+    public synchronized boolean tryAcquire(double cost, long nowNanos) {
+        refill(nowNanos);
+        double c = Math.min(cost, capacity);
+        if (tokens < c) return false;
+        tokens -= c;
+        return true;
+    }
+
+    /**
+     * Time until a request of the given cost would be admitted.
+     *
+     * @param cost cost of the request
+     * @param nowNanos current time in nanoseconds
+     * @return nanoseconds to wait, 0 when it would be admitted now
+     */
+    public synchronized long nanosUntilAvailable(double cost, long nowNanos) {
+        refill(nowNanos);
+        double missing = Math.min(cost, capacity) - tokens;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+    }
+
+    /**
+     * @return maximum number of tokens
+     */
+    public double getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param nowNanos current time in nanoseconds
+     * @return number of tokens available now
+     */
+    public synchronized double available(long nowNanos) {
+        refill(nowNanos);
+        return tokens;
+    }
+
+    /**
+     * @param nowNanos current time in nanoseconds
+     * @return true when the bucket is full, i.e. it has been idle long enough to be forgotten
+     */
+    public synchronized boolean isFull(long nowNanos) {
+        refill(nowNanos);
+        return tokens >= capacity;
+    }
+}
@@ -0,0 +1,191 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
+import com.mycompany.entities.Component;
+import com.mycompany.entities.JobCheckpoint;
+import com.mycompany.model.Resistor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.UserTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ReevaluationJob class.
+ * Tests cover evaluation on the given executor, a saturated executor, and runs with
+ * a frequency override, which must not change the stored calculations, against an
+ * in-memory entity manager that answers the job's named queries.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class ReevaluationJobTest {
+
+    /**
+     * Rows of the in-memory database.
+     */
+    private static final class Tables {
+        final TreeMap<Long, Calculation> calculations = new TreeMap<>();
+        final JobCheckpoint checkpoint = new JobCheckpoint(ReevaluationJob.JOB_NAME);
+
+        Tables(int count, double frequency) {
+            Circuit circuit = new Circuit();
+            circuit.setHash("r100");
+            Component component = new Component();
+            component.setType("R");
+            component.setValue(100.0);
+            circuit.addComponent(component);
+            for (long id = 1; id <= count; id++) {
+                Calculation calc = new Calculation();
+                calc.setId(id);
+                calc.setName("c" + id);
+                calc.setFrequency(frequency);
+                calc.setCircuit(circuit);
+                calculations.put(id, calc);
+            }
+            checkpoint.setStatus(JobCheckpoint.STATUS_RUNNING);
+            checkpoint.setUpToId(calculations.lastKey());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TypedQuery<?> query(Tables db, String name) {
+        Map<String, Object> params = new HashMap<>();
+        int[] max = {Integer.MAX_VALUE};
+        return (TypedQuery<?>) Proxy.newProxyInstance(ReevaluationJobTest.class.getClassLoader(),
+                new Class<?>[]{TypedQuery.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setParameter":
+                            params.put((String) args[0], args[1]);
+                            return proxy;
+                        case "setMaxResults":
+                            max[0] = (Integer) args[0];
+                            return proxy;
+                        case "setHint":
+                            return proxy;
+                        case "getResultList":
+                            List<Object> rows;
+                            if (name.equals(Calculation.PAGE_IDS_UP_TO)) {
+                                long after = (Long) params.get("after");
+                                long upTo = (Long) params.get("upTo");
+                                rows = db.calculations.keySet().stream()
+                                        .filter(id -> id > after && id <= upTo).map(id -> (Object) id).toList();
+                            } else if (name.equals(Calculation.FETCH_BY_IDS)) {
+                                Collection<Long> ids = (Collection<Long>) params.get("ids");
+                                rows = ids.stream().map(id -> (Object) db.calculations.get(id)).toList();
+                            } else {
+                                throw new UnsupportedOperationException(name);
+                            }
+                            return rows.subList(0, Math.min(max[0], rows.size()));
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static void run(Tables db, ExecutorService executor) {
+        EntityManager em = (EntityManager) Proxy.newProxyInstance(ReevaluationJobTest.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "find":
+                            return db.checkpoint;
+                        case "createNamedQuery":
+                            return query(db, (String) args[0]);
+                        case "persist":
+                            Calculation calc = (Calculation) args[0];
+                            calc.setId(db.calculations.lastKey() + 1);
+                            db.calculations.put(calc.getId(), calc);
+                            return null;
+                        case "getEntityGraph":
+                        case "flush":
+                        case "clear":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        UserTransaction tx = (UserTransaction) Proxy.newProxyInstance(ReevaluationJobTest.class.getClassLoader(),
+                new Class<?>[]{UserTransaction.class}, (proxy, method, args) -> null);
+        new ReevaluationJob(em, tx, null, executor, 100).run();
+    }
+
+    /**
+     * Test that a run evaluates every calculation in place, sharing the work with
+     * the executor it was given.
+     */
+    @Test
+    public void testEvaluatesOnExecutor() throws Exception {
+        Tables db = new Tables(250, 50.0);
+        AtomicInteger executed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2, r -> {
+            executed.incrementAndGet();
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            run(db, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(JobCheckpoint.STATUS_DONE, db.checkpoint.getStatus(), db.checkpoint.getMessage());
+        assertEquals(250, db.checkpoint.getProcessed());
+        assertEquals(0, db.checkpoint.getFailed());
+        assertEquals(250, db.calculations.size());
+        for (Calculation calc : db.calculations.values()) {
+            assertEquals(new Resistor(100).getImpedance(50).re(), calc.getResultRe());
+        }
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            assertTrue(executed.get() > 0, "no piece ran on the executor");
+        }
+    }
+
+    /**
+     * Test that a run completes on its own thread when the executor rejects every piece.
+     */
+    @Test
+    public void testSaturatedExecutor() {
+        Tables db = new Tables(250, 50.0);
+        ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        run(db, rejecting);
+        assertEquals(JobCheckpoint.STATUS_DONE, db.checkpoint.getStatus(), db.checkpoint.getMessage());
+        assertEquals(250, db.checkpoint.getProcessed());
+    }
+
+    /**
+     * Test that a frequency override stores new calculations, once per stored one,
+     * and leaves the stored frequencies and results unchanged.
+     */
+    @Test
+    public void testFrequencyOverrideKeepsStoredCalculations() {
+        Tables db = new Tables(150, 50.0);
+        db.checkpoint.setFrequency(1000.0);
+        run(db, null);
+
+        assertEquals(JobCheckpoint.STATUS_DONE, db.checkpoint.getStatus(), db.checkpoint.getMessage());
+        assertEquals(150, db.checkpoint.getProcessed());
+        assertEquals(300, db.calculations.size());
+        for (Calculation calc : db.calculations.headMap(150L, true).values()) {
+            assertEquals(50.0, calc.getFrequency());
+            assertNull(calc.getResultRe());
+        }
+        for (Calculation calc : db.calculations.tailMap(150L, false).values()) {
+            assertEquals(1000.0, calc.getFrequency());
+            assertEquals(100.0, calc.getResultRe(), 1e-9);
+            assertEquals("r100", calc.getCircuit().getHash());
+        }
+    }
+}
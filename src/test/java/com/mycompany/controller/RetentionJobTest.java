@@ -0,0 +1,197 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.ArchivedCalculation;
+import com.mycompany.entities.Calculation;
+import com.mycompany.entities.Circuit;
+import com.mycompany.entities.Component;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.UserTransaction;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the RetentionJob class.
+ * Tests cover deleting circuits no calculation refers to any more and giving
+ * calculations without a creation time one, against an in-memory entity manager
+ * that answers the job's named queries.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class RetentionJobTest {
+
+    /**
+     * Rows of the in-memory database.
+     */
+    private static final class Tables {
+        final TreeMap<Long, Calculation> calculations = new TreeMap<>();
+        final Map<String, Circuit> circuits = new HashMap<>();
+        final List<ArchivedCalculation> archive = new ArrayList<>();
+        int commits;
+
+        Circuit circuit(String hash, String type, double value) {
+            Circuit circuit = new Circuit();
+            circuit.setHash(hash);
+            circuit.setDefinition(type + ":" + value);
+            Component component = new Component();
+            component.setType(type);
+            component.setValue(value);
+            circuit.addComponent(component);
+            circuits.put(hash, circuit);
+            return circuit;
+        }
+
+        void calculation(long id, Circuit circuit, LocalDateTime createdAt) {
+            Calculation calc = new Calculation();
+            calc.setId(id);
+            calc.setFrequency(50.0);
+            calc.setCircuit(circuit);
+            calc.setCreatedAt(createdAt);
+            calculations.put(id, calc);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> select(Tables db, String name, Map<String, Object> params) {
+        Stream<Calculation> rows = db.calculations.values().stream();
+        long after = params.containsKey("after") ? (Long) params.get("after") : 0L;
+        switch (name) {
+            case Calculation.PAGE_IDS_CREATED_UNKNOWN:
+                return rows.filter(c -> c.getCreatedAt() == null && c.getId() > after)
+                        .map(c -> (Object) c.getId()).toList();
+            case Calculation.PAGE_IDS_CREATED_BEFORE:
+                LocalDateTime cutoff = (LocalDateTime) params.get("cutoff");
+                return rows.filter(c -> c.getCreatedAt() != null && c.getCreatedAt().isBefore(cutoff) && c.getId() > after)
+                        .map(c -> (Object) c.getId()).toList();
+            case Calculation.FETCH_BY_IDS:
+                Collection<Long> ids = (Collection<Long>) params.get("ids");
+                return rows.filter(c -> ids.contains(c.getId())).map(c -> (Object) c).toList();
+            case Calculation.CIRCUIT_HASHES_IN_USE:
+                Collection<String> hashes = (Collection<String>) params.get("hashes");
+                return rows.filter(c -> c.getCircuit() != null && hashes.contains(c.getCircuit().getHash()))
+                        .map(c -> (Object) c.getCircuit().getHash()).distinct().toList();
+            default:
+                throw new UnsupportedOperationException(name);
+        }
+    }
+
+    private static TypedQuery<?> query(Tables db, String name) {
+        Map<String, Object> params = new HashMap<>();
+        int[] max = {Integer.MAX_VALUE};
+        return (TypedQuery<?>) Proxy.newProxyInstance(RetentionJobTest.class.getClassLoader(),
+                new Class<?>[]{TypedQuery.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setParameter":
+                            params.put((String) args[0], args[1]);
+                            return proxy;
+                        case "setMaxResults":
+                            max[0] = (Integer) args[0];
+                            return proxy;
+                        case "getResultList":
+                            List<Object> rows = select(db, name, params);
+                            return rows.subList(0, Math.min(max[0], rows.size()));
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static RetentionJob.Report run(Tables db, int batchSize) {
+        EntityManager em = (EntityManager) Proxy.newProxyInstance(RetentionJobTest.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createNamedQuery":
+                            return query(db, (String) args[0]);
+                        case "persist":
+                            db.archive.add((ArchivedCalculation) args[0]);
+                            return null;
+                        case "remove":
+                            if (args[0] instanceof Calculation c) db.calculations.remove(c.getId());
+                            if (args[0] instanceof Circuit c) db.circuits.remove(c.getHash());
+                            return null;
+                        case "find":
+                            return db.circuits.get((String) args[1]);
+                        case "flush":
+                        case "clear":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        UserTransaction tx = (UserTransaction) Proxy.newProxyInstance(RetentionJobTest.class.getClassLoader(),
+                new Class<?>[]{UserTransaction.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("commit")) db.commits++;
+                    return null;
+                });
+        RetentionPolicy policy = new RetentionPolicy(Duration.ofDays(30), 0, 0, batchSize, 0, 0);
+        return new RetentionJob(em, tx, null, policy).run();
+    }
+
+    /**
+     * Test that circuits are deleted with their last calculation and kept while
+     * another calculation still refers to them.
+     */
+    @Test
+    public void testUnreferencedCircuitsRemoved() {
+        Tables db = new Tables();
+        LocalDateTime old = LocalDateTime.now().minusDays(40);
+        Circuit onlyOld = db.circuit("a", "R", 100);
+        Circuit shared = db.circuit("b", "C", 1e-6);
+        db.calculation(1, onlyOld, old);
+        db.calculation(2, shared, old);
+        db.calculation(3, shared, LocalDateTime.now());
+
+        RetentionJob.Report report = run(db, 200);
+
+        assertNull(report.error());
+        assertEquals(2, report.archived());
+        assertEquals(1, report.circuitsRemoved());
+        assertEquals(List.of(3L), List.copyOf(db.calculations.keySet()));
+        assertFalse(db.circuits.containsKey("a"));
+        assertTrue(db.circuits.containsKey("b"));
+        ArchivedCalculation archived = db.archive.get(0);
+        assertEquals("a", archived.getCircuitHash());
+        assertEquals(onlyOld.getDefinition(), archived.getCircuitDefinition());
+    }
+
+    /**
+     * Test that calculations without a creation time get the time of the run in
+     * batches, are not archived by that run, and do not block the age limit.
+     */
+    @Test
+    public void testMissingCreationTimeBackfilled() {
+        Tables db = new Tables();
+        Circuit circuit = db.circuit("a", "R", 100);
+        LocalDateTime before = LocalDateTime.now();
+        db.calculation(1, circuit, null);
+        db.calculation(2, circuit, null);
+        db.calculation(3, circuit, null);
+        db.calculation(4, circuit, before.minusDays(40));
+
+        RetentionJob.Report report = run(db, 2);
+
+        assertNull(report.error());
+        assertEquals(3, report.backfilled());
+        assertEquals(1, report.archived());
+        assertEquals(0, report.circuitsRemoved());
+        assertEquals(List.of(1L, 2L, 3L), List.copyOf(db.calculations.keySet()));
+        for (Calculation calc : db.calculations.values()) {
+            assertNotNull(calc.getCreatedAt());
+            assertFalse(calc.getCreatedAt().isBefore(before));
+        }
+        assertEquals(3, db.commits);
+    }
+}
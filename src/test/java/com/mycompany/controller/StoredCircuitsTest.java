@@ -0,0 +1,49 @@
+package com.mycompany.controller;
+
+import com.mycompany.entities.Calculation;
+import com.mycompany.model.Complex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StoredCircuits class.
+ * Tests cover storing finite results in the numeric columns and clearing
+ * results that cannot be stored.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class StoredCircuitsTest {
+
+    /**
+     * Test that a finite impedance fills every numeric column.
+     */
+    @Test
+    public void testFiniteResultStored() {
+        Calculation calc = new Calculation();
+        StoredCircuits.applyResult(calc, new Complex(3, 4));
+        assertEquals(3.0, calc.getResultRe());
+        assertEquals(4.0, calc.getResultIm());
+        assertEquals(5.0, calc.getMagnitude(), 1e-12);
+        assertNotNull(calc.getPhase());
+    }
+
+    /**
+     * Test that an infinite or NaN impedance leaves the numeric columns empty and
+     * explains why in the display string.
+     */
+    @Test
+    public void testNonFiniteResultCleared() {
+        for (Complex z : new Complex[]{new Complex(0, Double.NEGATIVE_INFINITY), new Complex(Double.NaN, 1),
+                new Complex(Double.MAX_VALUE, Double.MAX_VALUE)}) {
+            Calculation calc = new Calculation();
+            StoredCircuits.applyResult(calc, z);
+            assertNull(calc.getResultRe());
+            assertNull(calc.getResultIm());
+            assertNull(calc.getMagnitude());
+            assertNull(calc.getPhase());
+            assertTrue(calc.getResult().startsWith("Calculation error: "), calc.getResult());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mycompany.impedancecalculatorweb.resources;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ImpedanceResource class.
+ * Tests cover the validation of numeric query parameters.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class ImpedanceResourceTest {
+
+    /**
+     * Test that finite numbers are accepted and surrounding blanks ignored.
+     */
+    @Test
+    public void testParseNumber() {
+        assertEquals(50.0, ImpedanceResource.parseNumber("frequency", " 50 "));
+        assertEquals(1e-3, ImpedanceResource.parseNumber("frequency", "1e-3"));
+    }
+
+    /**
+     * Test that missing values, text and non-finite numbers are rejected.
+     */
+    @Test
+    public void testParseNumberRejectsInvalid() {
+        for (String value : new String[]{null, " ", "abc", "NaN", "Infinity", "-Infinity", "1e400"}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> ImpedanceResource.parseNumber("frequency", value));
+            assertTrue(e.getMessage().startsWith("frequency "), e.getMessage());
+        }
+    }
+}
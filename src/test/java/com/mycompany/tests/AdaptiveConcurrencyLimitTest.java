@@ -0,0 +1,114 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AdaptiveConcurrencyLimit class.
+ * Tests cover admission up to the limit, growth under fast responses, backoff
+ * under queueing latency and the configured bounds.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = 1_000_000L;
+    private static final long SLOW = 10_000_000L;
+
+    /**
+     * Test that requests are admitted up to the limit and again after a release.
+     */
+    @Test
+    public void testAdmitsUpToLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 1, 10, 2.0);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(3, limit.getInFlight());
+        limit.release(FAST, false);
+        assertEquals(2, limit.getInFlight());
+        assertTrue(limit.tryAcquire());
+    }
+
+    /**
+     * Test that the limit grows while fully used requests stay near the baseline latency.
+     */
+    @Test
+    public void testGrowsWithFastResponses() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 8, 2.0);
+        for (int round = 0; round < 200; round++) {
+            int n = limit.getLimit();
+            for (int i = 0; i < n; i++) assertTrue(limit.tryAcquire());
+            for (int i = 0; i < n; i++) limit.release(FAST, true);
+        }
+        assertEquals(8, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    /**
+     * Test that the limit does not grow when it is not being used.
+     */
+    @Test
+    public void testIdleLimitDoesNotGrow() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 2.0);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, true);
+        }
+        assertEquals(10, limit.getLimit());
+    }
+
+    /**
+     * Test that latency well above the baseline lowers the limit down to its minimum.
+     */
+    @Test
+    public void testBacksOffOnQueueing() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 20, 2.0);
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+        int previous = limit.getLimit();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(SLOW, true);
+        }
+        assertTrue(limit.getLimit() < previous);
+        for (int i = 0; i < 2_000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(SLOW, true);
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST / 10, true);
+        }
+        assertEquals(2, limit.getLimit());
+    }
+
+    /**
+     * Test that unsampled releases leave the limit unchanged.
+     */
+    @Test
+    public void testUnsampledReleaseKeepsLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(5, 1, 10, 2.0);
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(SLOW * 100, false);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    /**
+     * Test that invalid bounds and tolerances are rejected and the initial limit is clamped.
+     */
+    @Test
+    public void testBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(5, 0, 10, 2.0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(5, 10, 5, 2.0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(5, 1, 10, 1.0));
+        assertEquals(10, new AdaptiveConcurrencyLimit(50, 1, 10, 2.0).getLimit());
+        assertEquals(3, new AdaptiveConcurrencyLimit(1, 3, 10, 2.0).getLimit());
+    }
+}
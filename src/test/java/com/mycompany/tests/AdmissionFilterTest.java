@@ -0,0 +1,109 @@
+package com.mycompany.tests;
+
+import com.mycompany.controller.AdmissionFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AdmissionFilter class.
+ * Tests cover the charging of batch requests whose body size is not declared.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class AdmissionFilterTest {
+
+    /**
+     * Minimal request of one client: a POST to the batch endpoint with a chunked body.
+     */
+    private static HttpServletRequest chunkedBatch() {
+        Map<String, Object> attributes = new HashMap<>();
+        return (HttpServletRequest) Proxy.newProxyInstance(AdmissionFilterTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getServletPath": return "/resources";
+                        case "getPathInfo": return "/impedance/batch";
+                        case "getMethod": return "POST";
+                        case "getContentLengthLong": return -1L;
+                        case "getContentLength": return -1;
+                        case "getRemoteAddr": return "192.0.2.7";
+                        case "getAttribute": return attributes.get((String) args[0]);
+                        case "setAttribute": attributes.put((String) args[0], args[1]); return null;
+                        case "isAsyncStarted": return false;
+                        default: return null;
+                    }
+                });
+    }
+
+    /**
+     * Response recording the status sent with sendError.
+     */
+    private static HttpServletResponse response(int[] status) {
+        return (HttpServletResponse) Proxy.newProxyInstance(AdmissionFilterTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendError") || method.getName().equals("setStatus")) {
+                        status[0] = (Integer) args[0];
+                    }
+                    return null;
+                });
+    }
+
+    private static AdmissionFilter filter() throws Exception {
+        AdmissionFilter filter = new AdmissionFilter();
+        filter.init((FilterConfig) Proxy.newProxyInstance(AdmissionFilterTest.class.getClassLoader(),
+                new Class<?>[]{FilterConfig.class}, (proxy, method, args) -> null));
+        return filter;
+    }
+
+    /**
+     * Test that a chunked batch is charged its actual size once the handler knows it,
+     * so that a second large batch of the same client is rejected instead of costing
+     * a fixed small amount.
+     */
+    @Test
+    public void testChunkedBatchChargedActualCost() throws Exception {
+        AdmissionFilter filter = filter();
+        // 10 000 circuits of 3 nodes at 1000 frequencies, as counted by the batch handler.
+        double actualCost = 10_000 * 3 * 1000.0;
+        long[] retryAfter = new long[1];
+        FilterChain handler = (req, resp) -> {
+            retryAfter[0] = AdmissionFilter.chargeActualCost((HttpServletRequest) req, actualCost);
+            if (retryAfter[0] > 0) ((HttpServletResponse) resp).sendError(429);
+        };
+
+        int[] first = new int[1];
+        filter.doFilter(chunkedBatch(), response(first), handler);
+        assertEquals(0, first[0]);
+        assertEquals(0, retryAfter[0]);
+
+        int[] second = new int[1];
+        filter.doFilter(chunkedBatch(), response(second), handler);
+        assertEquals(429, second[0]);
+    }
+
+    /**
+     * Test that a small chunked batch is admitted and charged only its own cost.
+     */
+    @Test
+    public void testSmallChunkedBatchAdmitted() throws Exception {
+        AdmissionFilter filter = filter();
+        long[] retryAfter = new long[1];
+        FilterChain handler = (req, resp) ->
+                retryAfter[0] = AdmissionFilter.chargeActualCost((HttpServletRequest) req, 100);
+        for (int i = 0; i < 100; i++) {
+            int[] status = new int[1];
+            filter.doFilter(chunkedBatch(), response(status), handler);
+            assertEquals(0, status[0]);
+            assertEquals(0, retryAfter[0]);
+        }
+    }
+}
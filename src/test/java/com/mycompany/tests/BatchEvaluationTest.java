@@ -0,0 +1,198 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BatchEvaluation class.
+ * Tests cover result order, per-item errors, chunked parallel evaluation, the
+ * submission window, the behaviour when the executor rejects work and parsing
+ * within the limits of the batch, and the readiness of the first chunk.
+ *
+ * @author Kamil Fulneczek
+ * @version 2.1
+ */
+public class BatchEvaluationTest {
+
+    /**
+     * Drain a batch, checking that chunks arrive in request order.
+     */
+    private static List<BatchEvaluation.Chunk> drain(BatchEvaluation batch) throws InterruptedException {
+        List<BatchEvaluation.Chunk> chunks = new ArrayList<>();
+        try (batch) {
+            BatchEvaluation.Chunk chunk;
+            while ((chunk = batch.next()) != null) {
+                if (!chunks.isEmpty()) {
+                    BatchEvaluation.Chunk previous = chunks.get(chunks.size() - 1);
+                    if (previous.isLast()) {
+                        assertEquals(previous.getCircuit() + 1, chunk.getCircuit());
+                        assertTrue(chunk.isFirst());
+                    } else {
+                        assertEquals(previous.getCircuit(), chunk.getCircuit());
+                        assertEquals(previous.getTo(), chunk.getFrom());
+                    }
+                }
+                chunks.add(chunk);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Test that results keep the input order and match direct evaluation.
+     */
+    @Test
+    public void testResultsInInputOrder() throws Exception {
+        List<String> expressions = List.of("R:100", "series(R:10, L:0.01)", "C:1e-6");
+        double[] frequencies = {50, 1000};
+        List<BatchEvaluation.Chunk> chunks = drain(BatchEvaluation.start(expressions, frequencies, Runnable::run, 2));
+
+        assertEquals(3, chunks.size());
+        for (int c = 0; c < expressions.size(); c++) {
+            BatchEvaluation.Chunk chunk = chunks.get(c);
+            assertEquals(c, chunk.getCircuit());
+            assertEquals(expressions.get(c), chunk.getExpression());
+            assertNull(chunk.getError());
+            assertTrue(chunk.isFirst() && chunk.isLast());
+            CircuitElement element = ExpressionParser.parse(expressions.get(c));
+            for (int i = 0; i < frequencies.length; i++) {
+                assertEquals(element.getImpedance(frequencies[i]), chunk.getImpedance(i));
+            }
+        }
+    }
+
+    /**
+     * Test that an invalid expression is reported once without failing the batch,
+     * even when its grid spans several chunks.
+     */
+    @Test
+    public void testInvalidExpressionReportedInline() throws Exception {
+        double[] frequencies = new double[BatchEvaluation.CHUNK_SIZE * 2];
+        for (int i = 0; i < frequencies.length; i++) frequencies[i] = 1 + i;
+        List<BatchEvaluation.Chunk> chunks = drain(
+                BatchEvaluation.start(List.of("series(R:10", "R:100"), frequencies, Runnable::run, 4));
+        assertEquals(3, chunks.size());
+        assertNotNull(chunks.get(0).getError());
+        assertNull(chunks.get(0).getElement());
+        assertTrue(chunks.get(0).isLast());
+        assertNull(chunks.get(1).getError());
+        assertNotNull(chunks.get(2).getImpedance(frequencies.length - 1));
+    }
+
+    /**
+     * Test that grids larger than one chunk are evaluated completely on a thread pool.
+     */
+    @Test
+    public void testChunkedParallelEvaluation() throws Exception {
+        double[] frequencies = new double[BatchEvaluation.CHUNK_SIZE * 3 + 7];
+        for (int i = 0; i < frequencies.length; i++) frequencies[i] = 1 + i;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<BatchEvaluation.Chunk> chunks = drain(BatchEvaluation.start(
+                    List.of("parallel(R:100, C:1e-6)", "R:1"), frequencies, pool, 3));
+            assertEquals(8, chunks.size());
+            CircuitElement element = ExpressionParser.parse("parallel(R:100, C:1e-6)");
+            for (BatchEvaluation.Chunk chunk : chunks.subList(0, 4)) {
+                for (int i = chunk.getFrom(); i < chunk.getTo(); i++) {
+                    assertEquals(element.getImpedance(frequencies[i]), chunk.getImpedance(i));
+                }
+            }
+            assertTrue(chunks.get(3).isLast());
+            assertEquals(frequencies.length, chunks.get(7).getTo());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that no more than the window of chunks is submitted ahead of the consumer
+     * and that starting a batch parses nothing on the calling thread.
+     */
+    @Test
+    public void testSubmissionWindow() throws Exception {
+        List<Runnable> submitted = Collections.synchronizedList(new ArrayList<>());
+        List<String> expressions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) expressions.add(i % 2 == 0 ? "R:" + (i + 1) : "series(");
+        BatchEvaluation batch = BatchEvaluation.start(expressions, new double[]{50}, submitted::add, 4);
+        assertEquals(4, submitted.size());
+
+        int taken = 0;
+        while (taken < expressions.size()) {
+            submitted.remove(0).run();
+            assertNotNull(batch.next());
+            taken++;
+            assertTrue(submitted.size() <= 4);
+        }
+        assertTrue(submitted.isEmpty());
+        assertNull(batch.next());
+        batch.close();
+    }
+
+    /**
+     * Test that a batch is refused when the executor rejects all first chunks.
+     */
+    @Test
+    public void testRejectedStart() {
+        assertThrows(RejectedExecutionException.class, () -> BatchEvaluation.start(List.of("R:1"), new double[]{1},
+                task -> {
+                    throw new RejectedExecutionException("full");
+                }, 2));
+    }
+
+    /**
+     * Test that chunks rejected later are evaluated by the consumer instead of being lost.
+     */
+    @Test
+    public void testRejectedChunksRunOnConsumer() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        List<String> expressions = List.of("R:1", "R:2", "R:3", "R:4", "R:5");
+        List<BatchEvaluation.Chunk> chunks = drain(BatchEvaluation.start(expressions, new double[]{10}, task -> {
+            if (accepted.incrementAndGet() > 2) throw new RejectedExecutionException("full");
+            task.run();
+        }, 2));
+        assertEquals(5, chunks.size());
+        assertEquals(new Complex(5.0, 0.0), chunks.get(4).getImpedance(0));
+    }
+
+    /**
+     * Test that a batch is ready only once its first chunk has been evaluated.
+     */
+    @Test
+    public void testReadyAfterFirstChunk() throws Exception {
+        List<Runnable> submitted = new ArrayList<>();
+        try (BatchEvaluation batch = BatchEvaluation.start(List.of("R:1", "R:2"), new double[]{50}, submitted::add, 4)) {
+            CompletableFuture<Void> ready = batch.ready().toCompletableFuture();
+            assertFalse(ready.isDone());
+            submitted.get(0).run();
+            assertTrue(ready.isDone());
+        }
+    }
+
+    /**
+     * Test that expressions are parsed within the limits given to the batch and that
+     * an expression exceeding them is reported inline.
+     */
+    @Test
+    public void testParsesWithinBatchLimits() throws Exception {
+        ExpressionLimits limits = new ExpressionLimits(10_000, 2, 2_000, 10);
+        List<BatchEvaluation.Chunk> chunks = drain(BatchEvaluation.start(
+                List.of("series(R:1, parallel(R:2, series(R:3, R:4)))", "series(R:1, R:2)"),
+                new double[]{50}, limits, Runnable::run, 4));
+
+        assertEquals(2, chunks.size());
+        assertNull(chunks.get(0).getElement());
+        assertNotNull(chunks.get(0).getError());
+        assertEquals(new Complex(3.0, 0.0), chunks.get(1).getImpedance(0));
+    }
+}
@@ -0,0 +1,55 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CalculationStatistics class.
+ * Tests cover identifying circuits by their hash and leaving non-finite
+ * values out of the distributions.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class CalculationStatisticsTest {
+
+    /**
+     * Test that equal circuits written differently share one counter, keyed by the
+     * circuit hash and labelled with the description.
+     */
+    @Test
+    public void testTopCircuitsKeyedByHash() {
+        CalculationStatistics stats = new CalculationStatistics();
+        CircuitElement first = ExpressionParser.parse("series(R:100, C:1e-6)");
+        CircuitElement second = ExpressionParser.parse("series( resistor:1e2 , C:1e-6 )");
+        stats.record(first, 50, new Complex(100, -3183));
+        stats.record(second, 60, new Complex(100, -2653));
+
+        List<SpaceSaving.Entry> top = stats.getTopCircuits(10);
+        assertEquals(1, top.size());
+        assertEquals(CircuitHash.of(first), top.get(0).key());
+        assertEquals(first.description(), top.get(0).label());
+        assertEquals(2, top.get(0).count());
+    }
+
+    /**
+     * Test that an infinite impedance is counted but not added to the |Z| distribution.
+     */
+    @Test
+    public void testNonFiniteMagnitudeSkipped() {
+        CalculationStatistics stats = new CalculationStatistics();
+        CircuitElement element = ExpressionParser.parse("C:0");
+        stats.record(element, 50, new Complex(0, Double.NEGATIVE_INFINITY));
+        stats.record(element, 50, new Complex(Double.NaN, Double.NaN));
+        stats.record(new Resistor(10), 50, new Complex(10, 0));
+
+        assertEquals(3, stats.getTotal());
+        assertEquals(1, stats.getMagnitudes().getCount());
+        assertEquals(10.0, stats.getMagnitudes().getMax(), 1e-9);
+        assertEquals(3, stats.getFrequencies().getCount());
+    }
+}
@@ -0,0 +1,48 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CircuitHash class.
+ * Tests cover independence from the textual form of an expression and
+ * sensitivity to structure, order and component values.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class CircuitHashTest {
+
+    /**
+     * Test that differently written but structurally identical expressions hash equally.
+     */
+    @Test
+    public void testTextualVariantsHashEqually() {
+        String a = CircuitHash.of(ExpressionParser.parse("series(R:100, parallel(C:1e-6, L:0.01))"));
+        String b = CircuitHash.of(ExpressionParser.parse("series( resistor:1e2 ,parallel(capacitor:0.000001, inductor:0.01))"));
+        assertEquals(a, b);
+        assertEquals(64, a.length());
+    }
+
+    /**
+     * Test that connection type, child order and values change the hash.
+     */
+    @Test
+    public void testStructureChangesHash() {
+        String base = CircuitHash.of(ExpressionParser.parse("series(R:100, C:1e-6)"));
+        assertNotEquals(base, CircuitHash.of(ExpressionParser.parse("parallel(R:100, C:1e-6)")));
+        assertNotEquals(base, CircuitHash.of(ExpressionParser.parse("series(C:1e-6, R:100)")));
+        assertNotEquals(base, CircuitHash.of(ExpressionParser.parse("series(R:101, C:1e-6)")));
+    }
+
+    /**
+     * Test the canonical form of a nested circuit.
+     */
+    @Test
+    public void testCanonicalForm() {
+        assertEquals("S(R4059000000000000,P(C3eb0c6f7a0b5ed8d,L3f847ae147ae147b))",
+                CircuitHash.canonicalForm(ExpressionParser.parse("series(R:100, parallel(C:1e-6, L:0.01))")));
+    }
+}
@@ -0,0 +1,267 @@
+package com.mycompany.tests;
+
+import com.mycompany.controller.AppContextListener;
+import com.mycompany.controller.CircuitServlet;
+import com.mycompany.model.ImpedanceModel;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CircuitServlet class running on a request executor.
+ * Tests cover copying the buffered status and headers to the response, a handler
+ * still running when the request times out, conditional GETs answered by the
+ * request executor, and escaping of the echoed expression.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class CircuitServletTest {
+
+    /**
+     * Executor that holds submitted tasks until the test runs them.
+     */
+    private static final class HeldExecutor extends AbstractExecutorService {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            for (Runnable r : List.copyOf(tasks)) r.run();
+            tasks.clear();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    /**
+     * Everything the servlet did to the container's request and response.
+     */
+    private static final class Exchange {
+        final List<AsyncListener> listeners = new ArrayList<>();
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean completed;
+        boolean requestRecycled;
+        boolean timeOutOnFirstRead;
+    }
+
+    private static CircuitServlet servlet(HeldExecutor executor, List<String> log) throws Exception {
+        ImpedanceModel model = new ImpedanceModel();
+        ServletContext context = (ServletContext) Proxy.newProxyInstance(CircuitServletTest.class.getClassLoader(),
+                new Class<?>[]{ServletContext.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getAttribute" -> Map.of(AppContextListener.MODEL_ATTRIBUTE, model,
+                            AppContextListener.REQUEST_EXECUTOR_ATTRIBUTE, executor).get((String) args[0]);
+                    case "log" -> log.add((String) args[0]);
+                    default -> null;
+                });
+        ServletConfig config = (ServletConfig) Proxy.newProxyInstance(CircuitServletTest.class.getClassLoader(),
+                new Class<?>[]{ServletConfig.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getServletContext" -> context;
+                    case "getServletName" -> "CircuitServlet";
+                    default -> null;
+                });
+        CircuitServlet servlet = new CircuitServlet();
+        servlet.init(config);
+        return servlet;
+    }
+
+    private static void post(CircuitServlet servlet, Map<String, String> params, Exchange exchange) throws Exception {
+        request(servlet, "POST", params, null, exchange);
+    }
+
+    private static void request(CircuitServlet servlet, String httpMethod, Map<String, String> params, String ifNoneMatch,
+                                Exchange exchange) throws Exception {
+        ServletContext context = servlet.getServletContext();
+        AsyncContext async = (AsyncContext) Proxy.newProxyInstance(CircuitServletTest.class.getClassLoader(),
+                new Class<?>[]{AsyncContext.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addListener" -> exchange.listeners.add((AsyncListener) args[0]);
+                        case "complete" -> {
+                            if (exchange.completed) throw new IllegalStateException("completed twice");
+                            exchange.completed = true;
+                        }
+                        default -> {
+                        }
+                    }
+                    return null;
+                });
+        HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(CircuitServletTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    if (exchange.completed) exchange.requestRecycled = true;
+                    if (exchange.timeOutOnFirstRead && method.getName().equals("getParameter")) {
+                        exchange.timeOutOnFirstRead = false;
+                        for (AsyncListener l : List.copyOf(exchange.listeners)) l.onTimeout(null);
+                    }
+                    return switch (method.getName()) {
+                        case "getMethod" -> httpMethod;
+                        case "getHeader" -> "If-None-Match".equals(args[0]) ? ifNoneMatch : null;
+                        case "getDateHeader" -> -1L;
+                        case "getParameter" -> params.get((String) args[0]);
+                        case "getServletContext" -> context;
+                        case "isAsyncSupported" -> true;
+                        case "startAsync" -> async;
+                        case "getContextPath" -> "";
+                        default -> null;
+                    };
+                });
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                exchange.body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        };
+        HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(CircuitServletTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if (exchange.completed) throw new IllegalStateException("response used after completion");
+                    String name = method.getName();
+                    if (name.equals("getOutputStream")) return out;
+                    if (name.equals("isCommitted")) return false;
+                    if (name.equals("getHeaders") || name.equals("getHeaderNames")) return List.of();
+                    if (name.startsWith("set") || name.startsWith("add") || name.equals("sendError")) {
+                        exchange.calls.add(name + (args == null ? "" : " " + args[0])
+                                + (name.equals("setHeader") ? " " + args[1] : ""));
+                    }
+                    return null;
+                });
+        servlet.service(req, resp);
+    }
+
+    /**
+     * Test that a status set by the handler reaches the response together with the page.
+     */
+    @Test
+    public void testBufferedStatusCopied() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        CircuitServlet servlet = servlet(executor, new ArrayList<>());
+        Exchange exchange = new Exchange();
+        String deep = "series(".repeat(40) + "R:1" + ")".repeat(40);
+        post(servlet, Map.of("expression", deep, "frequency", "50"), exchange);
+        assertTrue(exchange.calls.isEmpty(), "nothing may reach the response before the handler finishes");
+
+        executor.runAll();
+        assertTrue(exchange.completed);
+        assertTrue(exchange.calls.contains("setStatus 400"), exchange.calls.toString());
+        assertTrue(exchange.body.toString(StandardCharsets.UTF_8).contains("Expression too complex"));
+    }
+
+    /**
+     * Test that a handler still running when the request times out touches neither
+     * the request nor the response of the completed exchange afterwards.
+     */
+    @Test
+    public void testLateHandlerIsolated() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+        CircuitServlet servlet = servlet(executor, log);
+        Exchange exchange = new Exchange();
+        exchange.timeOutOnFirstRead = true;
+        post(servlet, Map.of("expression", "R:100", "frequency", "50"), exchange);
+
+        executor.runAll();
+        // The timeout cancels the running task, which interrupts this thread.
+        Thread.interrupted();
+        assertTrue(exchange.completed);
+        assertTrue(exchange.calls.contains("sendError 503"), exchange.calls.toString());
+        assertFalse(exchange.requestRecycled, "late handler read the completed request");
+        assertEquals(1, log.size(), log.toString());
+    }
+
+    /**
+     * Test that a conditional GET is validated on the request executor and answered
+     * with 304 when the ETag matches.
+     */
+    @Test
+    public void testConditionalGetOnExecutor() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        CircuitServlet servlet = servlet(executor, new ArrayList<>());
+        Map<String, String> params = Map.of("expression", "series(R:100, C:1e-6)", "frequency", "50");
+
+        Exchange first = new Exchange();
+        request(servlet, "GET", params, null, first);
+        assertTrue(first.calls.isEmpty(), "the ETag must not be computed on the container thread");
+        executor.runAll();
+        String etag = first.calls.stream().filter(c -> c.startsWith("setHeader ETag "))
+                .map(c -> c.substring("setHeader ETag ".length())).findFirst().orElse(null);
+        assertNotNull(etag, first.calls.toString());
+        assertTrue(first.body.size() > 0);
+
+        Exchange second = new Exchange();
+        request(servlet, "GET", params, etag, second);
+        assertTrue(second.calls.isEmpty());
+        executor.runAll();
+        assertTrue(second.completed);
+        assertTrue(second.calls.contains("setStatus 304"), second.calls.toString());
+        assertEquals(0, second.body.size());
+    }
+
+    /**
+     * Test that markup in the expression is escaped on the cacheable result page.
+     */
+    @Test
+    public void testExpressionEscaped() throws Exception {
+        HeldExecutor executor = new HeldExecutor();
+        CircuitServlet servlet = servlet(executor, new ArrayList<>());
+        Exchange exchange = new Exchange();
+        request(servlet, "GET", Map.of("expression", "series<script>alert'x'</script>(R:1)", "frequency", "50"),
+                null, exchange);
+        executor.runAll();
+
+        String body = exchange.body.toString(StandardCharsets.UTF_8);
+        assertTrue(body.contains("Circuit Impedance Result"), body);
+        assertFalse(body.contains("<script>"), body);
+        assertTrue(body.contains("series&lt;script&gt;alert&#39;x&#39;&lt;/script&gt;(R:1)"), body);
+    }
+}
@@ -77,4 +77,51 @@ public class ConnectionNodeTest {
         assertTrue(desc.contains("R(100.0)"));
         assertTrue(desc.contains("C(1.0E-6)") || desc.contains("C(1.0e-6)"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test that changing a nested node updates the description of its ancestors.
+     */
+    @Test
+    public void testDescriptionFollowsNestedChanges() {
+        ConnectionNode root = new ConnectionNode(true);
+        ConnectionNode inner = new ConnectionNode(false);
+        Resistor r = new Resistor(10.0);
+        inner.addChild(r);
+        root.addChild(new Resistor(100.0));
+        root.addChild(inner);
+        assertEquals("series(R(100.0), parallel(R(10.0)))", root.description());
+        assertSame(root.description(), root.description());
+
+        inner.addChild(new Inductor(0.5));
+        assertEquals("series(R(100.0), parallel(R(10.0), L(0.5)))", root.description());
+
+        assertTrue(inner.removeChild(r));
+        assertEquals("series(R(100.0), parallel(L(0.5)))", root.description());
+
+        assertTrue(root.removeChild(inner));
+        inner.addChild(new Resistor(1.0));
+        assertEquals("series(R(100.0))", root.description());
+        assertEquals("parallel(L(0.5), R(1.0))", inner.description());
+    }
+
+    /**
+     * Test that describeTo writes the same text as description, also for circuits
+     * too long to be cached.
+     */
+    @Test
+    public void testDescribeToMatchesDescription() throws Exception {
+        ConnectionNode root = new ConnectionNode(false);
+        for (int i = 0; i < 500; i++) {
+            ConnectionNode branch = new ConnectionNode(true);
+            branch.addChild(new Resistor(i));
+            branch.addChild(new Capacitor(1e-6));
+            root.addChild(branch);
+        }
+        String expected = root.description();
+        assertTrue(expected.length() > ConnectionNode.MAX_CACHED_DESCRIPTION);
+        StringBuilder sb = new StringBuilder();
+        root.describeTo(sb);
+        assertEquals(expected, sb.toString());
+        assertEquals(expected, root.toString());
+    }
+}
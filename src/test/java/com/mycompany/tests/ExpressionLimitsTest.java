@@ -0,0 +1,107 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ExpressionLimits class and the limit-checked parsing of ExpressionParser.
+ * Tests cover the length, depth, node and point limits, node counting and
+ * per-endpoint configuration.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class ExpressionLimitsTest {
+
+    private static final ExpressionLimits SMALL = new ExpressionLimits(40, 2, 5, 100);
+
+    /**
+     * Test that expressions within the limits pass and parse.
+     */
+    @Test
+    public void testWithinLimits() {
+        String expression = "series(R:100, parallel(C:1e-6, L:0.01))";
+        SMALL.check(expression);
+        assertTrue(ExpressionParser.parse(expression, SMALL) instanceof ConnectionNode);
+        SMALL.checkPoints(100);
+    }
+
+    /**
+     * Test that each limit is enforced.
+     *
+     * @param expression expression to check
+     * @param message part of the expected error message
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "'series(R:1, R:2, R:3, R:4, R:5, R:6, R:7, R:8)', longer than 40",
+            "'series(parallel(series(R:1)))', deeper than 2",
+            "'series(R:1, R:2, R:3, R:4, R:5)', more than 5 elements"
+    })
+    public void testLimitsEnforced(String expression, String message) {
+        ExpressionLimitException e = assertThrows(ExpressionLimitException.class,
+                () -> ExpressionParser.parse(expression, SMALL));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    /**
+     * Test that the point limit is enforced.
+     */
+    @Test
+    public void testPointLimit() {
+        assertThrows(ExpressionLimitException.class, () -> SMALL.checkPoints(101));
+    }
+
+    /**
+     * Test that deeply nested input is rejected by the default limits instead of overflowing the stack.
+     */
+    @Test
+    public void testPathologicalNesting() {
+        String expression = "series(".repeat(100_000) + "R:1" + ")".repeat(100_000);
+        assertThrows(ExpressionLimitException.class, () -> ExpressionParser.parse(expression));
+        String wide = "series(" + "R:1,".repeat(1_000_000) + "R:1)";
+        assertThrows(ExpressionLimitException.class, () -> ExpressionParser.parse(wide));
+    }
+
+    /**
+     * Test the node count estimate.
+     *
+     * @param expression expression
+     * @param nodes expected number of elements
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "'R:100', 1",
+            "'series(R:100, R:50)', 3",
+            "'series(R:100, parallel(C:1e-6, L:0.01), R:50)', 6"
+    })
+    public void testCountNodes(String expression, int nodes) {
+        assertEquals(nodes, ExpressionLimits.countNodes(expression));
+        assertEquals(1, ExpressionLimits.countNodes(null));
+    }
+
+    /**
+     * Test that endpoint parameters override the general ones, which override the defaults.
+     */
+    @Test
+    public void testResolve() {
+        Map<String, String> params = new HashMap<>();
+        params.put("impedance.limits.maxDepth", "10");
+        params.put("impedance.limits.api.sweep.maxDepth", "20");
+        params.put("impedance.limits.api.sweep.maxPoints", "500");
+        params.put("impedance.limits.maxNodes", "not a number");
+        ExpressionLimits sweep = ExpressionLimits.resolve("api.sweep", ExpressionLimits.DEFAULT, params::get);
+        assertEquals(new ExpressionLimits(ExpressionLimits.DEFAULT.maxLength(), 20,
+                ExpressionLimits.DEFAULT.maxNodes(), 500), sweep);
+        ExpressionLimits circuit = ExpressionLimits.resolve("circuit", ExpressionLimits.INTERACTIVE, params::get);
+        assertEquals(new ExpressionLimits(ExpressionLimits.INTERACTIVE.maxLength(), 10,
+                ExpressionLimits.INTERACTIVE.maxNodes(), ExpressionLimits.INTERACTIVE.maxPoints()), circuit);
+    }
+}
@@ -0,0 +1,73 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Flight Recorder events emitted by ExpressionParser and ImpedanceModel.
+ * Tests cover the parse, evaluation and history append events and their fields.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class FlightRecorderEventsTest {
+
+    private static final String PREFIX = "com.mycompany.impedance.";
+
+    /**
+     * Test that parsing and calculating inside a recording produce events with their fields filled in.
+     */
+    @Test
+    public void testModelEventsAreRecorded() throws Exception {
+        Path file = Files.createTempFile("impedance", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(PREFIX + "Parse");
+                recording.enable(PREFIX + "Evaluation");
+                recording.enable(PREFIX + "HistoryAppend");
+                recording.start();
+                CircuitElement element = ExpressionParser.parse("series(R:100, parallel(C:1e-6, L:0.01))");
+                assertThrows(IllegalArgumentException.class, () -> ExpressionParser.parse("bogus(R:1)"));
+                ImpedanceModel model = new ImpedanceModel();
+                model.calculateImpedance(element, 1000.0);
+                model.calculateSweep(element, new FrequencySweep(10, 1e6, 25, true));
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().startsWith(PREFIX))
+                    .collect(Collectors.toList());
+
+            List<RecordedEvent> parses = named(events, "Parse");
+            assertEquals(2, parses.size());
+            RecordedEvent parsed = parses.stream().filter(e -> e.getBoolean("success")).findFirst().orElseThrow();
+            assertEquals(5, parsed.getInt("nodes"));
+            assertEquals(39, parsed.getInt("length"));
+
+            List<RecordedEvent> evaluations = named(events, "Evaluation");
+            assertEquals(2, evaluations.size());
+            assertTrue(evaluations.stream().allMatch(e -> e.getInt("nodes") == 5 && e.getBoolean("success")));
+            assertTrue(evaluations.stream().anyMatch(e -> e.getInt("frequencies") == 25));
+
+            List<RecordedEvent> appends = named(events, "HistoryAppend");
+            assertEquals(1, appends.size());
+            assertEquals("HeapHistoryStore", appends.get(0).getString("store"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(PREFIX + name)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,91 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the FrequencySweep class.
+ * Tests cover linear and logarithmic spacing, range validation and the
+ * point cap of streaming sweeps.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class FrequencySweepTest {
+
+    /**
+     * Test that linear sweeps have equal steps and exact end points.
+     */
+    @Test
+    public void testLinearSpacing() {
+        FrequencySweep sweep = new FrequencySweep(100, 500, 5, false);
+        assertEquals(5, sweep.size());
+        assertEquals(100.0, sweep.frequency(0), 0.0);
+        assertEquals(200.0, sweep.frequency(1), 1e-9);
+        assertEquals(300.0, sweep.frequency(2), 1e-9);
+        assertEquals(500.0, sweep.frequency(4), 0.0);
+    }
+
+    /**
+     * Test that logarithmic sweeps have equal ratios and exact end points.
+     */
+    @Test
+    public void testLogarithmicSpacing() {
+        FrequencySweep sweep = new FrequencySweep(10, 1e5, 5, true);
+        assertEquals(10.0, sweep.frequency(0), 0.0);
+        assertEquals(100.0, sweep.frequency(1), 1e-9);
+        assertEquals(1e4, sweep.frequency(3), 1e-6);
+        assertEquals(1e5, sweep.frequency(4), 0.0);
+    }
+
+    /**
+     * Test that a single-point sweep is allowed when start equals stop.
+     */
+    @Test
+    public void testSinglePoint() {
+        FrequencySweep sweep = new FrequencySweep(50, 50, 1, true);
+        assertEquals(1, sweep.size());
+        assertEquals(50.0, sweep.frequency(0), 0.0);
+    }
+
+    /**
+     * Test that invalid ranges and point counts are rejected.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0, 100, 10",
+            "-1, 100, 10",
+            "100, 10, 10",
+            "10, 100, 0",
+            "10, 100, 1",
+            "10, 100, 100001"
+    })
+    public void testInvalidSweep(double start, double stop, int points) {
+        assertThrows(IllegalArgumentException.class, () -> new FrequencySweep(start, stop, points, false));
+    }
+
+    /**
+     * Test that only streaming sweeps may exceed MAX_POINTS, up to their own cap.
+     */
+    @Test
+    public void testStreamingCap() {
+        int points = FrequencySweep.MAX_POINTS + 1;
+        assertThrows(IllegalArgumentException.class, () -> new FrequencySweep(10, 100, points, true));
+        assertEquals(points, FrequencySweep.forStreaming(10, 100, points, true).size());
+        assertThrows(IllegalArgumentException.class,
+                () -> FrequencySweep.forStreaming(10, 100, FrequencySweep.MAX_STREAMING_POINTS + 1, true));
+    }
+
+    /**
+     * Test that indices outside the sweep are rejected.
+     */
+    @Test
+    public void testIndexOutOfRange() {
+        FrequencySweep sweep = new FrequencySweep(1, 2, 2, false);
+        assertThrows(IndexOutOfBoundsException.class, () -> sweep.frequency(2));
+    }
+}
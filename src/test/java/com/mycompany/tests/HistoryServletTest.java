@@ -0,0 +1,109 @@
+package com.mycompany.tests;
+
+import com.mycompany.controller.AppContextListener;
+import com.mycompany.controller.HistoryServlet;
+import com.mycompany.model.ExpressionParser;
+import com.mycompany.model.ImpedanceModel;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the HistoryServlet class.
+ * Tests cover rendering one page of the history with links to the neighbouring pages.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class HistoryServletTest {
+
+    private static String get(ImpedanceModel model, Map<String, String> params) throws Exception {
+        ServletContext context = (ServletContext) Proxy.newProxyInstance(HistoryServletTest.class.getClassLoader(),
+                new Class<?>[]{ServletContext.class}, (proxy, method, args) ->
+                        method.getName().equals("getAttribute") && AppContextListener.MODEL_ATTRIBUTE.equals(args[0])
+                                ? model : null);
+        ServletConfig config = (ServletConfig) Proxy.newProxyInstance(HistoryServletTest.class.getClassLoader(),
+                new Class<?>[]{ServletConfig.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getServletContext" -> context;
+                    case "getServletName" -> "HistoryServlet";
+                    default -> null;
+                });
+        HistoryServlet servlet = new HistoryServlet();
+        servlet.init(config);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        };
+        HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(HistoryServletTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getMethod" -> "GET";
+                    case "getParameter" -> params.get((String) args[0]);
+                    case "getContextPath" -> "/app";
+                    case "getDateHeader" -> -1L;
+                    default -> null;
+                });
+        HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(HistoryServletTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) ->
+                        method.getName().equals("getOutputStream") ? out : null);
+        servlet.service(req, resp);
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test that only the requested page is rendered, numbered from its offset.
+     */
+    @Test
+    public void testRendersRequestedPage() throws Exception {
+        try (ImpedanceModel model = new ImpedanceModel()) {
+            for (int i = 1; i <= 250; i++) model.calculateImpedance(ExpressionParser.parse("R:" + i), 50);
+
+            String html = get(model, Map.of("offset", "100", "size", "50"));
+            assertTrue(html.contains("Entries 101–150 of 250"), html);
+            assertTrue(html.contains("<td>101</td>"));
+            assertTrue(html.contains("<td>150</td>"));
+            assertFalse(html.contains("<td>100</td>"));
+            assertFalse(html.contains("<td>151</td>"));
+            assertTrue(html.contains("/app/history?offset=50&amp;size=50\">Previous page"));
+            assertTrue(html.contains("/app/history?offset=150&amp;size=50\">Next page"));
+        }
+    }
+
+    /**
+     * Test the default page size and the absence of links beyond the ends of the history.
+     */
+    @Test
+    public void testDefaultPage() throws Exception {
+        try (ImpedanceModel model = new ImpedanceModel()) {
+            for (int i = 1; i <= 3; i++) model.calculateImpedance(ExpressionParser.parse("R:" + i), 50);
+
+            String html = get(model, Map.of("size", "oops"));
+            assertTrue(html.contains("Entries 1–3 of 3"), html);
+            assertFalse(html.contains("Previous page"));
+            assertFalse(html.contains("Next page"));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the HyperLogLog cardinality estimator.
+ * Tests cover estimation accuracy and insensitivity to duplicates.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class HyperLogLogTest {
+
+    /**
+     * Parameterized test for the estimate of distinct values.
+     *
+     * @param distinct number of distinct values offered
+     */
+    @ParameterizedTest
+    @CsvSource({
+        "10",
+        "1000",
+        "100000"
+    })
+    public void testEstimateWithinError(int distinct) {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < distinct; i++) hll.offer("circuit-" + i);
+        assertEquals(distinct, hll.estimate(), distinct * 0.05 + 1);
+    }
+
+    /**
+     * Test that offering the same value repeatedly counts it once.
+     */
+    @Test
+    public void testDuplicatesCountedOnce() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 500; i++) hll.offer("R(100.0)");
+        assertEquals(1, hll.estimate());
+    }
+}
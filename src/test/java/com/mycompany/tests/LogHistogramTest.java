@@ -0,0 +1,50 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the LogHistogram class.
+ * Tests cover exact summary values and the relative accuracy of quantiles.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class LogHistogramTest {
+
+    /**
+     * Test that count, min, max and mean are tracked exactly.
+     */
+    @Test
+    public void testSummaryValues() {
+        LogHistogram h = new LogHistogram();
+        h.record(1.0);
+        h.record(3.0);
+        h.record(8.0);
+        assertEquals(3, h.getCount());
+        assertEquals(1.0, h.getMin(), 0.0);
+        assertEquals(8.0, h.getMax(), 0.0);
+        assertEquals(4.0, h.getMean(), 1e-12);
+    }
+
+    /**
+     * Test that quantiles over several decades stay within the bucket error.
+     */
+    @Test
+    public void testQuantileRelativeError() {
+        LogHistogram h = new LogHistogram();
+        for (int i = 1; i <= 100000; i++) h.record(i * 0.01);
+        assertEquals(500.0, h.quantile(0.5), 500.0 * 0.07);
+        assertEquals(990.0, h.quantile(0.99), 990.0 * 0.07);
+    }
+
+    /**
+     * Test that an empty histogram reports NaN quantiles.
+     */
+    @Test
+    public void testEmptyHistogram() {
+        assertTrue(Double.isNaN(new LogHistogram().quantile(0.5)));
+    }
+}
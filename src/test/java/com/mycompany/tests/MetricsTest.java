@@ -0,0 +1,112 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Metrics registry.
+ * Tests cover registration, timer and counter recording and the Prometheus text output.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class MetricsTest {
+
+    /**
+     * Test that registering the same name and labels returns the same metric.
+     */
+    @Test
+    public void testRegistrationIsIdempotent() {
+        Metrics.Timer a = Metrics.timer("test_idempotent_seconds", "help", "kind", "a");
+        assertSame(a, Metrics.timer("test_idempotent_seconds", "help", "kind", "a"));
+        assertNotSame(a, Metrics.timer("test_idempotent_seconds", "help", "kind", "b"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.counter("test_idempotent_seconds", "help"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.timer("test_odd_labels_seconds", "help", "kind"));
+    }
+
+    /**
+     * Test that a timer records durations in seconds.
+     */
+    @Test
+    public void testTimerRecordsSeconds() {
+        Metrics.Timer timer = Metrics.timer("test_timer_seconds", "help");
+        timer.record(2_000_000L);
+        timer.record(4_000_000L);
+        long start = timer.start();
+        timer.stop(start);
+        LogHistogram h = timer.getHistogram();
+        assertEquals(3, h.getCount());
+        assertEquals(0.006, h.getSum(), 1e-3);
+        assertEquals(0.004, h.getMax(), 1e-12);
+    }
+
+    /**
+     * Test the Prometheus text output of a timer and a labelled counter.
+     */
+    @Test
+    public void testPrometheusFormat() {
+        Metrics.Timer timer = Metrics.timer("test_format_seconds", "Format \"test\" timer", "page", "a\"b");
+        timer.record(1_000_000L);
+        Metrics.Counter counter = Metrics.counter("test_format_total", "Format test counter", "reason", "x");
+        counter.add(5);
+        counter.increment();
+        Metrics.timer("test_format_empty_seconds", "Empty timer");
+
+        String text = Metrics.writePrometheus(new StringBuilder()).toString();
+        assertTrue(text.contains("# HELP test_format_seconds Format \"test\" timer\n# TYPE test_format_seconds histogram\n"), text);
+        assertTrue(text.contains("test_format_seconds_bucket{page=\"a\\\"b\",le=\"9.765625E-4\"} 0\n"), text);
+        assertTrue(text.contains("test_format_seconds_bucket{page=\"a\\\"b\",le=\"0.001953125\"} 1\n"), text);
+        assertTrue(text.contains("test_format_seconds_bucket{page=\"a\\\"b\",le=\"+Inf\"} 1\n"), text);
+        assertTrue(text.contains("test_format_seconds_count{page=\"a\\\"b\"} 1\n"), text);
+        assertTrue(text.contains("test_format_seconds_sum{page=\"a\\\"b\"} 0.001\n"), text);
+        assertTrue(text.contains("# TYPE test_format_total counter\ntest_format_total{reason=\"x\"} 6\n"), text);
+        assertTrue(text.contains("test_format_empty_seconds_bucket{le=\"64.0\"} 0\n"), text);
+        assertTrue(text.contains("test_format_empty_seconds_bucket{le=\"+Inf\"} 0\n"), text);
+        assertTrue(text.contains("test_format_empty_seconds_count 0\n"), text);
+    }
+
+    /**
+     * Test that parsing is recorded by the parser timer.
+     */
+    @Test
+    public void testParserIsInstrumented() {
+        ExpressionParser.parse("R:1");
+        Metrics.Timer parse = Metrics.timer("impedance_parse_seconds", "ignored");
+        Metrics.Counter failures = Metrics.counter("impedance_parse_failures_total", "ignored");
+        long before = parse.getHistogram().getCount();
+        long failed = failures.get();
+        ExpressionParser.parse("series(R:100, C:1e-6)");
+        assertThrows(IllegalArgumentException.class, () -> ExpressionParser.parse("bogus(R:1)"));
+        assertEquals(before + 2, parse.getHistogram().getCount());
+        assertEquals(failed + 1, failures.get());
+    }
+
+    /**
+     * Test that the exported buckets are cumulative and match the recorded durations.
+     */
+    @Test
+    public void testHistogramBucketsCumulative() {
+        Metrics.Timer timer = Metrics.timer("test_buckets_seconds", "help");
+        timer.record(3_000_000L);
+        timer.record(3_000_000L);
+        timer.record(100_000_000L);
+        timer.record(200_000_000_000L);
+
+        String text = Metrics.writePrometheus(new StringBuilder()).toString();
+        assertTrue(text.contains("test_buckets_seconds_bucket{le=\"0.001953125\"} 0\n"), text);
+        assertTrue(text.contains("test_buckets_seconds_bucket{le=\"0.00390625\"} 2\n"), text);
+        assertTrue(text.contains("test_buckets_seconds_bucket{le=\"0.125\"} 3\n"), text);
+        assertTrue(text.contains("test_buckets_seconds_bucket{le=\"64.0\"} 3\n"), text);
+        assertTrue(text.contains("test_buckets_seconds_bucket{le=\"+Inf\"} 4\n"), text);
+        assertTrue(text.contains("test_buckets_seconds_count 4\n"), text);
+        long previous = -1;
+        for (String line : text.split("\n")) {
+            if (!line.startsWith("test_buckets_seconds_bucket")) continue;
+            long value = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+            assertTrue(value >= previous, line);
+            previous = value;
+        }
+    }
+}
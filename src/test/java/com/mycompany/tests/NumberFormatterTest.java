@@ -0,0 +1,90 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the NumberFormatter class.
+ * Tests compare the output with String.format for fixed and random values
+ * and check complex number formatting.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class NumberFormatterTest {
+
+    /**
+     * Test formatting of typical and boundary values against "%.6g".
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0.0", "-0.0", "1.0", "-1.0", "100.0", "100000.0", "999999.5", "999999.4",
+            "1000000.0", "0.0001", "0.00009999995", "0.000099999949", "123456789.0",
+            "3.14159265358979", "1e-300", "4.9e-324", "1.7976931348623157e308",
+            "0.5", "2.5", "1.0000005", "9.9999995", "159.15494309189535", "NaN", "Infinity", "-Infinity"
+    })
+    public void testMatchesStringFormat(double value) {
+        assertEquals(String.format(Locale.ROOT, "%.6g", value), NumberFormatter.format(value));
+    }
+
+    /**
+     * Test random values of all magnitudes at several precisions.
+     */
+    @Test
+    public void testRandomValues() {
+        Random random = new Random(42);
+        int[] precisions = {1, 2, 3, 6, 10, 15, 17};
+        for (int i = 0; i < 20000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (i % 2 == 0) value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 8);
+            for (int p : precisions) {
+                String expected = String.format(Locale.ROOT, "%." + p + "g", value);
+                assertEquals(expected, NumberFormatter.appendSignificant(new StringBuilder(), value, p).toString(),
+                        "value " + value + ", precision " + p);
+            }
+        }
+    }
+
+    /**
+     * Test that text is appended after existing content.
+     */
+    @Test
+    public void testAppendsToBuilder() {
+        StringBuilder sb = new StringBuilder("|Z| = ");
+        NumberFormatter.appendSignificant(sb, 1234.5678, 6).append(" Ω");
+        assertEquals("|Z| = 1234.57 Ω", sb.toString());
+        assertEquals("0.1", NumberFormatter.appendShortest(new StringBuilder(), 0.1).toString());
+    }
+
+    /**
+     * Test that complex numbers keep the format of Complex.toString.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "100.0, 0.0, 100.000 + 0.00000j",
+            "0.0, -159.15494309189535, 0.00000 - 159.155j",
+            "1e-9, 2.5e7, 1.00000e-09 + 2.50000e+07j",
+            "-3.0, -0.0, -3.00000 + -0.00000j"
+    })
+    public void testComplex(double re, double im, String expected) {
+        Complex z = new Complex(re, im);
+        assertEquals(expected, NumberFormatter.format(z));
+        assertEquals(expected, z.toString());
+    }
+
+    /**
+     * Test that unsupported precisions are rejected.
+     */
+    @Test
+    public void testInvalidDigits() {
+        assertThrows(IllegalArgumentException.class, () -> NumberFormatter.appendSignificant(new StringBuilder(), 1.0, 0));
+        assertThrows(IllegalArgumentException.class, () -> NumberFormatter.appendSignificant(new StringBuilder(), 1.0, 18));
+    }
+}
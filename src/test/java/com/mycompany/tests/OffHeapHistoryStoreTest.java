@@ -0,0 +1,195 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the OffHeapHistoryStore class.
+ * Tests cover round-tripping of nested circuits, chunk overflow, clearing,
+ * ranged page reads, rejected elements and the behaviour after the store has been closed.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.2
+ */
+public class OffHeapHistoryStoreTest {
+
+    /**
+     * Test that a nested circuit, its frequency and result are restored unchanged.
+     */
+    @Test
+    public void testRoundTripNestedCircuit() {
+        CircuitElement circuit = ExpressionParser.parse("series(R:100, parallel(C:1e-6, L:0.01), R:50)");
+        try (OffHeapHistoryStore store = new OffHeapHistoryStore()) {
+            store.append(circuit, 1000.0, new Complex(150.0, -3.5));
+            assertEquals(1, store.size());
+            assertEquals(circuit.description(), store.getElements().get(0).description());
+            assertEquals(1000.0, store.getFrequencies().get(0), 0.0);
+            assertEquals(new Complex(150.0, -3.5), store.getResults().get(0));
+        }
+    }
+
+    /**
+     * Test that records spanning several small chunks are stored in order.
+     */
+    @Test
+    public void testManyRecordsAcrossChunks() {
+        try (OffHeapHistoryStore store = new OffHeapHistoryStore(64)) {
+            for (int i = 0; i < 2000; i++) {
+                store.append(new Resistor(i), i + 1.0, new Complex(i, 0.0));
+            }
+            List<CircuitElement> elements = store.getElements();
+            List<Double> frequencies = store.getFrequencies();
+            assertEquals(2000, elements.size());
+            assertEquals("R(1999.0)", elements.get(1999).description());
+            assertEquals(1000.0, frequencies.get(999), 0.0);
+        }
+    }
+
+    /**
+     * Test that clearing removes entries and the store remains usable.
+     */
+    @Test
+    public void testClearKeepsStoreUsable() {
+        try (OffHeapHistoryStore store = new OffHeapHistoryStore()) {
+            store.append(new Capacitor(1e-6), 50.0, new Complex(0.0, -3183.1));
+            store.clear();
+            assertEquals(0, store.size());
+            store.append(new Inductor(0.01), 60.0, new Complex(0.0, 3.77));
+            assertEquals("L(0.01)", store.getElements().get(0).description());
+        }
+    }
+
+    /**
+     * Test that a page returns the requested range with matching frequencies and results.
+     */
+    @Test
+    public void testReadPage() {
+        try (OffHeapHistoryStore store = new OffHeapHistoryStore(64)) {
+            for (int i = 0; i < 100; i++) {
+                store.append(new Resistor(i), i + 1.0, new Complex(i, -i));
+            }
+            HistoryPage page = store.read(40, 5);
+            assertEquals(100, page.total());
+            assertEquals(40, page.offset());
+            assertEquals(5, page.entries().size());
+            HistoryPage.Entry last = page.entries().get(4);
+            assertEquals("R(44.0)", last.element().description());
+            assertEquals(45.0, last.frequencyHz(), 0.0);
+            assertEquals(new Complex(44.0, -44.0), last.result());
+
+            assertEquals(3, store.read(97, 10).entries().size());
+            assertEquals(100, store.read(500, 10).offset());
+            assertTrue(store.read(500, 10).entries().isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> store.read(-1, 10));
+        }
+    }
+
+    /**
+     * Test that reading a page of a large history allocates for the page only,
+     * not for every stored record.
+     */
+    @Test
+    public void testPageReadDoesNotDecodeWholeStore() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        CircuitElement circuit = ExpressionParser.parse("series(R:100, parallel(C:1e-6, L:0.01))");
+        try (OffHeapHistoryStore store = new OffHeapHistoryStore()) {
+            for (int i = 0; i < 200_000; i++) {
+                store.append(circuit, i + 1.0, new Complex(i, 0.0));
+            }
+            store.read(0, 10);
+            long thread = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            HistoryPage page = store.read(150_000, 10);
+            long allocated = threads.getThreadAllocatedBytes(thread) - before;
+            assertEquals(10, page.entries().size());
+            assertEquals(150_001.0, page.entries().get(0).frequencyHz(), 0.0);
+            // Decoding all 200 000 records would allocate tens of megabytes.
+            assertTrue(allocated < 256 * 1024, "page read allocated " + allocated + " bytes");
+        }
+    }
+
+    /**
+     * Test that the model serves history pages through the ranged read and never
+     * through the whole-history snapshots.
+     */
+    @Test
+    public void testModelPageUsesRangedRead() throws InvalidCircuitException {
+        OffHeapHistoryStore store = new OffHeapHistoryStore() {
+            @Override
+            public List<CircuitElement> getElements() {
+                throw new AssertionError("whole history decoded");
+            }
+
+            @Override
+            public List<Double> getFrequencies() {
+                throw new AssertionError("whole history decoded");
+            }
+
+            @Override
+            public List<Complex> getResults() {
+                throw new AssertionError("whole history decoded");
+            }
+        };
+        try (ImpedanceModel model = new ImpedanceModel(store)) {
+            for (int i = 1; i <= 20; i++) model.calculateImpedance(new Resistor(i), 50.0);
+            HistoryPage page = model.getHistoryPage(18, 100);
+            assertEquals(20, page.total());
+            assertEquals(2, page.entries().size());
+            assertEquals(new Complex(20.0, 0.0), page.entries().get(1).result());
+        }
+    }
+
+    /**
+     * Test that an element that cannot be encoded is rejected without writing any part
+     * of its record, and the store keeps working.
+     */
+    @Test
+    public void testUnsupportedElementLeavesStoreUnchanged() {
+        Component unknown = new Component(1.0) {
+            @Override
+            public Complex getImpedance(double frequencyHz) {
+                return new Complex(value, 0.0);
+            }
+
+            @Override
+            public String description() {
+                return "X(" + value + ")";
+            }
+        };
+        ConnectionNode circuit = new ConnectionNode(true);
+        circuit.addChild(new Resistor(10.0));
+        circuit.addChild(unknown);
+
+        try (OffHeapHistoryStore store = new OffHeapHistoryStore(64)) {
+            long reserved = store.getReservedBytes();
+            assertThrows(IllegalArgumentException.class, () -> store.append(circuit, 1.0, new Complex(11.0, 0.0)));
+            assertEquals(0, store.size());
+            assertEquals(reserved, store.getReservedBytes());
+
+            store.append(new Resistor(5.0), 2.0, new Complex(5.0, 0.0));
+            assertEquals(1, store.size());
+            assertEquals("R(5.0)", store.getElements().get(0).description());
+            assertEquals(2.0, store.read(0, 1).entries().get(0).frequencyHz(), 0.0);
+        }
+    }
+
+    /**
+     * Test that appending to a closed store is rejected.
+     */
+    @Test
+    public void testAppendAfterCloseThrows() {
+        OffHeapHistoryStore store = new OffHeapHistoryStore();
+        store.close();
+        assertThrows(IllegalStateException.class,
+                () -> store.append(new Resistor(1.0), 1.0, new Complex(1.0, 0.0)));
+    }
+}
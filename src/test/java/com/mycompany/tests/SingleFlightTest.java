@@ -0,0 +1,103 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SingleFlight class and the coalesced calculations of ImpedanceModel.
+ * Tests cover sharing of one computation, error propagation and removal of
+ * completed entries.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    /**
+     * Test that concurrent callers with the same key share one computation.
+     */
+    @Test
+    public void testConcurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> flight.run("key", () -> {
+                    runs.incrementAndGet();
+                    // keep the computation in flight until every other caller has joined it
+                    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                    while (flight.getShared() < CALLERS - 1 && System.nanoTime() < deadline) Thread.sleep(1);
+                    return 42;
+                })));
+            }
+            for (Future<Integer> f : results) assertEquals(Integer.valueOf(42), f.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, runs.get());
+        assertEquals(1, flight.getComputed());
+        assertEquals(CALLERS - 1, flight.getShared());
+        assertEquals(0, flight.inFlight());
+    }
+
+    /**
+     * Test that a completed computation is not reused by later callers.
+     */
+    @Test
+    public void testCompletedEntryIsRemoved() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger runs = new AtomicInteger();
+        assertEquals(Integer.valueOf(1), flight.run("key", runs::incrementAndGet));
+        assertEquals(Integer.valueOf(2), flight.run("key", runs::incrementAndGet));
+        assertEquals(0, flight.inFlight());
+        assertEquals(0, flight.getShared());
+    }
+
+    /**
+     * Test that checked exceptions reach the caller and the entry is removed.
+     */
+    @Test
+    public void testExceptionIsPropagated() {
+        SingleFlight<String, Complex> flight = new SingleFlight<>();
+        InvalidCircuitException e = assertThrows(InvalidCircuitException.class,
+                () -> flight.run("bad", () -> new ConnectionNode(true).getImpedance(50)));
+        assertTrue(e.getMessage().contains("no children"));
+        assertEquals(0, flight.inFlight());
+    }
+
+    /**
+     * Test that coalesced model calculations give the same results and are recorded in history.
+     */
+    @Test
+    public void testModelSharedCalculations() throws Exception {
+        ImpedanceModel model = new ImpedanceModel();
+        CircuitElement circuit = ExpressionParser.parse("series(R:100, C:1e-6)");
+        Complex shared = model.calculateImpedanceShared(circuit, 1000.0);
+        assertEquals(circuit.getImpedance(1000.0), shared);
+        assertEquals(1, model.getHistorySize());
+
+        FrequencySweep sweep = new FrequencySweep(10, 1e4, 4, true);
+        SweepResult result = model.calculateSweep(circuit, sweep);
+        assertEquals(4, result.size());
+        for (int i = 0; i < sweep.size(); i++) {
+            assertNull(result.getError(i));
+            assertEquals(circuit.getImpedance(sweep.frequency(i)), result.getImpedance(i));
+        }
+        assertEquals(sweep, new FrequencySweep(10, 1e4, 4, true));
+        assertEquals(1, model.getHistorySize());
+    }
+}
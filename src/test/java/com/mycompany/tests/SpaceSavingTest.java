@@ -0,0 +1,84 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SpaceSaving heavy-hitters sketch.
+ * Tests cover exact counting below capacity, retention of a frequent key
+ * when the sketch overflows, and replacement of the least frequent key.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class SpaceSavingTest {
+
+    /**
+     * Test that counts are exact while the number of keys fits the capacity.
+     */
+    @Test
+    public void testExactCountsBelowCapacity() {
+        SpaceSaving sketch = new SpaceSaving(4);
+        sketch.offer("a");
+        sketch.offer("b");
+        sketch.offer("a");
+        List<SpaceSaving.Entry> top = sketch.top(2);
+        assertEquals("a", top.get(0).key());
+        assertEquals(2, top.get(0).count());
+        assertEquals(0, top.get(0).error());
+    }
+
+    /**
+     * Test that a dominant key stays on top among many rare keys.
+     */
+    @Test
+    public void testHeavyHitterSurvivesOverflow() {
+        SpaceSaving sketch = new SpaceSaving(8);
+        for (int i = 0; i < 1000; i++) {
+            sketch.offer("hot");
+            sketch.offer("rare-" + i);
+        }
+        SpaceSaving.Entry first = sketch.top(1).get(0);
+        assertEquals("hot", first.key());
+        assertTrue(first.count() >= 1000);
+    }
+
+    /**
+     * Test that a new key replaces a key with the smallest count, inherits that
+     * count as its error, and that top lists the keys by descending count.
+     */
+    @Test
+    public void testReplacesLeastFrequentKey() {
+        SpaceSaving sketch = new SpaceSaving(3);
+        for (int i = 0; i < 3; i++) sketch.offer("a");
+        for (int i = 0; i < 2; i++) sketch.offer("b");
+        sketch.offer("c");
+        sketch.offer("d");
+
+        List<SpaceSaving.Entry> top = sketch.top(10);
+        assertEquals(List.of(new SpaceSaving.Entry("a", 3, 0),
+                new SpaceSaving.Entry("b", 2, 0),
+                new SpaceSaving.Entry("d", 2, 1)), sortTies(top));
+
+        sketch.offer("e");
+        top = sketch.top(10);
+        assertEquals(3, top.size());
+        assertTrue(top.contains(new SpaceSaving.Entry("e", 3, 2)), top.toString());
+        assertTrue(top.contains(new SpaceSaving.Entry("a", 3, 0)), top.toString());
+        assertEquals(2, top.get(2).count());
+        assertTrue(sketch.top(0).isEmpty());
+    }
+
+    private static List<SpaceSaving.Entry> sortTies(List<SpaceSaving.Entry> entries) {
+        List<SpaceSaving.Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(SpaceSaving.Entry::count).reversed()
+                .thenComparing(SpaceSaving.Entry::key));
+        return sorted;
+    }
+}
@@ -0,0 +1,240 @@
+package com.mycompany.tests;
+
+import com.mycompany.controller.SweepStreamServlet;
+import com.mycompany.model.FrequencySweep;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SweepStreamServlet class.
+ * Tests cover a complete stream, the point caps, and ending the stream of a client
+ * that stops reading, by timeout and by idleness, without writing after completion.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.1
+ */
+public class SweepStreamServletTest {
+
+    /**
+     * Output stream that accepts a fixed number of writes and then stays not ready,
+     * like the stream of a client that stopped reading.
+     */
+    private static final class StallingOutput extends ServletOutputStream {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int writesAccepted;
+        private int writes;
+        WriteListener listener;
+
+        StallingOutput(int writesAccepted) {
+            this.writesAccepted = writesAccepted;
+        }
+
+        @Override
+        public boolean isReady() {
+            return writes < writesAccepted;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            listener = writeListener;
+            try {
+                writeListener.onWritePossible();
+            } catch (java.io.IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            data.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            data.write(b, off, len);
+            writes++;
+        }
+    }
+
+    /**
+     * State of the async context handed to the servlet.
+     */
+    private static final class Async {
+        long timeout = -1;
+        final List<AsyncListener> listeners = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        int status;
+    }
+
+    private static SweepStreamServlet servlet(Map<String, String> initParams) throws Exception {
+        ServletContext context = (ServletContext) Proxy.newProxyInstance(SweepStreamServletTest.class.getClassLoader(),
+                new Class<?>[]{ServletContext.class}, (proxy, method, args) -> null);
+        ServletConfig config = (ServletConfig) Proxy.newProxyInstance(SweepStreamServletTest.class.getClassLoader(),
+                new Class<?>[]{ServletConfig.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getServletContext" -> context;
+                    case "getInitParameter" -> initParams.get((String) args[0]);
+                    case "getServletName" -> "SweepStreamServlet";
+                    default -> null;
+                });
+        SweepStreamServlet servlet = new SweepStreamServlet();
+        servlet.init(config);
+        return servlet;
+    }
+
+    private static void get(SweepStreamServlet servlet, Map<String, String> params, StallingOutput out, Async async)
+            throws Exception {
+        AsyncContext context = (AsyncContext) Proxy.newProxyInstance(SweepStreamServletTest.class.getClassLoader(),
+                new Class<?>[]{AsyncContext.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setTimeout" -> async.timeout = (Long) args[0];
+                        case "getTimeout" -> {
+                            return async.timeout;
+                        }
+                        case "addListener" -> async.listeners.add((AsyncListener) args[0]);
+                        case "complete" -> {
+                            if (async.completed.getCount() == 0) throw new IllegalStateException("completed twice");
+                            async.completed.countDown();
+                            for (AsyncListener l : async.listeners) l.onComplete(null);
+                        }
+                        default -> {
+                        }
+                    }
+                    return null;
+                });
+        HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(SweepStreamServletTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getMethod" -> "GET";
+                    case "getParameter" -> params.get((String) args[0]);
+                    case "startAsync" -> context;
+                    case "getDateHeader", "getIntHeader" -> -1L;
+                    default -> null;
+                });
+        HttpServletResponse resp = (HttpServletResponse) Proxy.newProxyInstance(SweepStreamServletTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendError")) async.status = (Integer) args[0];
+                    if (method.getName().equals("getOutputStream")) return out;
+                    if (method.getName().equals("isCommitted")) return false;
+                    return null;
+                });
+        servlet.service(req, resp);
+    }
+
+    /**
+     * Test that a readable stream delivers every point and completes once.
+     */
+    @Test
+    public void testCompleteStream() throws Exception {
+        SweepStreamServlet servlet = servlet(Map.of());
+        try {
+            StallingOutput out = new StallingOutput(Integer.MAX_VALUE);
+            Async async = new Async();
+            get(servlet, Map.of("expression", "parallel(R:100, C:1e-6)", "start", "1", "stop", "1e6",
+                    "points", "3000", "format", "csv"), out, async);
+            assertEquals(0, async.completed.getCount());
+            String[] lines = out.data.toString(StandardCharsets.UTF_8).split("\r\n");
+            assertEquals(3001, lines.length);
+            assertTrue(async.timeout > 0, "stream must have a finite timeout");
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    /**
+     * Test that streams may exceed the in-memory sweep cap but not the streaming cap.
+     */
+    @Test
+    public void testPointCaps() throws Exception {
+        SweepStreamServlet servlet = servlet(Map.of());
+        try {
+            Async allowed = new Async();
+            get(servlet, Map.of("expression", "R:1", "start", "1", "stop", "10",
+                    "points", Integer.toString(FrequencySweep.MAX_POINTS + 1)), new StallingOutput(1), allowed);
+            assertEquals(0, allowed.status);
+            allowed.listeners.get(0).onTimeout(null);
+
+            Async rejected = new Async();
+            get(servlet, Map.of("expression", "R:1", "start", "1", "stop", "10",
+                    "points", Integer.toString(FrequencySweep.MAX_STREAMING_POINTS + 1)), new StallingOutput(1), rejected);
+            assertEquals(400, rejected.status);
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    /**
+     * Test that the async timeout of a stalled stream completes it.
+     */
+    @Test
+    public void testTimeoutCompletesStalledStream() throws Exception {
+        SweepStreamServlet servlet = servlet(Map.of("timeoutSeconds", "5"));
+        try {
+            Async async = new Async();
+            get(servlet, Map.of("expression", "R:100", "start", "1", "stop", "1e6", "points", "100000"),
+                    new StallingOutput(2), async);
+            assertEquals(5000, async.timeout);
+            assertEquals(1, async.completed.getCount());
+            for (AsyncListener l : List.copyOf(async.listeners)) l.onTimeout(null);
+            assertEquals(0, async.completed.getCount());
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    /**
+     * Test that a write callback arriving after the stream was completed writes nothing.
+     */
+    @Test
+    public void testNoWriteAfterCompletion() throws Exception {
+        SweepStreamServlet servlet = servlet(Map.of());
+        try {
+            StallingOutput out = new StallingOutput(2);
+            Async async = new Async();
+            get(servlet, Map.of("expression", "R:100", "start", "1", "stop", "1e6", "points", "100000"), out, async);
+            for (AsyncListener l : List.copyOf(async.listeners)) l.onTimeout(null);
+            assertEquals(0, async.completed.getCount());
+
+            int written = out.data.size();
+            out.writesAccepted = Integer.MAX_VALUE;
+            out.listener.onWritePossible();
+            assertEquals(written, out.data.size());
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    /**
+     * Test that a stream whose client accepts no data for the idle timeout is completed
+     * without waiting for the overall timeout.
+     */
+    @Test
+    public void testIdleStreamCompleted() throws Exception {
+        SweepStreamServlet servlet = servlet(Map.of("idleTimeoutSeconds", "1"));
+        try {
+            Async async = new Async();
+            get(servlet, Map.of("expression", "R:100", "start", "1", "stop", "1e6", "points", "100000"),
+                    new StallingOutput(2), async);
+            assertTrue(async.completed.await(5, TimeUnit.SECONDS), "idle stream was not completed");
+        } finally {
+            servlet.destroy();
+        }
+    }
+}
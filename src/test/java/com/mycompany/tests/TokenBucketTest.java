@@ -0,0 +1,87 @@
+package com.mycompany.tests;
+
+import com.mycompany.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TokenBucket class.
+ * Tests cover bursts, refill over time, oversized costs and the wait estimate.
+ *
+ * @author Kamil Fulneczek
+ * @version 1.0
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    /**
+     * Test that a full bucket admits a burst up to its capacity and then refuses.
+     */
+    @Test
+    public void testBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryAcquire(1, 0));
+        }
+        assertFalse(bucket.tryAcquire(1, 0));
+    }
+
+    /**
+     * Test that tokens are refilled at the configured rate and never beyond the capacity.
+     */
+    @Test
+    public void testRefill() {
+        TokenBucket bucket = new TokenBucket(100, 10, 0);
+        assertTrue(bucket.tryAcquire(100, 0));
+        assertEquals(5, bucket.available(SECOND / 2), 1e-9);
+        assertFalse(bucket.tryAcquire(6, SECOND / 2));
+        assertTrue(bucket.tryAcquire(5, SECOND / 2));
+        assertEquals(100, bucket.available(60 * SECOND), 1e-9);
+        assertTrue(bucket.isFull(60 * SECOND));
+    }
+
+    /**
+     * Test that a cost above the capacity is admitted by a full bucket and empties it.
+     */
+    @Test
+    public void testOversizedCost() {
+        TokenBucket bucket = new TokenBucket(50, 10, 0);
+        assertTrue(bucket.tryAcquire(1_000, 0));
+        assertEquals(0, bucket.available(0), 1e-9);
+        assertFalse(bucket.tryAcquire(1_000, SECOND));
+    }
+
+    /**
+     * Test the estimated wait until a request would be admitted.
+     *
+     * @param cost request cost
+     * @param expectedMillis expected wait in milliseconds on an empty bucket
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "1, 100",
+            "10, 1000",
+            "25, 2500",
+            "1000, 5000"
+    })
+    public void testNanosUntilAvailable(double cost, long expectedMillis) {
+        TokenBucket bucket = new TokenBucket(50, 10, 0);
+        assertTrue(bucket.tryAcquire(50, 0));
+        assertEquals(expectedMillis * 1_000_000L, bucket.nanosUntilAvailable(cost, 0), 1_000);
+        assertEquals(0, bucket.nanosUntilAvailable(cost, expectedMillis * 1_000_000L + 1_000));
+    }
+
+    /**
+     * Test that invalid parameters are rejected.
+     */
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(Double.NaN, 1, 0));
+    }
+}